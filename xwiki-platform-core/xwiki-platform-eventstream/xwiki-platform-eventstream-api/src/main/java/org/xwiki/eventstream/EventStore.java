@@ -19,6 +19,7 @@
  */
 package org.xwiki.eventstream;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -56,6 +57,20 @@
      */
     CompletableFuture<EventStatus> saveEventStatus(EventStatus status);
 
+    /**
+     * Asynchronously save in the storage the given statuses, all together.
+     * 
+     * @param statuses the statuses to save
+     * @return the new {@link CompletableFuture} completed when all the statuses are saved
+     * @since 12.6RC1
+     * @see #saveEventStatus(EventStatus)
+     */
+    default CompletableFuture<Void> saveEventStatuses(Collection<EventStatus> statuses)
+    {
+        return CompletableFuture
+            .allOf(statuses.stream().map(this::saveEventStatus).toArray(size -> new CompletableFuture<?>[size]));
+    }
+
     /**
      * Asynchronously save in the storage the given mail status.
      * 
@@ -22,6 +22,7 @@
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,7 @@
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -78,6 +80,11 @@ public abstract class AbstractAsynchronousEventStore implements EventStore, Init
          */
         SAVE_STATUS,
 
+        /**
+         * @since 12.6RC1
+         */
+        SAVE_STATUSES,
+
         /**
          * @since 12.6RC1
          */
@@ -191,6 +198,15 @@ public EventStoreTaskType getType()
 
     private boolean disposed;
 
+    private int batchMaxSize;
+
+    private long batchMaxLatency;
+
+    /**
+     * The task currently executed by the store thread.
+     */
+    private EventStoreTask<?, ?> currentTask;
+
     private <O, I> CompletableFuture<O> addTask(I input, EventStoreTaskType type)
     {
         // Remember a few standard things from the context
@@ -233,6 +249,12 @@ public CompletableFuture<EventStatus> saveEventStatus(EventStatus status)
         return addTask(status, EventStoreTaskType.SAVE_STATUS);
     }
 
+    @Override
+    public CompletableFuture<Void> saveEventStatuses(Collection<EventStatus> statuses)
+    {
+        return addTask(new ArrayList<>(statuses), EventStoreTaskType.SAVE_STATUSES);
+    }
+
     @Override
     public CompletableFuture<EventStatus> saveMailEntityEvent(EntityEvent event)
     {
@@ -299,12 +321,16 @@ private void processTasks(EventStoreTask<?, ?> firstTask)
 
         List<EventStoreTask<?, ?>> tasks = new ArrayList<>();
         try {
-            for (EventStoreTask<?, ?> task = firstTask; task != null; task = this.queue.poll()) {
+            long deadline = System.currentTimeMillis() + this.batchMaxLatency;
+            for (EventStoreTask<?, ?> task = firstTask; task != null; task = nextTask(tasks.size(), deadline)) {
                 if (task != EventStoreTask.STOP) {
+                    this.currentTask = task;
                     try {
                         processTask(task);
                     } catch (Exception e) {
                         task.future.completeExceptionally(e);
+                    } finally {
+                        this.currentTask = null;
                     }
 
                     tasks.add(task);
@@ -317,6 +343,32 @@ private void processTasks(EventStoreTask<?, ?> firstTask)
         }
     }
 
+    /**
+     * @param size the current size of the batch
+     * @param deadline the date after which the batch should not wait for new tasks anymore
+     * @return the next task to add to the current batch or {@code null} if the batch is complete
+     */
+    private EventStoreTask<?, ?> nextTask(int size, long deadline)
+    {
+        if (size >= this.batchMaxSize) {
+            return null;
+        }
+
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return this.queue.poll();
+        }
+
+        // Wait a bit for more tasks to group them in the same batch
+        try {
+            return this.queue.poll(remaining, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return null;
+        }
+    }
+
     private boolean processTask(EventStoreTask<?, ?> task) throws EventStreamException
     {
         switch (task.type) {
@@ -349,6 +401,13 @@ private boolean processTask(EventStoreTask<?, ?> task) throws EventStreamExcepti
                     syncSaveEventStatus((EventStatus) task.input));
                 break;
 
+            case SAVE_STATUSES:
+                for (EventStatus status : (Collection<EventStatus>) task.input) {
+                    syncSaveEventStatus(status);
+                }
+                processTaskOutput((EventStoreTask<Void, Collection<EventStatus>>) task, null);
+                break;
+
             case DELETE_MAIL_ENTITY:
                 processTaskOutput((EventStoreTask<Optional<EntityEvent>, EntityEvent>) task,
                     syncDeleteMailEntityEvent((EntityEvent) task.input));
@@ -381,6 +440,11 @@ private <O, I> void processTaskOutput(EventStoreTask<O, I> task, O output)
 
     private <O, I> void complete(EventStoreTask<O, I> task, O output)
     {
+        if (task.future.isCompletedExceptionally()) {
+            // Don't notify about failed tasks
+            return;
+        }
+
         if (task.context != null) {
             // Restore a few things from the context in case the listener need them (for example to lookup the right
             // components for the context of the event)
@@ -420,6 +484,11 @@ private <O, I> void complete(EventStoreTask<O, I> task, O output)
                 this.observation.notify(new EventStatusAddOrUpdatedEvent(), task.output);
                 break;
 
+            case SAVE_STATUSES:
+                ((Collection<EventStatus>) task.input)
+                    .forEach(status -> this.observation.notify(new EventStatusAddOrUpdatedEvent(), status));
+                break;
+
             case DELETE_MAIL_ENTITY:
                 this.observation.notify(new MailEntityAddedEvent(), task.output);
                 break;
@@ -483,6 +552,35 @@ private <O, I> void complete(EventStoreTask<O, I> task, O output)
      */
     protected abstract Optional<Event> syncDeleteEvent(Event event) throws EventStreamException;
 
+    /**
+     * @return the task currently executed by the store thread, {@code null} if called outside of a task
+     * @since 12.6RC1
+     */
+    protected EventStoreTask<?, ?> getCurrentTask()
+    {
+        return this.currentTask;
+    }
+
+    /**
+     * Mark the passed tasks as failed (for example when a batch containing them could not be committed).
+     * 
+     * @param tasks the tasks which failed
+     * @param cause the reason of the failure
+     * @since 12.6RC1
+     */
+    protected void failTasks(Collection<EventStoreTask<?, ?>> tasks, Exception cause)
+    {
+        for (EventStoreTask<?, ?> task : tasks) {
+            task.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Called after each batch of tasks, it's generally where the implementation commit all the changes made by the
+     * tasks of the batch.
+     * 
+     * @param tasks the tasks executed in the batch
+     */
     protected void afterTasks(List<EventStoreTask<?, ?>> tasks)
     {
         if (this.notifyAll) {
@@ -493,10 +591,28 @@ protected void afterTasks(List<EventStoreTask<?, ?>> tasks)
     }
 
     protected void initialize(int queueSize, boolean notifyEach, boolean notifyAll)
+    {
+        initialize(queueSize, notifyEach, notifyAll, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * @param queueSize the maximum number of tasks waiting to be processed
+     * @param notifyEach true if the listeners should be notified after each task
+     * @param notifyAll true if the listeners should be notified after each batch of tasks
+     * @param batchMaxSize the maximum number of tasks to process in the same batch
+     * @param batchMaxLatency the maximum time in milliseconds to wait for more tasks before ending a batch, 0 to end
+     *            the batch as soon as the queue is empty
+     * @since 12.6RC1
+     */
+    protected void initialize(int queueSize, boolean notifyEach, boolean notifyAll, int batchMaxSize,
+        long batchMaxLatency)
     {
         this.notifyEach = notifyEach;
         this.notifyAll = !notifyEach && notifyAll;
 
+        this.batchMaxSize = batchMaxSize > 0 ? batchMaxSize : Integer.MAX_VALUE;
+        this.batchMaxLatency = batchMaxLatency;
+
         this.queue = new LinkedBlockingQueue<>(queueSize);
 
         Thread thread = new Thread(this::run);
@@ -19,6 +19,7 @@
  */
 package org.xwiki.eventstream.internal;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -228,6 +229,28 @@ public CompletableFuture<EventStatus> saveEventStatus(EventStatus status)
         return future;
     }
 
+    @Override
+    public CompletableFuture<Void> saveEventStatuses(Collection<EventStatus> statuses)
+    {
+        CompletableFuture<Void> future = null;
+
+        if (this.legacyStore != null) {
+            future = this.legacyStore.saveEventStatuses(statuses);
+        }
+
+        if (this.store != null) {
+            // Forget about legacy store result if new store is enabled
+            future = this.store.saveEventStatuses(statuses);
+        }
+
+        if (future == null) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(new EventStreamException(NO_STORE));
+        }
+
+        return future;
+    }
+
     @Override
     public CompletableFuture<EventStatus> saveMailEntityEvent(EntityEvent event)
     {
@@ -54,4 +54,23 @@ public boolean isEventStoreEnabled()
     {
         return this.configuration.getProperty("eventstream.store.enabled", true);
     }
+
+    /**
+     * @return the maximum number of save/delete operations the {@link EventStore} should group in a single batch
+     * @since 12.6RC1
+     */
+    public int getEventStoreBatchMaxSize()
+    {
+        return this.configuration.getProperty("eventstream.store.batch.maxSize", 1000);
+    }
+
+    /**
+     * @return the maximum time in milliseconds the {@link EventStore} should wait for more operations before
+     *         committing a batch
+     * @since 12.6RC1
+     */
+    public long getEventStoreBatchMaxLatency()
+    {
+        return this.configuration.getProperty("eventstream.store.batch.maxLatency", 0L);
+    }
 }
@@ -21,7 +21,9 @@
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -33,6 +35,7 @@
 import javax.inject.Singleton;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrQuery.ORDER;
@@ -52,6 +55,7 @@
 import org.xwiki.eventstream.EventStore;
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.eventstream.internal.AbstractAsynchronousEventStore;
+import org.xwiki.eventstream.internal.EventStreamConfiguration;
 import org.xwiki.eventstream.internal.DefaultEvent;
 import org.xwiki.eventstream.internal.StreamEventSearchResult;
 import org.xwiki.eventstream.query.CompareQueryCondition;
@@ -106,12 +110,27 @@ public class SolrEventStore extends AbstractAsynchronousEventStore
     @Named("compact")
     private EntityReferenceSerializer<String> compact;
 
+    @Inject
+    private EventStreamConfiguration configuration;
+
     private SolrClient client;
 
+    /**
+     * The documents waiting to be sent to Solr (only manipulated by the store thread).
+     */
+    private final List<SolrInputDocument> documents = new ArrayList<>();
+
+    /**
+     * The task which produced each document waiting to be sent to Solr, {@code null} when the document was not
+     * produced by a task (only manipulated by the store thread).
+     */
+    private final List<EventStoreTask<?, ?>> documentsTasks = new ArrayList<>();
+
     @Override
     public void initialize() throws InitializationException
     {
-        initialize(100, false, true);
+        initialize(100, false, true, this.configuration.getEventStoreBatchMaxSize(),
+            this.configuration.getEventStoreBatchMaxLatency());
 
         try {
             this.client = this.solr.getClient(EventsSolrCoreInitializer.NAME);
@@ -123,10 +142,14 @@ public void initialize() throws InitializationException
     @Override
     protected void afterTasks(List<EventStoreTask<?, ?>> tasks)
     {
+        flush();
+
         try {
             commit();
         } catch (EventStreamException e) {
             this.logger.error("Failed to commit", e);
+
+            failTasks(tasks, e);
         }
 
         super.afterTasks(tasks);
@@ -135,11 +158,7 @@ protected void afterTasks(List<EventStoreTask<?, ?>> tasks)
     @Override
     protected Event syncSaveEvent(Event event) throws EventStreamException
     {
-        try {
-            this.client.add(toSolrInputDocument(event));
-        } catch (Exception e) {
-            throw new EventStreamException("Failed to save event", e);
-        }
+        addDocument(toSolrInputDocument(event));
 
         return event;
     }
@@ -179,6 +198,9 @@ protected Void syncDeleteEventStatuses(String entityId, Date date) throws EventS
 
         builder.append(serializeStatusCondition(new StatusQueryCondition(entityId, null, false)));
 
+        // Make sure the pending updates are not applied after the delete
+        flush();
+
         try {
             this.client.deleteByQuery(builder.toString());
         } catch (Exception e) {
@@ -205,12 +227,7 @@ protected Event syncPrefilterEvent(Event event) throws EventStreamException
 
         this.utils.setAtomic(SolrUtils.ATOMIC_UPDATE_MODIFIER_SET, Event.FIELD_PREFILTERED, true, document);
 
-        try {
-            this.client.add(document);
-        } catch (Exception e) {
-            throw new EventStreamException(
-                String.format("Failed to to set the event [%s] as prefiltered", event.getId()), e);
-        }
+        addDocument(document);
 
         // Update the event so that we return something with the right value
         if (event instanceof DefaultEvent) {
@@ -234,13 +251,7 @@ private void saveEventStatus(String eventId, String entityId, boolean read, bool
             unread ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
             EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS, entityId, document);
 
-        try {
-            this.client.add(document);
-        } catch (Exception e) {
-            throw new EventStreamException(
-                String.format("Failed to update the event status for event [%s] and entity id [%s]", eventId, entityId),
-                e);
-        }
+        addDocument(document);
     }
 
     private void saveMailEntityEvent(String eventId, String entityId, boolean add) throws EventStreamException
@@ -253,11 +264,51 @@ private void saveMailEntityEvent(String eventId, String entityId, boolean add) t
             add ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
             EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS, entityId, document);
 
-        try {
-            this.client.add(document);
-        } catch (Exception e) {
-            throw new EventStreamException(String.format(
-                "Failed to update the event mail status for event [%s] and entity id [%s]", eventId, entityId), e);
+        addDocument(document);
+    }
+
+    private void addDocument(SolrInputDocument document)
+    {
+        this.documents.add(document);
+        this.documentsTasks.add(getCurrentTask());
+    }
+
+    /**
+     * Send to Solr all the documents accumulated in the current batch in a single update request. If the batch is
+     * rejected the documents are sent again one by one so that a bad document only fails the task which produced it.
+     */
+    private void flush()
+    {
+        if (!this.documents.isEmpty()) {
+            try {
+                this.client.add(this.documents);
+            } catch (Exception e) {
+                this.logger.warn("Failed to save a batch of [{}] events documents, saving them one by one."
+                    + " Root cause: [{}]", this.documents.size(), ExceptionUtils.getRootCauseMessage(e));
+
+                flushOneByOne();
+            } finally {
+                this.documents.clear();
+                this.documentsTasks.clear();
+            }
+        }
+    }
+
+    private void flushOneByOne()
+    {
+        for (int i = 0; i < this.documents.size(); ++i) {
+            SolrInputDocument document = this.documents.get(i);
+            try {
+                this.client.add(document);
+            } catch (Exception e) {
+                this.logger.error("Failed to save the event document [{}]",
+                    document.getFieldValue(EventsSolrCoreInitializer.SOLR_FIELD_ID), e);
+
+                EventStoreTask<?, ?> task = this.documentsTasks.get(i);
+                if (task != null) {
+                    failTasks(Collections.singletonList(task), new EventStreamException("Failed to save the event", e));
+                }
+            }
         }
     }
 
@@ -314,6 +365,9 @@ private SolrInputDocument toSolrInputDocument(Event event)
     @Override
     protected Optional<Event> syncDeleteEvent(String eventId) throws EventStreamException
     {
+        // Make sure the pending updates are taken into account
+        flush();
+
         Optional<Event> event = getEvent(eventId);
 
         if (event.isPresent()) {
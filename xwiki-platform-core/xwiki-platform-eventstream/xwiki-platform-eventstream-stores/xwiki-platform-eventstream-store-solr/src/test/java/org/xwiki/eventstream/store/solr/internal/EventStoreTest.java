@@ -21,20 +21,28 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import javax.inject.Named;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.xwiki.configuration.ConfigurationSource;
@@ -46,6 +54,7 @@
 import org.xwiki.eventstream.internal.DefaultEntityEvent;
 import org.xwiki.eventstream.internal.DefaultEvent;
 import org.xwiki.eventstream.internal.DefaultEventStatus;
+import org.xwiki.eventstream.internal.EventStreamConfiguration;
 import org.xwiki.eventstream.query.SimpleEventQuery;
 import org.xwiki.eventstream.query.SortableEventQuery.SortClause.Order;
 import org.xwiki.model.reference.DocumentReference;
@@ -65,8 +74,12 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 /**
@@ -87,6 +100,10 @@
 
     private static final DefaultEvent EVENT4 = event("id4");
 
+    private static final int BATCH_MAX_SIZE = 2;
+
+    private static final long BATCH_MAX_LATENCY = 200;
+
     @XWikiTempDir
     private File permanentDirectory;
 
@@ -110,6 +127,9 @@
     @Named("compact")
     private EntityReferenceSerializer<String> compactSerializer;
 
+    @MockComponent
+    private EventStreamConfiguration configuration;
+
     @InjectComponentManager
     private MockitoComponentManager componentManager;
 
@@ -131,6 +151,9 @@ public String answer(InvocationOnMock invocation) throws Throwable
             }
         });
 
+        when(this.configuration.getEventStoreBatchMaxSize()).thenReturn(BATCH_MAX_SIZE);
+        when(this.configuration.getEventStoreBatchMaxLatency()).thenReturn(BATCH_MAX_LATENCY);
+
         when(this.mockEnvironment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
         FileUtils.deleteDirectory(this.permanentDirectory);
         this.permanentDirectory.mkdirs();
@@ -161,6 +184,14 @@ private static DefaultEntityEvent entityevent(Event event, String entityId)
         return new DefaultEntityEvent(event, entityId);
     }
 
+    private SolrClient spyClient() throws IllegalAccessException
+    {
+        SolrClient client = spy((SolrClient) FieldUtils.readField(this.eventStore, "client", true));
+        FieldUtils.writeField(this.eventStore, "client", client, true);
+
+        return client;
+    }
+
     private EventSearchResult assertSearch(Collection<Event> expected, EventQuery query) throws EventStreamException
     {
         EventSearchResult result = this.eventStore.search(query);
@@ -249,6 +280,90 @@ public void saveDeleteEventStatuses() throws Exception
         assertSearch(Arrays.asList(EVENT3, EVENT4), new SimpleEventQuery().withStatus("entity1"));
     }
 
+    @Test
+    public void saveEventsInBatches() throws Exception
+    {
+        SolrClient client = spyClient();
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.<Collection<?>>getArgument(0).size());
+            return invocation.callRealMethod();
+        }).when(client).add(ArgumentMatchers.<SolrInputDocument>anyCollection());
+
+        List<CompletableFuture<Event>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            futures.add(this.eventStore.saveEvent(event("batch" + i)));
+        }
+        for (CompletableFuture<Event> future : futures) {
+            future.get();
+        }
+
+        // The batches never exceed the configured size
+        assertEquals(5, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= BATCH_MAX_SIZE), batchSizes.toString());
+
+        for (int i = 0; i < 5; ++i) {
+            assertTrue(this.eventStore.getEvent("batch" + i).isPresent());
+        }
+    }
+
+    @Test
+    public void saveEventsWithinMaxLatency() throws Exception
+    {
+        SolrClient client = spyClient();
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.<Collection<?>>getArgument(0).size());
+            return invocation.callRealMethod();
+        }).when(client).add(ArgumentMatchers.<SolrInputDocument>anyCollection());
+
+        // A single event does not fill the batch, it's saved once the max latency is reached
+        long start = System.currentTimeMillis();
+        this.eventStore.saveEvent(event("latency1")).get();
+        assertTrue(System.currentTimeMillis() - start >= BATCH_MAX_LATENCY);
+        assertEquals(Arrays.asList(1), batchSizes);
+
+        // Events saved within the max latency are grouped in the same batch
+        batchSizes.clear();
+        CompletableFuture<Event> future2 = this.eventStore.saveEvent(event("latency2"));
+        CompletableFuture<Event> future3 = this.eventStore.saveEvent(event("latency3"));
+        future2.get();
+        future3.get();
+        assertEquals(Arrays.asList(2), batchSizes);
+    }
+
+    @Test
+    public void saveEventsWhenBatchFails() throws Exception
+    {
+        SolrClient client = spyClient();
+        // Simulate a document rejected by Solr
+        doAnswer(invocation -> {
+            if (invocation.<Collection<SolrInputDocument>>getArgument(0).stream()
+                .anyMatch(document -> "bad".equals(document.getFieldValue(EventsSolrCoreInitializer.SOLR_FIELD_ID)))) {
+                throw new SolrServerException("Rejected batch");
+            }
+            return invocation.callRealMethod();
+        }).when(client).add(ArgumentMatchers.<SolrInputDocument>anyCollection());
+        doAnswer(invocation -> {
+            if ("bad".equals(
+                invocation.<SolrInputDocument>getArgument(0).getFieldValue(EventsSolrCoreInitializer.SOLR_FIELD_ID))) {
+                throw new SolrServerException("Rejected document");
+            }
+            return invocation.callRealMethod();
+        }).when(client).add(any(SolrInputDocument.class));
+
+        CompletableFuture<Event> goodFuture = this.eventStore.saveEvent(event("good"));
+        CompletableFuture<Event> badFuture = this.eventStore.saveEvent(event("bad"));
+
+        // Only the task which produced the rejected document fails
+        assertEquals("good", goodFuture.get().getId());
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> badFuture.get());
+        assertEquals("Rejected document", exception.getCause().getCause().getMessage());
+
+        assertTrue(this.eventStore.getEvent("good").isPresent());
+        assertFalse(this.eventStore.getEvent("bad").isPresent());
+    }
+
     @Test
     public void allSearch()
         throws EventStreamException, InterruptedException, ExecutionException, SolrServerException, IOException
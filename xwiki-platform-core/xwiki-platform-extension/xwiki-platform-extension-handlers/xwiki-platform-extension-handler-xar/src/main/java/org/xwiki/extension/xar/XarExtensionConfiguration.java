@@ -20,6 +20,7 @@
 package org.xwiki.extension.xar;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Various configuration related to XAR extensions support.
@@ -126,4 +127,15 @@ public boolean isSimple()
      * @return the protection to apply
      */
     DocumentProtection getDocumentProtection();
+
+    /**
+     * @return the number of threads used to parse the documents of a XAR extension while the previous ones are
+     *         being saved, 1 or less to parse and save each document in turn
+     * @since 12.6RC1
+     */
+    @Unstable
+    default int getImportThreads()
+    {
+        return 1;
+    }
 }
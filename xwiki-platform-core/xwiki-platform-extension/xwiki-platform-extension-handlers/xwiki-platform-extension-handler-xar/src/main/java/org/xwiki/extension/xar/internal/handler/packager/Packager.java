@@ -19,13 +19,21 @@
  */
 package org.xwiki.extension.xar.internal.handler.packager;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -34,14 +42,20 @@
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
 import org.xwiki.extension.ExtensionId;
+import org.xwiki.extension.LocalExtension;
 import org.xwiki.extension.repository.InstalledExtensionRepository;
+import org.xwiki.extension.xar.XarExtensionConfiguration;
 import org.xwiki.extension.xar.XarExtensionException;
 import org.xwiki.extension.xar.internal.handler.XarExtensionHandler;
 import org.xwiki.extension.xar.internal.handler.XarExtensionPlan;
+import org.xwiki.extension.xar.internal.job.diff.DocumentDigestBuilder;
 import org.xwiki.extension.xar.internal.repository.XarInstalledExtension;
 import org.xwiki.extension.xar.internal.repository.XarInstalledExtensionRepository;
 import org.xwiki.extension.xar.job.diff.DocumentVersionReference;
@@ -98,6 +112,22 @@
     private static final TranslationMarker LOG_DELETEDDOCUMENT_FAILURE =
         new TranslationMarker("extension.xar.log.delete.document.failure");
 
+    private static final class PendingDocument
+    {
+        private final String name;
+
+        private final XarEntry xarEntry;
+
+        private final Future<XWikiDocument> document;
+
+        PendingDocument(String name, XarEntry xarEntry, Future<XWikiDocument> document)
+        {
+            this.name = name;
+            this.xarEntry = xarEntry;
+            this.document = document;
+        }
+    }
+
     @Inject
     @Named("explicit")
     private DocumentReferenceResolver<EntityReference> resolver;
@@ -130,6 +160,16 @@
     @Named(XarExtensionHandler.TYPE)
     private InstalledExtensionRepository installedXARs;
 
+    @Inject
+    private XarExtensionConfiguration xarConfiguration;
+
+    @Inject
+    private DocumentDigestBuilder digestBuilder;
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
     private XarInstalledExtensionRepository getXarInstalledExtensionRepository()
     {
         return (XarInstalledExtensionRepository) this.installedXARs;
@@ -173,18 +213,14 @@ private void importXARToWiki(String comment, InputStream xarInputStream, WikiRef
 
             this.observation.notify(new XARImportingEvent(), null, xcontext);
 
-            for (ArchiveEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
-                // Only import what should be imported
-                if (!entry.isDirectory() && !entry.getName().equals(XarModel.PATH_PACKAGE)) {
-                    if (configuration.getEntriesToImport() != null) {
-                        XarEntry xarEntry = configuration.getEntriesToImport().get(entry.getName());
-                        if (xarEntry != null) {
-                            configuration.setXarEntry(xarEntry);
-
-                            importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName());
-                        }
-                    } else {
-                        configuration.setXarEntry(null);
+            int threads = this.xarConfiguration.getImportThreads();
+            if (threads > 1) {
+                importDocumentsToWiki(comment, wikiReference, zis, configuration, threads);
+            } else {
+                for (ArchiveEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                    if (isImported(entry, configuration)) {
+                        configuration.setXarEntry(getXarEntry(entry, configuration));
+
                         importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName());
                     }
                 }
@@ -196,11 +232,89 @@ private void importXARToWiki(String comment, InputStream xarInputStream, WikiRef
         }
     }
 
+    private boolean isImported(ArchiveEntry entry, PackageConfiguration configuration)
+    {
+        // Only import what should be imported
+        return !entry.isDirectory() && !entry.getName().equals(XarModel.PATH_PACKAGE)
+            && (configuration.getEntriesToImport() == null || getXarEntry(entry, configuration) != null);
+    }
+
+    private XarEntry getXarEntry(ArchiveEntry entry, PackageConfiguration configuration)
+    {
+        return configuration.getEntriesToImport() != null ? configuration.getEntriesToImport().get(entry.getName())
+            : null;
+    }
+
+    /**
+     * Parse the documents in parallel while the already parsed ones are merged and saved one by one in the order of
+     * the XAR entries.
+     */
+    private void importDocumentsToWiki(String comment, WikiReference wikiReference, ZipArchiveInputStream zis,
+        PackageConfiguration configuration, int threads) throws IOException, XWikiException, XarException
+    {
+        // Limit the number of documents kept in memory
+        int maxPending = threads * 2;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "XWiki XAR import parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Deque<PendingDocument> pendingDocuments = new ArrayDeque<>(maxPending);
+            for (ArchiveEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                if (isImported(entry, configuration)) {
+                    byte[] content = IOUtils.toByteArray(zis);
+
+                    FutureTask<XWikiDocument> future = new FutureTask<>(() -> {
+                        this.xcontextProvider.get().setWikiId(wikiReference.getName());
+
+                        return getXWikiDocument(new ByteArrayInputStream(content), wikiReference);
+                    });
+                    executor.execute(new ExecutionContextRunnable(future, this.componentManagerProvider.get()));
+
+                    pendingDocuments
+                        .add(new PendingDocument(entry.getName(), getXarEntry(entry, configuration), future));
+
+                    if (pendingDocuments.size() >= maxPending) {
+                        importDocumentToWiki(comment, pendingDocuments.poll(), configuration);
+                    }
+                }
+            }
+
+            while (!pendingDocuments.isEmpty()) {
+                importDocumentToWiki(comment, pendingDocuments.poll(), configuration);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void importDocumentToWiki(String comment, PendingDocument pendingDocument,
+        PackageConfiguration configuration) throws XWikiException, XarException, IOException
+    {
+        configuration.setXarEntry(pendingDocument.xarEntry);
+
+        XWikiDocument nextDocument;
+        try {
+            nextDocument = pendingDocument.document.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while parsing XAR entry [" + pendingDocument.name + "]", e);
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to parse XAR entry [{}]", pendingDocument.name, e.getCause());
+
+            return;
+        }
+
+        importDocumentToWiki(comment, nextDocument, configuration);
+    }
+
     private void importDocumentToWiki(String comment, WikiReference wikiReference, InputStream inputStream,
         PackageConfiguration configuration, String name) throws XWikiException, XarException, IOException
     {
-        XWikiContext xcontext = this.xcontextProvider.get();
-
         XWikiDocument nextDocument;
         try {
             nextDocument = getXWikiDocument(inputStream, wikiReference);
@@ -210,6 +324,14 @@ private void importDocumentToWiki(String comment, WikiReference wikiReference, I
             return;
         }
 
+        importDocumentToWiki(comment, nextDocument, configuration);
+    }
+
+    private void importDocumentToWiki(String comment, XWikiDocument nextDocument, PackageConfiguration configuration)
+        throws XWikiException, XarException, IOException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
         DocumentReference reference = nextDocument.getDocumentReferenceWithLocale();
         XWikiDocument currentDocument = xcontext.getWiki().getDocument(reference, xcontext);
         currentDocument.loadAttachmentsContentSafe(xcontext);
@@ -229,6 +351,10 @@ private void importDocumentToWiki(String comment, WikiReference wikiReference, I
         try {
             this.importer.importDocument(comment, previousDocument, currentDocument, nextDocument, configuration);
 
+            if (xarExtensionPlan != null) {
+                setDocumentDigest(xarExtensionPlan.getNextXarExtension(reference), reference, nextDocument);
+            }
+
             if (configuration.isVerbose()) {
                 this.logger.info(LOG_INSTALLDOCUMENT_SUCCESS_END, "Done installing document [{}]",
                     nextDocument.getDocumentReferenceWithLocale());
@@ -241,6 +367,19 @@ private void importDocumentToWiki(String comment, WikiReference wikiReference, I
         }
     }
 
+    private void setDocumentDigest(LocalExtension extension, DocumentReference reference, XWikiDocument document)
+    {
+        if (extension != null) {
+            try {
+                getXarInstalledExtensionRepository().setDocumentDigest(extension.getId(), reference,
+                    this.digestBuilder.digest(document));
+            } catch (Exception e) {
+                // The digest is only an optimization for the comparison of documents
+                this.logger.debug("Failed to compute the digest of document [{}]", reference, e);
+            }
+        }
+    }
+
     public void unimportPages(Collection<XarEntry> pages, PackageConfiguration configuration)
         throws WikiManagerException
     {
@@ -35,14 +35,19 @@
 import org.xwiki.extension.InstalledExtension;
 import org.xwiki.extension.job.InstallRequest;
 import org.xwiki.extension.job.internal.AbstractExtensionJob;
+import org.xwiki.extension.repository.InstalledExtensionRepository;
 import org.xwiki.extension.xar.internal.handler.UnsupportedNamespaceException;
 import org.xwiki.extension.xar.internal.handler.XarExtensionHandler;
 import org.xwiki.extension.xar.internal.handler.XarHandlerUtils;
 import org.xwiki.extension.xar.internal.handler.packager.Packager;
+import org.xwiki.extension.xar.internal.job.diff.DocumentDigest;
+import org.xwiki.extension.xar.internal.job.diff.DocumentDigestBuilder;
 import org.xwiki.extension.xar.internal.job.diff.DocumentUnifiedDiffBuilder;
+import org.xwiki.extension.xar.internal.repository.XarInstalledExtensionRepository;
 import org.xwiki.extension.xar.job.diff.DiffXarJobStatus;
 import org.xwiki.extension.xar.job.diff.DocumentUnifiedDiff;
 import org.xwiki.extension.xar.job.diff.DocumentVersionReference;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.xar.XarEntry;
@@ -86,6 +91,19 @@ public class DiffXarJob extends AbstractExtensionJob<InstallRequest, DiffXarJobS
     @Inject
     private DocumentUnifiedDiffBuilder documentDiffBuilder;
 
+    /**
+     * Used to compare the documents before computing the differences.
+     */
+    @Inject
+    private DocumentDigestBuilder documentDigestBuilder;
+
+    /**
+     * Used to get and store the digests of the documents provided by the extensions.
+     */
+    @Inject
+    @Named(XarExtensionHandler.TYPE)
+    private InstalledExtensionRepository xarRepository;
+
     /**
      * The set of features that have been compared. We try to avoid comparing the same feature twice. We assume all the
      * features are compared on the same namespace.
@@ -205,8 +223,13 @@ private void diff(XarFile xarFile, WikiReference wikiReference, ExtensionId exte
 
                 if (!alreadydone.contains(xarEntry)) {
                     try {
-                        diff(this.packager.getXWikiDocument(xarFile.getInputStream(xarEntry), wikiReference),
-                            extensionId);
+                        DocumentReference reference = new DocumentReference(xarEntry, wikiReference);
+                        if (isModified(reference, extensionId)) {
+                            diff(this.packager.getXWikiDocument(xarFile.getInputStream(xarEntry), wikiReference),
+                                extensionId);
+                        } else if (getRequest().isVerbose()) {
+                            this.logger.info("The document [{}] has no changes", reference);
+                        }
                     } catch (Exception e) {
                         // Skip this document and continue.
                         this.logger.error("Failed to parse document [{}] from XAR.", xarEntry.getDocumentName(), e);
@@ -225,11 +248,50 @@ private void diff(XarFile xarFile, WikiReference wikiReference, ExtensionId exte
         }
     }
 
+    /**
+     * Compare the digest of the document provided by the extension with the digest of the document from the database
+     * to avoid parsing the document from the XAR and computing the differences when there isn't any.
+     */
+    private boolean isModified(DocumentReference reference, ExtensionId extensionId)
+    {
+        DocumentDigest extensionDigest =
+            ((XarInstalledExtensionRepository) this.xarRepository).getDocumentDigest(extensionId, reference);
+        if (extensionDigest == null) {
+            return true;
+        }
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+        try {
+            XWikiDocument document = xcontext.getWiki().getDocument(reference, xcontext);
+
+            return document.isNew() || !extensionDigest.equals(this.documentDigestBuilder.digest(document));
+        } catch (Exception e) {
+            this.logger.debug("Failed to compute the digest of document [{}] from the database.", reference, e);
+
+            return true;
+        }
+    }
+
+    private void setDocumentDigest(XWikiDocument document, ExtensionId extensionId)
+    {
+        try {
+            ((XarInstalledExtensionRepository) this.xarRepository).setDocumentDigest(extensionId,
+                document.getDocumentReferenceWithLocale(), this.documentDigestBuilder.digest(document));
+        } catch (Exception e) {
+            this.logger.debug("Failed to compute the digest of document [{}] from the XAR.",
+                document.getDocumentReferenceWithLocale(), e);
+        }
+    }
+
     private void diff(XWikiDocument document, ExtensionId extensionId)
     {
         if (getRequest().isVerbose()) {
             this.logger.info("Computing differences for document [{}]", document.getDocumentReferenceWithLocale());
         }
+
+        // Remember the digest of the document provided by the extension for the next comparisons
+        setDocumentDigest(document, extensionId);
+
         // Use the extension id as the document version.
         XWikiDocument previousDocument =
             document.duplicate(new DocumentVersionReference(document.getDocumentReference(), extensionId));
@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.extension.xar.internal.job.diff;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.xwiki.text.XWikiToStringBuilder;
+
+/**
+ * The digests of the parts of a document which are compared by {@link DocumentUnifiedDiffBuilder}.
+ * 
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class DocumentDigest
+{
+    private final String content;
+
+    private final String objects;
+
+    private final String attachments;
+
+    /**
+     * @param content the digest of the document fields and content
+     * @param objects the digest of the document objects and class
+     * @param attachments the digest of the document attachments
+     */
+    public DocumentDigest(String content, String objects, String attachments)
+    {
+        this.content = content;
+        this.objects = objects;
+        this.attachments = attachments;
+    }
+
+    /**
+     * @return the digest of the document fields and content
+     */
+    public String getContent()
+    {
+        return this.content;
+    }
+
+    /**
+     * @return the digest of the document objects and class
+     */
+    public String getObjects()
+    {
+        return this.objects;
+    }
+
+    /**
+     * @return the digest of the document attachments
+     */
+    public String getAttachments()
+    {
+        return this.attachments;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        HashCodeBuilder builder = new HashCodeBuilder();
+        builder.append(this.content);
+        builder.append(this.objects);
+        builder.append(this.attachments);
+
+        return builder.toHashCode();
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if (object == this) {
+            return true;
+        }
+        if (!(object instanceof DocumentDigest)) {
+            return false;
+        }
+
+        DocumentDigest rhs = (DocumentDigest) object;
+
+        EqualsBuilder builder = new EqualsBuilder();
+        builder.append(this.content, rhs.content);
+        builder.append(this.objects, rhs.objects);
+        builder.append(this.attachments, rhs.attachments);
+
+        return builder.isEquals();
+    }
+
+    @Override
+    public String toString()
+    {
+        ToStringBuilder builder = new XWikiToStringBuilder(this);
+        builder.append("content", this.content);
+        builder.append("objects", this.objects);
+        builder.append("attachments", this.attachments);
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.extension.xar.internal.job.diff;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseCollection;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.objects.classes.PropertyClass;
+
+/**
+ * Computes the digests of the parts of a document compared by {@link DocumentUnifiedDiffBuilder}, so that two versions
+ * of a document can be compared without building the differences. Two documents with the same digests have no
+ * differences but the digests are stricter than the differences (they also cover some meta properties which are
+ * ignored in the differences) so different digests only indicate that the differences need to be computed.
+ * 
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = DocumentDigestBuilder.class)
+@Singleton
+public class DocumentDigestBuilder
+{
+    private static final byte SEPARATOR = 0;
+
+    private static final byte NULL = 1;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    /**
+     * @param document the document
+     * @return the digests of the passed document
+     * @throws XWikiException when failing to get the content of an attachment
+     * @throws IOException when failing to read the content of an attachment
+     */
+    public DocumentDigest digest(XWikiDocument document) throws XWikiException, IOException
+    {
+        return new DocumentDigest(getContentDigest(document), getObjectsDigest(document),
+            getAttachmentsDigest(document));
+    }
+
+    private String getContentDigest(XWikiDocument document)
+    {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+
+        update(digest, document.getTitle());
+        update(digest, document.getParentReference());
+        update(digest, document.isHidden());
+        update(digest, document.getDefaultLocale());
+        update(digest, document.getSyntax());
+        update(digest, document.getContent());
+
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private String getObjectsDigest(XWikiDocument document)
+    {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+
+        for (Map.Entry<DocumentReference, List<BaseObject>> entry : document.getXObjects().entrySet()) {
+            for (BaseObject object : entry.getValue()) {
+                // It can be null when objects are deleted and the document is still in the cache storage.
+                if (object != null) {
+                    update(digest, entry.getKey());
+                    update(digest, object.getNumber());
+                    update(digest, object);
+                }
+            }
+        }
+
+        BaseClass xclass = document.getXClass();
+        for (String propertyName : new TreeSet<>(xclass.getPropertyList())) {
+            PropertyClass property = (PropertyClass) xclass.get(propertyName);
+
+            update(digest, propertyName);
+            update(digest, property.getClassType());
+            update(digest, property);
+        }
+
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private String getAttachmentsDigest(XWikiDocument document) throws XWikiException, IOException
+    {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+
+        List<XWikiAttachment> attachments = new ArrayList<>(document.getAttachmentList());
+        attachments.sort(Comparator.comparing(XWikiAttachment::getFilename));
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+        for (XWikiAttachment attachment : attachments) {
+            update(digest, attachment.getFilename());
+            update(digest, attachment.getLongSize());
+
+            // Stream the content instead of loading it in memory
+            try (InputStream content = getContentAttachment(attachment).getContentInputStream(xcontext)) {
+                DigestUtils.updateDigest(digest, content);
+            }
+            digest.update(SEPARATOR);
+        }
+
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private XWikiAttachment getContentAttachment(XWikiAttachment attachment)
+    {
+        if (attachment.getAttachment_content() != null) {
+            return attachment;
+        }
+
+        // Load the content in a copy of the attachment so that it's not kept in memory by the document (which is
+        // generally the one from the document cache)
+        XWikiAttachment contentAttachment = attachment.clone();
+        contentAttachment.setDoc(attachment.getDoc(), false);
+
+        return contentAttachment;
+    }
+
+    private void update(MessageDigest digest, BaseCollection<?> collection)
+    {
+        for (String propertyName : new TreeSet<>(collection.getPropertyList())) {
+            BaseProperty<?> property = (BaseProperty<?>) collection.getField(propertyName);
+
+            update(digest, propertyName);
+            update(digest, property != null ? property.getValue() : null);
+        }
+    }
+
+    private void update(MessageDigest digest, Object value)
+    {
+        if (value instanceof Date) {
+            // The dates loaded from the database are Timestamps, which are not printed like the dates parsed from a
+            // XAR
+            update(digest, String.valueOf(((Date) value).getTime()));
+        } else if (value instanceof Collection) {
+            // The lists loaded from the database are not the same implementations as the ones parsed from a XAR
+            for (Object element : (Collection<?>) value) {
+                update(digest, element);
+            }
+            digest.update(SEPARATOR);
+        } else {
+            if (value != null) {
+                digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            } else {
+                digest.update(NULL);
+            }
+
+            digest.update(SEPARATOR);
+        }
+    }
+}
@@ -49,6 +49,7 @@
 import org.xwiki.extension.xar.internal.handler.UnsupportedNamespaceException;
 import org.xwiki.extension.xar.internal.handler.XarExtensionHandler;
 import org.xwiki.extension.xar.internal.handler.XarHandlerUtils;
+import org.xwiki.extension.xar.internal.job.diff.DocumentDigest;
 import org.xwiki.extension.xar.job.diff.DocumentVersionReference;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.LocalDocumentReference;
@@ -87,6 +88,11 @@ public class XarInstalledExtensionRepository extends AbstractInstalledExtensionR
      */
     private Map<LocalDocumentReference, Collection<XarInstalledExtension>> rootDocuments = new ConcurrentHashMap<>();
 
+    /**
+     * The digests of the documents, as provided by each extension, recorded when they were installed or compared.
+     */
+    private Map<ExtensionId, Map<DocumentReference, DocumentDigest>> digests = new ConcurrentHashMap<>();
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -193,6 +199,8 @@ protected void removeCachedXarExtension(ExtensionId extensionId)
         if (extension != null) {
             super.removeCachedExtension(extension);
         }
+
+        this.digests.remove(extensionId);
     }
 
     private void loadExtensions()
@@ -299,6 +307,36 @@ public boolean isAllowed(DocumentReference documentReference, Right right)
         return true;
     }
 
+    /**
+     * @param extensionId the identifier of the extension providing the document
+     * @param reference the reference of the document
+     * @return the digest of the document as provided by the passed extension or {@code null} if it's not known
+     * @since 12.6RC1
+     */
+    public DocumentDigest getDocumentDigest(ExtensionId extensionId, DocumentReference reference)
+    {
+        Map<DocumentReference, DocumentDigest> extensionDigests = this.digests.get(extensionId);
+
+        return extensionDigests != null ? extensionDigests.get(getDocumentReferenceWithLocale(reference)) : null;
+    }
+
+    /**
+     * @param extensionId the identifier of the extension providing the document
+     * @param reference the reference of the document
+     * @param digest the digest of the document as provided by the passed extension
+     * @since 12.6RC1
+     */
+    public void setDocumentDigest(ExtensionId extensionId, DocumentReference reference, DocumentDigest digest)
+    {
+        this.digests.computeIfAbsent(extensionId, key -> new ConcurrentHashMap<>())
+            .put(getDocumentReferenceWithLocale(reference), digest);
+    }
+
+    private DocumentReference getDocumentReferenceWithLocale(DocumentReference reference)
+    {
+        return reference.getLocale() == null ? new DocumentReference(reference, Locale.ROOT) : reference;
+    }
+
     // InstalledExtensionRepository
 
     @Override
@@ -0,0 +1,225 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.extension.xar.internal.handler.packager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.extension.xar.XarExtensionConfiguration;
+import org.xwiki.filter.FilterException;
+import org.xwiki.filter.input.InputStreamInputSource;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.filter.XWikiDocumentFilterUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link Packager}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class PackagerTest
+{
+    private static final String COMMENT = "comment";
+
+    private static final String INVALID = "invalid";
+
+    /**
+     * The slow page is parsed after the following ones when the XAR is imported with several threads.
+     */
+    private static final String SLOW = "page1";
+
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @InjectMockComponents
+    private Packager packager;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @MockComponent
+    private XarExtensionConfiguration xarConfiguration;
+
+    @MockComponent
+    private XWikiDocumentFilterUtils documentImporter;
+
+    @MockComponent
+    private DocumentMergeImporter importer;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @MockComponent
+    private ExecutionContextManager executionContextManager;
+
+    @MockComponent
+    private Execution execution;
+
+    @XWikiTempDir
+    private File tmpDir;
+
+    private XWikiDocument currentDocument;
+
+    private PackageConfiguration configuration;
+
+    private Map<String, XWikiDocument> documents = new HashMap<>();
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+        XWiki xwiki = mock(XWiki.class);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        this.currentDocument = mock(XWikiDocument.class);
+        when(xwiki.getDocument(any(DocumentReference.class), same(xcontext))).thenReturn(this.currentDocument);
+
+        when(this.componentManagerProvider.get()).thenReturn(this.componentManager);
+
+        // The documents are created here since Mockito stubbing is not thread safe
+        for (String name : new String[] { "page1", "page2", "page3", "page4", "page5", "page6" }) {
+            XWikiDocument document = mock(XWikiDocument.class, name);
+            when(document.getDocumentReferenceWithLocale()).thenReturn(new DocumentReference("wiki", "space", name));
+            this.documents.put(name, document);
+        }
+
+        // The content of each XAR entry is the name of the document
+        when(this.documentImporter.importDocument(any(), any(), any())).then(invocation -> {
+            // Don't close the stream which is the XAR stream when the documents are parsed in turn
+            InputStream stream = invocation.<InputStreamInputSource>getArgument(0).getInputStream();
+            String name = IOUtils.toString(stream, StandardCharsets.UTF_8);
+
+            if (name.equals(INVALID)) {
+                throw new FilterException("Invalid document");
+            } else if (name.equals(SLOW)) {
+                Thread.sleep(100);
+            }
+
+            return this.documents.get(name);
+        });
+
+        this.configuration = new PackageConfiguration();
+        this.configuration.setWiki("wiki");
+    }
+
+    private File createXAR(String... names) throws Exception
+    {
+        File file = new File(this.tmpDir, "test.xar");
+
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file))) {
+            stream.putNextEntry(new ZipEntry("package.xml"));
+            stream.write("<package/>".getBytes(StandardCharsets.UTF_8));
+            stream.closeEntry();
+
+            for (String name : names) {
+                stream.putNextEntry(new ZipEntry("space/" + name + ".xml"));
+                stream.write(name.getBytes(StandardCharsets.UTF_8));
+                stream.closeEntry();
+            }
+        }
+
+        return file;
+    }
+
+    private void assertImported(String... names) throws Exception
+    {
+        ArgumentCaptor<XWikiDocument> captor = ArgumentCaptor.forClass(XWikiDocument.class);
+        verify(this.importer, times(names.length)).importDocument(eq(COMMENT), isNull(), same(this.currentDocument),
+            captor.capture(), same(this.configuration));
+
+        List<XWikiDocument> expected = new ArrayList<>();
+        for (String name : names) {
+            expected.add(this.documents.get(name));
+        }
+        assertEquals(expected, captor.getAllValues());
+    }
+
+    // Tests
+
+    @Test
+    void importXAR() throws Exception
+    {
+        when(this.xarConfiguration.getImportThreads()).thenReturn(1);
+
+        this.packager.importXAR(COMMENT, createXAR("page1", "page2", INVALID, "page3"), this.configuration);
+
+        assertImported("page1", "page2", "page3");
+        assertEquals("Failed to parse XAR entry [space/invalid.xml]", this.logCapture.getMessage(0));
+    }
+
+    @Test
+    void importXARWithSeveralThreads() throws Exception
+    {
+        when(this.xarConfiguration.getImportThreads()).thenReturn(2);
+
+        // More entries than the number of documents parsed in advance
+        this.packager.importXAR(COMMENT,
+            createXAR("page1", "page2", INVALID, "page3", "page4", "page5", "page6"), this.configuration);
+
+        // The documents are saved in the order of the XAR even if the first one is parsed last
+        assertImported("page1", "page2", "page3", "page4", "page5", "page6");
+        assertEquals("Failed to parse XAR entry [space/invalid.xml]", this.logCapture.getMessage(0));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.extension.xar.internal.job;
+
+import java.util.Locale;
+
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.xwiki.extension.ExtensionId;
+import org.xwiki.extension.repository.InstalledExtensionRepository;
+import org.xwiki.extension.test.AbstractExtensionHandlerTest;
+import org.xwiki.extension.test.MockitoRepositoryUtilsExtension;
+import org.xwiki.extension.xar.internal.handler.XarExtensionHandler;
+import org.xwiki.extension.xar.internal.job.diff.DocumentDigest;
+import org.xwiki.extension.xar.internal.job.diff.DocumentDigestBuilder;
+import org.xwiki.extension.xar.internal.repository.XarInstalledExtensionRepository;
+import org.xwiki.extension.xar.job.diff.DiffXarJobStatus;
+import org.xwiki.job.Job;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.refactoring.internal.LinkRefactoring;
+import org.xwiki.refactoring.internal.ModelBridge;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.test.annotation.AfterComponent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DiffXarJob}.
+ * 
+ * @version $Id$
+ */
+@OldcoreTest
+@ExtendWith(MockitoRepositoryUtilsExtension.class)
+public class DiffXarJobTest extends AbstractExtensionHandlerTest
+{
+    private static final ExtensionId EXTENSION_ID = new ExtensionId("xarinstalledextension", "1.0");
+
+    private static final String[] NAMESPACES = new String[] { "wiki:wiki" };
+
+    private static final DocumentReference DOCUMENT_REFERENCE =
+        new DocumentReference("wiki", "space", "page", Locale.ROOT);
+
+    private XarInstalledExtensionRepository xarExtensionRepository;
+
+    private DocumentDigestBuilder digestBuilder;
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @AfterComponent
+    public void afterComponent() throws Exception
+    {
+        this.componentManager.registerMockComponent(WikiDescriptorManager.class);
+    }
+
+    @Override
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        super.setUp();
+
+        this.componentManager.registerMockComponent(ContextualAuthorizationManager.class);
+
+        // Some listeners (e.g. InstalledExtensionDocumentListener) use the old core API.
+        Provider<XWikiContext> xcontextProvider =
+            this.componentManager.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        when(xcontextProvider.get()).thenReturn(this.oldcore.getXWikiContext());
+
+        // avoid dependency issue with refactoring listeners
+        this.componentManager.registerMockComponent(ModelBridge.class);
+        this.componentManager.registerMockComponent(LinkRefactoring.class);
+
+        // The digest of a document is its content, to easily control which documents have the same digest
+        this.digestBuilder = this.componentManager.registerMockComponent(DocumentDigestBuilder.class);
+        when(this.digestBuilder.digest(any())).then(
+            invocation -> new DocumentDigest(invocation.<XWikiDocument>getArgument(0).getContent(), "", ""));
+
+        this.xarExtensionRepository = this.componentManager.getInstance(InstalledExtensionRepository.class,
+            XarExtensionHandler.TYPE);
+
+        XWikiDocument document = new XWikiDocument(DOCUMENT_REFERENCE);
+        document.setContent("modified content");
+        this.oldcore.getSpyXWiki().saveDocument(document, this.oldcore.getXWikiContext());
+    }
+
+    private DiffXarJobStatus diff() throws Throwable
+    {
+        Job job = install(DiffXarJob.JOB_TYPE, EXTENSION_ID, NAMESPACES, LogLevel.WARN);
+
+        return (DiffXarJobStatus) job.getStatus();
+    }
+
+    @Test
+    void diffWithSameDigest() throws Throwable
+    {
+        // The recorded digest of the extension document matches the database document
+        this.xarExtensionRepository.setDocumentDigest(EXTENSION_ID, DOCUMENT_REFERENCE,
+            new DocumentDigest("modified content", "", ""));
+
+        DiffXarJobStatus status = diff();
+
+        // The document is not parsed from the XAR and the differences are not computed
+        assertTrue(status.getDocumentDiffs().isEmpty());
+        verify(this.digestBuilder).digest(any());
+    }
+
+    @Test
+    void diffWithDifferentDigest() throws Throwable
+    {
+        this.xarExtensionRepository.setDocumentDigest(EXTENSION_ID, DOCUMENT_REFERENCE,
+            new DocumentDigest("other content", "", ""));
+
+        DiffXarJobStatus status = diff();
+
+        // The document is parsed from the XAR and the differences are computed
+        assertEquals(1, status.getDocumentDiffs().size());
+        // The digest of the database document and the digest of the XAR document
+        verify(this.digestBuilder, times(2)).digest(any());
+
+        // The digest of the XAR document is recorded for the next comparisons
+        assertEquals(new DocumentDigest("content", "", ""),
+            this.xarExtensionRepository.getDocumentDigest(EXTENSION_ID, DOCUMENT_REFERENCE));
+    }
+
+    @Test
+    void diffWithoutDigest() throws Throwable
+    {
+        DiffXarJobStatus status = diff();
+
+        assertEquals(1, status.getDocumentDiffs().size());
+        // Only the digest of the XAR document is computed
+        verify(this.digestBuilder).digest(any());
+        assertEquals(new DocumentDigest("content", "", ""),
+            this.xarExtensionRepository.getDocumentDigest(EXTENSION_ID, DOCUMENT_REFERENCE));
+    }
+}
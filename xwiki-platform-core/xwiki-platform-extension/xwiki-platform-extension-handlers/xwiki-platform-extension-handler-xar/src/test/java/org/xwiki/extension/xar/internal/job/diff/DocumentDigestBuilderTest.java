@@ -0,0 +1,246 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.extension.xar.internal.job.diff;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedList;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.DateProperty;
+import com.xpn.xwiki.objects.StringListProperty;
+import com.xpn.xwiki.store.XWikiAttachmentStoreInterface;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DocumentDigestBuilder}.
+ * 
+ * @version $Id$
+ */
+@OldcoreTest
+public class DocumentDigestBuilderTest
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("wiki", "space", "page");
+
+    private static final DocumentReference CLASS_REFERENCE = new DocumentReference("wiki", "space", "class");
+
+    private static final byte[] ATTACHMENT_CONTENT = "attachment content".getBytes(StandardCharsets.UTF_8);
+
+    private static final long DATE = 1297952371000L;
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @InjectMockComponents
+    private DocumentDigestBuilder builder;
+
+    private XWikiAttachmentStoreInterface attachmentStore;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        this.attachmentStore = mock(XWikiAttachmentStoreInterface.class);
+        when(this.attachmentStore.getHint()).thenReturn("test");
+        doReturn(this.attachmentStore).when(this.oldcore.getSpyXWiki()).getDefaultAttachmentContentStore();
+        doAnswer(invocation -> {
+            XWikiAttachment attachment = invocation.getArgument(0);
+            attachment.setContent(new ByteArrayInputStream(ATTACHMENT_CONTENT));
+
+            return null;
+        }).when(this.attachmentStore).loadAttachmentContent(any(), any(), anyBoolean());
+    }
+
+    /**
+     * @return a document as it is parsed from a XAR
+     */
+    private XWikiDocument createXARDocument() throws Exception
+    {
+        XWikiDocument document = createDocument();
+
+        BaseObject object = document.newXObject(CLASS_REFERENCE, this.oldcore.getXWikiContext());
+        object.setDateValue("date", new Date(DATE));
+        object.setStringListValue("list", new ArrayList<>(Arrays.asList("one", "two")));
+
+        XWikiAttachment attachment = new XWikiAttachment(document, "file.txt");
+        attachment.setContent(new ByteArrayInputStream(ATTACHMENT_CONTENT));
+        document.setAttachment(attachment);
+
+        return document;
+    }
+
+    /**
+     * @return the same document as it is loaded from the database, with the attachment content not loaded yet
+     */
+    private XWikiDocument createStoreDocument() throws Exception
+    {
+        XWikiDocument document = createDocument();
+
+        BaseObject object = document.newXObject(CLASS_REFERENCE, this.oldcore.getXWikiContext());
+        DateProperty date = new DateProperty();
+        date.setName("date");
+        // The store is not using the setter which would convert the Timestamp
+        FieldUtils.writeField(date, "value", new Timestamp(DATE), true);
+        object.safeput("date", date);
+        StringListProperty list = new StringListProperty();
+        list.setName("list");
+        FieldUtils.writeField(list, "list", Collections.unmodifiableList(new LinkedList<>(Arrays.asList("one", "two"))),
+            true);
+        object.safeput("list", list);
+
+        XWikiAttachment attachment = new XWikiAttachment(document, "file.txt");
+        attachment.setLongSize(ATTACHMENT_CONTENT.length);
+        document.setAttachment(attachment);
+
+        document.setNew(false);
+        doReturn(document).when(this.oldcore.getSpyXWiki()).getDocument(DOCUMENT_REFERENCE,
+            this.oldcore.getXWikiContext());
+
+        return document;
+    }
+
+    private XWikiDocument createDocument()
+    {
+        XWikiDocument document = new XWikiDocument(DOCUMENT_REFERENCE);
+        document.setSyntax(Syntax.XWIKI_2_1);
+        document.setTitle("title");
+        document.setContent("content");
+        document.getXClass().addTextField("property", "Property", 30);
+
+        return document;
+    }
+
+    // Tests
+
+    @Test
+    void digestXARAndStoreDocuments() throws Exception
+    {
+        XWikiDocument storeDocument = createStoreDocument();
+
+        assertEquals(this.builder.digest(createXARDocument()), this.builder.digest(storeDocument));
+    }
+
+    @Test
+    void digestDoesNotKeepAttachmentContent() throws Exception
+    {
+        XWikiDocument storeDocument = createStoreDocument();
+
+        this.builder.digest(storeDocument);
+
+        verify(this.attachmentStore).loadAttachmentContent(any(XWikiAttachment.class),
+            any(XWikiContext.class), anyBoolean());
+        assertNull(storeDocument.getAttachment("file.txt").getAttachment_content());
+    }
+
+    @Test
+    void digestContent() throws Exception
+    {
+        DocumentDigest digest = this.builder.digest(createXARDocument());
+
+        XWikiDocument document = createXARDocument();
+        document.setContent("modified content");
+        DocumentDigest modifiedDigest = this.builder.digest(document);
+
+        assertNotEquals(digest.getContent(), modifiedDigest.getContent());
+        assertEquals(digest.getObjects(), modifiedDigest.getObjects());
+        assertEquals(digest.getAttachments(), modifiedDigest.getAttachments());
+    }
+
+    @Test
+    void digestObjects() throws Exception
+    {
+        DocumentDigest digest = this.builder.digest(createXARDocument());
+
+        XWikiDocument document = createXARDocument();
+        document.getXObject(CLASS_REFERENCE).setStringListValue("list", Arrays.asList("one", "three"));
+        DocumentDigest modifiedDigest = this.builder.digest(document);
+
+        assertEquals(digest.getContent(), modifiedDigest.getContent());
+        assertNotEquals(digest.getObjects(), modifiedDigest.getObjects());
+        assertEquals(digest.getAttachments(), modifiedDigest.getAttachments());
+
+        document = createXARDocument();
+        document.getXObject(CLASS_REFERENCE).setDateValue("date", new Date(DATE + 1000));
+
+        assertNotEquals(digest.getObjects(), this.builder.digest(document).getObjects());
+    }
+
+    @Test
+    void digestClass() throws Exception
+    {
+        DocumentDigest digest = this.builder.digest(createXARDocument());
+
+        XWikiDocument document = createXARDocument();
+        document.getXClass().addTextField("otherproperty", "Other property", 30);
+        DocumentDigest modifiedDigest = this.builder.digest(document);
+
+        assertEquals(digest.getContent(), modifiedDigest.getContent());
+        assertNotEquals(digest.getObjects(), modifiedDigest.getObjects());
+        assertEquals(digest.getAttachments(), modifiedDigest.getAttachments());
+    }
+
+    @Test
+    void digestAttachments() throws Exception
+    {
+        DocumentDigest digest = this.builder.digest(createXARDocument());
+
+        // Same size but different content
+        XWikiDocument document = createXARDocument();
+        document.getAttachment("file.txt")
+            .setContent(new ByteArrayInputStream("ATTACHMENT CONTENT".getBytes(StandardCharsets.UTF_8)));
+        DocumentDigest modifiedDigest = this.builder.digest(document);
+
+        assertEquals(digest.getContent(), modifiedDigest.getContent());
+        assertEquals(digest.getObjects(), modifiedDigest.getObjects());
+        assertNotEquals(digest.getAttachments(), modifiedDigest.getAttachments());
+
+        document = createXARDocument();
+        document.removeAttachment(document.getAttachment("file.txt"));
+
+        assertNotEquals(digest.getAttachments(), this.builder.digest(document).getAttachments());
+    }
+}
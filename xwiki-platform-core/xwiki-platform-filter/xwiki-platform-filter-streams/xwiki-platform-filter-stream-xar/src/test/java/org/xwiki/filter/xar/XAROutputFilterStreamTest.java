@@ -0,0 +1,135 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.filter.xar;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.filter.FilterEventParameters;
+import org.xwiki.filter.output.BeanOutputFilterStreamFactory;
+import org.xwiki.filter.output.OutputFilterStream;
+import org.xwiki.filter.output.OutputFilterStreamFactory;
+import org.xwiki.filter.output.StringWriterOutputTarget;
+import org.xwiki.filter.type.FilterStreamType;
+import org.xwiki.filter.xar.internal.XARFilter;
+import org.xwiki.filter.xar.output.XAROutputProperties;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validate {@link org.xwiki.filter.xar.internal.output.XAROutputFilterStream}.
+ * 
+ * @version $Id$
+ */
+@AllComponents
+public class XAROutputFilterStreamTest
+{
+    private static final Pattern CONTENT_PATTERN = Pattern.compile("<content>(.*)</content>", Pattern.DOTALL);
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    /**
+     * A stream returning less bytes than requested, like some network or decompressing streams.
+     */
+    private static class ShortReadInputStream extends ByteArrayInputStream
+    {
+        ShortReadInputStream(byte[] bytes)
+        {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len)
+        {
+            return super.read(b, off, Math.min(len, 100));
+        }
+    }
+
+    private String writeAttachment(InputStream content, long size) throws Exception
+    {
+        StringWriterOutputTarget target = new StringWriterOutputTarget();
+
+        XAROutputProperties properties = new XAROutputProperties();
+        properties.setTarget(target);
+        properties.setForceDocument(true);
+
+        BeanOutputFilterStreamFactory<XAROutputProperties> factory =
+            this.mocker.getInstance(OutputFilterStreamFactory.class, FilterStreamType.XWIKI_XAR_CURRENT.serialize());
+        OutputFilterStream outputFilterStream = factory.createOutputFilterStream(properties);
+
+        XARFilter filter = (XARFilter) outputFilterStream.getFilter();
+        filter.beginWikiSpace("space", FilterEventParameters.EMPTY);
+        filter.beginWikiDocument("page", FilterEventParameters.EMPTY);
+        filter.beginWikiDocumentLocale(Locale.ROOT, FilterEventParameters.EMPTY);
+        filter.onWikiAttachment("file.bin", content, size, FilterEventParameters.EMPTY);
+        filter.endWikiDocumentLocale(Locale.ROOT, FilterEventParameters.EMPTY);
+        filter.endWikiDocument("page", FilterEventParameters.EMPTY);
+        filter.endWikiSpace("space", FilterEventParameters.EMPTY);
+
+        outputFilterStream.close();
+
+        Matcher matcher = CONTENT_PATTERN.matcher(target.getBuffer());
+        assertTrue(matcher.find());
+
+        return matcher.group(1).trim();
+    }
+
+    private byte[] createContent(int size)
+    {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            bytes[i] = (byte) i;
+        }
+
+        return bytes;
+    }
+
+    @Test
+    public void attachmentContentWithShortReads() throws Exception
+    {
+        // Bigger than several chunks and not a multiple of the chunk size
+        byte[] bytes = createContent(10000);
+
+        String content = writeAttachment(new ShortReadInputStream(bytes), bytes.length);
+
+        assertEquals(Base64.encodeBase64String(bytes), content);
+        assertEquals(content, writeAttachment(new ByteArrayInputStream(bytes), bytes.length));
+    }
+
+    @Test
+    public void attachmentContentWithChunkSize() throws Exception
+    {
+        // Exactly one chunk
+        byte[] bytes = createContent(4095);
+
+        assertEquals(Base64.encodeBase64String(bytes),
+            writeAttachment(new ShortReadInputStream(bytes), bytes.length));
+    }
+}
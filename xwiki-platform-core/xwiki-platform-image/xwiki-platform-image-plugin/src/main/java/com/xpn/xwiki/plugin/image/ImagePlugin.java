@@ -21,6 +21,8 @@
 
 import java.awt.Image;
 import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
@@ -29,16 +31,13 @@
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xwiki.cache.Cache;
-import org.xwiki.cache.CacheException;
-import org.xwiki.cache.CacheManager;
-import org.xwiki.cache.config.CacheConfiguration;
-import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.environment.Environment;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.api.Api;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.plugin.XWikiDefaultPlugin;
 import com.xpn.xwiki.plugin.XWikiPluginInterface;
 import com.xpn.xwiki.web.Utils;
@@ -63,14 +62,20 @@ public class ImagePlugin extends XWikiDefaultPlugin
     private static final String PLUGIN_NAME = "image";
 
     /**
-     * Cache for already served images.
+     * The name of the directory where the transformed images are stored, relative to the permanent directory.
      */
-    private Cache<XWikiAttachment> imageCache;
+    private static final String STORE_DIRECTORY = "cache/image";
 
     /**
-     * The size of the cache. This parameter can be configured using the key {@code xwiki.plugin.image.cache.capacity}.
+     * Disk store for already served images.
      */
-    private int capacity = 50;
+    private ImageThumbnailStore thumbnailStore;
+
+    /**
+     * The maximum total size of the stored images, in megabytes. This parameter can be configured using the key
+     * {@code xwiki.plugin.image.cache.diskCapacity}.
+     */
+    private long diskCapacity = 100;
 
     /**
      * Default JPEG image quality.
@@ -114,7 +119,7 @@ public void init(XWikiContext context)
     {
         super.init(context);
 
-        initCache(context);
+        initStore(context);
 
         String imageProcessorHint = context.getWiki().Param("xwiki.plugin.image.processorHint", "thumbnailator");
         this.imageProcessor = Utils.getComponent(ImageProcessor.class, imageProcessorHint);
@@ -131,37 +136,30 @@ public void init(XWikiContext context)
     }
 
     /**
-     * Tries to initializes the image cache. If the initialization fails the image cache remains {@code null}.
+     * Tries to initializes the image store. If the initialization fails the image store remains {@code null}.
      *
      * @param context the XWiki context
      */
-    private void initCache(XWikiContext context)
+    private void initStore(XWikiContext context)
     {
-        if (this.imageCache == null) {
-            CacheConfiguration configuration = new CacheConfiguration();
-
-            configuration.setConfigurationId("xwiki.plugin.image");
-
-            // Set cache constraints.
-            LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
-            configuration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
-
-            String capacityParam = context.getWiki().Param("xwiki.plugin.image.cache.capacity");
+        if (this.thumbnailStore == null) {
+            String capacityParam = context.getWiki().Param("xwiki.plugin.image.cache.diskCapacity");
             if (!StringUtils.isBlank(capacityParam) && StringUtils.isNumeric(capacityParam.trim())) {
                 try {
-                    this.capacity = Integer.parseInt(capacityParam.trim());
+                    this.diskCapacity = Long.parseLong(capacityParam.trim());
                 } catch (NumberFormatException e) {
                     LOG.warn(String.format(
-                        "Failed to parse xwiki.plugin.image.cache.capacity configuration parameter. "
-                            + "Using %s as the cache capacity.", this.capacity), e);
+                        "Failed to parse xwiki.plugin.image.cache.diskCapacity configuration parameter. "
+                            + "Using %s as the cache capacity.", this.diskCapacity), e);
                 }
             }
-            lru.setMaxEntries(this.capacity);
 
             try {
-                this.imageCache = Utils.getComponent(CacheManager.class).createNewLocalCache(configuration);
-            } catch (CacheException e) {
-                LOG.error("Error initializing the image cache.", e);
+                File directory =
+                    new File(Utils.getComponent(Environment.class).getPermanentDirectory(), STORE_DIRECTORY);
+                this.thumbnailStore = new ImageThumbnailStore(directory, this.diskCapacity * 1024 * 1024);
+            } catch (IOException e) {
+                LOG.error("Error initializing the image store.", e);
             }
         }
     }
@@ -169,10 +167,9 @@ private void initCache(XWikiContext context)
     @Override
     public void flushCache()
     {
-        if (this.imageCache != null) {
-            this.imageCache.dispose();
+        if (this.thumbnailStore != null) {
+            this.thumbnailStore.clear();
         }
-        this.imageCache = null;
     }
 
     /**
@@ -245,13 +242,13 @@ public XWikiAttachment downloadAttachment(XWikiAttachment attachment, XWikiConte
     private XWikiAttachment downloadImage(XWikiAttachment image, int width, int height, float quality,
         XWikiContext context) throws Exception
     {
-        initCache(context);
+        initStore(context);
 
         boolean keepAspectRatio = Boolean.valueOf(context.getRequest().getParameter("keepAspectRatio"));
 
-        XWikiAttachment thumbnail = (this.imageCache == null)
+        XWikiAttachment thumbnail = (this.thumbnailStore == null)
             ? shrinkImage(image, width, height, keepAspectRatio, quality, context)
-            : downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
+            : downloadImageFromStore(image, width, height, keepAspectRatio, quality, context);
 
         // If the image has been transformed, update the file name extension to match the image format.
         String fileName = thumbnail.getFilename();
@@ -264,7 +261,8 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
     }
 
     /**
-     * Downloads the given image from cache.
+     * Downloads the given image from the disk store. The transformed image is streamed from the disk and never loaded
+     * in memory.
      *
      * @param image the image to be downloaded
      * @param width the desired image width; this value is taken into account only if it is greater than zero and less
@@ -277,17 +275,30 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
      * @return the transformed image
      * @throws Exception if transforming the image fails
      */
-    private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width, int height,
+    private XWikiAttachment downloadImageFromStore(XWikiAttachment image, int width, int height,
         boolean keepAspectRatio, float quality, XWikiContext context) throws Exception
     {
-        String key = String.format("%s;%s;%s;%s;%s;%s;%s", image.getId(), image.getVersion(), image.getDate().getTime(),
-            width, height, keepAspectRatio, quality);
+        String key = String.format("%s;%s;%s;%s;%s;%s;%s;%s", image.getReference(), image.getVersion(),
+            image.getDate().getTime(), width, height, keepAspectRatio, quality, this.defaultQuality);
+
+        ImageThumbnailStore.ThumbnailWriter writer =
+            output -> writeShrunkImage(image, width, height, keepAspectRatio, quality, output, context);
 
-        XWikiAttachment thumbnail = this.imageCache.get(key);
-        if (thumbnail == null) {
-            thumbnail = shrinkImage(image, width, height, keepAspectRatio, quality, context);
-            this.imageCache.set(key, thumbnail);
+        // The stream is only used to get the size, the content opens the image again when it's actually read
+        long size;
+        try (FileInputStream stream = this.thumbnailStore.get(key, writer)) {
+            size = stream.getChannel().size();
         }
+
+        // An empty file means the image does not need to be transformed
+        if (size == 0) {
+            return image;
+        }
+
+        XWikiAttachment thumbnail = image.clone();
+        thumbnail.setAttachment_content(new ImageThumbnailContent(thumbnail, this.thumbnailStore, key, writer, size));
+        thumbnail.setLongSize(size);
+
         return thumbnail;
     }
 
@@ -310,6 +321,43 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
      */
     private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
         boolean keepAspectRatio, float requestedQuality, XWikiContext context) throws Exception
+    {
+        // Create an image attachment for the shrunk image.
+        XWikiAttachment thumbnail = attachment.clone();
+        XWikiAttachmentContent thumbnailContent = new XWikiAttachmentContent(thumbnail);
+        thumbnail.setAttachment_content(thumbnailContent);
+
+        OutputStream acos = thumbnailContent.getContentOutputStream();
+        boolean shrunk;
+        try {
+            shrunk = writeShrunkImage(attachment, requestedWidth, requestedHeight, keepAspectRatio, requestedQuality,
+                acos, context);
+        } finally {
+            IOUtils.closeQuietly(acos);
+        }
+
+        return shrunk ? thumbnail : attachment;
+    }
+
+    /**
+     * Writes the given image after scaling its width and height and reducing its compression quality.
+     *
+     * @param attachment the image to be shrunk
+     * @param requestedWidth the desired image width; this value is taken into account only if it is greater than zero
+     *            and less than the current image width
+     * @param requestedHeight the desired image height; this value is taken into account only if it is greater than zero
+     *            and less than the current image height
+     * @param keepAspectRatio {@code true} to preserve the image aspect ratio even when both requested dimensions are
+     *            properly specified (in this case the image will be resized to best fit the rectangle with the
+     *            requested width and height), {@code false} otherwise
+     * @param requestedQuality the desired compression quality
+     * @param output the stream where to write the shrunk image
+     * @param context the XWiki context
+     * @return {@code false} if the image does not need to be shrunk, in which case nothing is written
+     * @throws Exception if shrinking the image fails
+     */
+    private boolean writeShrunkImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
+        boolean keepAspectRatio, float requestedQuality, OutputStream output, XWikiContext context) throws Exception
     {
         Image image = this.imageProcessor.readImage(attachment.getContentInputStream(context));
 
@@ -323,7 +371,7 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         if (quality < 0) {
             // If no scaling is needed and the quality parameter is not specified, return the original image.
             if (dimensions[0] == currentWidth && dimensions[1] == currentHeight) {
-                return attachment;
+                return false;
             }
             quality = this.defaultQuality;
         }
@@ -331,19 +379,9 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         // Scale the image to the new dimensions.
         RenderedImage shrunkImage = this.imageProcessor.scaleImage(image, dimensions[0], dimensions[1]);
 
-        // Create an image attachment for the shrunk image.
-        XWikiAttachment thumbnail = (XWikiAttachment) attachment.clone();
-        thumbnail.loadAttachmentContent(context);
-
-        OutputStream acos = thumbnail.getAttachment_content().getContentOutputStream();
-        this.imageProcessor.writeImage(shrunkImage,
-            attachment.getMimeType(context),
-            quality,
-            acos);
+        this.imageProcessor.writeImage(shrunkImage, attachment.getMimeType(context), quality, output);
 
-        IOUtils.closeQuietly(acos);
-
-        return thumbnail;
+        return true;
     }
 
     /**
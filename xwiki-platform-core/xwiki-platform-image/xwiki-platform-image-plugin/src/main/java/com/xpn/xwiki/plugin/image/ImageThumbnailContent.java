@@ -0,0 +1,105 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.AutoCloseInputStream;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+
+/**
+ * The content of a derived image stored by {@link ImageThumbnailStore}, streamed from the disk when downloaded.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+class ImageThumbnailContent extends XWikiAttachmentContent
+{
+    private final ImageThumbnailStore store;
+
+    private final String key;
+
+    private final ImageThumbnailStore.ThumbnailWriter writer;
+
+    private final long size;
+
+    /**
+     * @param attachment the attachment associated with this content
+     * @param store the store containing the derived image
+     * @param key the identifier of the derived image
+     * @param writer the writer used to store the image again if it's evicted before being read
+     * @param size the size of the derived image
+     */
+    ImageThumbnailContent(XWikiAttachment attachment, ImageThumbnailStore store, String key,
+        ImageThumbnailStore.ThumbnailWriter writer, long size)
+    {
+        super(attachment);
+
+        this.store = store;
+        this.key = key;
+        this.writer = writer;
+        this.size = size;
+    }
+
+    @Override
+    public ImageThumbnailContent clone()
+    {
+        return new ImageThumbnailContent(getAttachment(), this.store, this.key, this.writer, this.size);
+    }
+
+    @Override
+    @Deprecated
+    public byte[] getContent()
+    {
+        try (InputStream contentStream = getContentInputStream()) {
+            return IOUtils.toByteArray(contentStream);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read the content", e);
+        }
+    }
+
+    @Override
+    public InputStream getContentInputStream()
+    {
+        // The file is opened only when the content is actually read (e.g. not when the browser cache is still valid)
+        try {
+            return new AutoCloseInputStream(this.store.get(this.key, this.writer));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to get InputStream", e);
+        }
+    }
+
+    @Override
+    public long getLongSize()
+    {
+        return this.size;
+    }
+
+    @Override
+    public boolean isContentDirty()
+    {
+        // The derived image is never saved
+        return false;
+    }
+}
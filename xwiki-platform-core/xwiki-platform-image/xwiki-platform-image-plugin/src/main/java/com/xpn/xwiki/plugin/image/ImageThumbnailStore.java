@@ -0,0 +1,227 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the images derived from attachments (e.g. thumbnails) on the disk, so that they survive restarts and don't
+ * use the heap. The least recently used images are removed when the total size of the store exceeds the configured
+ * capacity.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+class ImageThumbnailStore
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageThumbnailStore.class);
+
+    /**
+     * The extension of the files being written.
+     */
+    private static final String TMP_EXTENSION = ".tmp";
+
+    /**
+     * The percentage of the capacity to go back to when evicting images.
+     */
+    private static final double EVICTION_RATIO = 0.9;
+
+    private final File directory;
+
+    private final long capacity;
+
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Allow to write the content of a derived image.
+     */
+    @FunctionalInterface
+    interface ThumbnailWriter
+    {
+        /**
+         * @param stream the stream to write the image to, left empty when the original image should be used
+         * @throws Exception when failing to write the image
+         */
+        void write(OutputStream stream) throws Exception;
+    }
+
+    /**
+     * @param directory the directory where to store the images
+     * @param capacity the maximum total size of the stored images, in bytes
+     * @throws IOException when failing to create the directory
+     */
+    ImageThumbnailStore(File directory, long capacity) throws IOException
+    {
+        this.directory = directory;
+        this.capacity = capacity;
+
+        FileUtils.forceMkdir(directory);
+
+        this.size.set(computeSize());
+    }
+
+    /**
+     * @param key the identifier of the derived image
+     * @return a stream opened on the derived image, {@code null} if it's not stored
+     */
+    FileInputStream get(String key)
+    {
+        File file = getFile(key);
+
+        // Open the file right away instead of checking if it exists: an opened image can still be read after it's
+        // evicted by another thread
+        FileInputStream stream;
+        try {
+            stream = new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+
+        // Remember the image was used recently
+        file.setLastModified(System.currentTimeMillis());
+
+        return stream;
+    }
+
+    /**
+     * @param key the identifier of the derived image
+     * @param writer the writer of the image, called only when the image is not stored
+     * @return a stream opened on the derived image
+     * @throws Exception when failing to write the image
+     */
+    FileInputStream get(String key, ThumbnailWriter writer) throws Exception
+    {
+        FileInputStream stream = get(key);
+
+        return stream != null ? stream : store(key, writer);
+    }
+
+    /**
+     * @param key the identifier of the derived image
+     * @param writer the writer of the image
+     * @return a stream opened on the derived image
+     * @throws Exception when failing to write the image
+     */
+    FileInputStream store(String key, ThumbnailWriter writer) throws Exception
+    {
+        File file = getFile(key);
+
+        // Write in a temporary file first to never expose a partial image
+        File tmpFile = File.createTempFile(file.getName(), TMP_EXTENSION, this.directory);
+        try {
+            try (OutputStream stream = new FileOutputStream(tmpFile)) {
+                writer.write(stream);
+            }
+
+            long previousLength = file.length();
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+            // Open the image before evicting, it could be the least recently used one
+            FileInputStream imageStream = new FileInputStream(file);
+
+            if (this.size.addAndGet(file.length() - previousLength) > this.capacity) {
+                evict();
+            }
+
+            return imageStream;
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    /**
+     * Remove all the stored images.
+     */
+    synchronized void clear()
+    {
+        try {
+            FileUtils.cleanDirectory(this.directory);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to clean the image thumbnails directory: {}", e.getMessage());
+        }
+
+        this.size.set(computeSize());
+    }
+
+    /**
+     * @param key the identifier of the derived image
+     * @return the file containing the derived image, which might not exist
+     */
+    File getFile(String key)
+    {
+        return new File(this.directory, DigestUtils.sha256Hex(key));
+    }
+
+    private File[] listFiles()
+    {
+        File[] files = this.directory.listFiles(file -> !file.getName().endsWith(TMP_EXTENSION));
+
+        return files != null ? files : new File[0];
+    }
+
+    private long computeSize()
+    {
+        long total = 0;
+        for (File file : listFiles()) {
+            total += file.length();
+        }
+
+        return total;
+    }
+
+    private synchronized void evict()
+    {
+        File[] files = listFiles();
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+
+        // Remove the least recently used images first
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+
+        long target = (long) (this.capacity * EVICTION_RATIO);
+        for (int i = 0; i < files.length && total > target; ++i) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                total -= length;
+            }
+        }
+
+        this.size.set(total);
+    }
+}
@@ -29,22 +29,28 @@
 import org.apache.commons.codec.binary.Base64;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.apache.commons.io.IOUtils;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
-import org.xwiki.cache.Cache;
-import org.xwiki.cache.CacheManager;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiAttachment;
-import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 import com.xpn.xwiki.web.XWikiServletRequest;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -105,11 +111,10 @@
     public void configure() throws Exception
     {
         XWiki xwiki = this.oldCore.getSpyXWiki();
-        doReturn("10").when(xwiki).Param("xwiki.plugin.image.cache.capacity");
         doReturn("test").when(xwiki).Param(ArgumentMatchers.eq("xwiki.plugin.image.processorHint"),
             ArgumentMatchers.anyString());
 
-        this.oldCore.getMocker().registerMockComponent(CacheManager.class);
+        this.oldCore.registerMockEnvironment();
 
         this.imageProcessor = this.oldCore.getMocker().registerMockComponent(ImageProcessor.class, "test");
         when(this.imageProcessor.isMimeTypeSupported("image/png")).thenReturn(true);
@@ -129,48 +134,124 @@ public void testDownloadAttachmentWithUnsupportedFileType()
     @Test
     public void testCacheOfScaledAttachment() throws Exception
     {
-        Date date = new Date(0);
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment = mockAttachment(xcontext);
+        XWikiAttachment thumbnail = mock(XWikiAttachment.class);
+        when(attachment.clone()).thenReturn(thumbnail);
+
+        setRequest(xcontext, "30", "30");
+
+        Image image = mockImage(400, 300);
+        RenderedImage renderedImage = mock(RenderedImage.class);
+        when(this.imageProcessor.scaleImage(image, 30, 30)).thenReturn(renderedImage);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(IMAGE_CONTENT);
+            return null;
+        }).when(this.imageProcessor).writeImage(same(renderedImage), eq("image/png"), eq(.5F),
+            any(OutputStream.class));
+
+        assertSame(thumbnail, this.plugin.downloadAttachment(attachment, xcontext));
+
+        // Load again, this time from the store.
+        assertSame(thumbnail, this.plugin.downloadAttachment(attachment, xcontext));
+
+        verify(this.imageProcessor, times(1)).writeImage(same(renderedImage), eq("image/png"), eq(.5F),
+            any(OutputStream.class));
+        verify(thumbnail, times(2)).setAttachment_content(any(ImageThumbnailContent.class));
+        verify(thumbnail, times(2)).setLongSize(IMAGE_CONTENT.length);
+
+        // Flush the store, the image is transformed again.
+        this.plugin.flushCache();
+
+        assertSame(thumbnail, this.plugin.downloadAttachment(attachment, xcontext));
+
+        verify(this.imageProcessor, times(2)).writeImage(same(renderedImage), eq("image/png"), eq(.5F),
+            any(OutputStream.class));
+    }
 
+    @Test
+    public void testScaledAttachmentEvictedBeforeDownload() throws Exception
+    {
         XWikiContext xcontext = this.oldCore.getXWikiContext();
 
+        XWikiAttachment attachment = mockAttachment(xcontext);
+        XWikiAttachment thumbnail = mock(XWikiAttachment.class);
+        when(attachment.clone()).thenReturn(thumbnail);
+
+        setRequest(xcontext, "30", "30");
+
+        Image image = mockImage(400, 300);
+        RenderedImage renderedImage = mock(RenderedImage.class);
+        when(this.imageProcessor.scaleImage(image, 30, 30)).thenReturn(renderedImage);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(IMAGE_CONTENT);
+            return null;
+        }).when(this.imageProcessor).writeImage(same(renderedImage), eq("image/png"), eq(.5F),
+            any(OutputStream.class));
+
+        // Store the image and then get it from the store
+        this.plugin.downloadAttachment(attachment, xcontext);
+        assertSame(thumbnail, this.plugin.downloadAttachment(attachment, xcontext));
+
+        ArgumentCaptor<ImageThumbnailContent> contentCaptor = ArgumentCaptor.forClass(ImageThumbnailContent.class);
+        verify(thumbnail, times(2)).setAttachment_content(contentCaptor.capture());
+
+        // Remove the image from the store before it's downloaded
+        this.plugin.flushCache();
+
+        for (ImageThumbnailContent content : contentCaptor.getAllValues()) {
+            try (InputStream stream = content.getContentInputStream()) {
+                assertArrayEquals(IMAGE_CONTENT, IOUtils.toByteArray(stream));
+            }
+        }
+    }
+
+    @Test
+    public void testCacheOfUnchangedAttachment() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment = mockAttachment(xcontext);
+
+        setRequest(xcontext, "500", null);
+
+        Image image = mockImage(400, 300);
+
+        assertSame(attachment, this.plugin.downloadAttachment(attachment, xcontext));
+
+        // Load again, this time from the store.
+        assertSame(attachment, this.plugin.downloadAttachment(attachment, xcontext));
+
+        verify(this.imageProcessor, times(1)).readImage(any(InputStream.class));
+        verify(this.imageProcessor, never()).scaleImage(same(image), anyInt(), anyInt());
+    }
+
+    private XWikiAttachment mockAttachment(XWikiContext xcontext) throws Exception
+    {
         XWikiAttachment attachment = mock(XWikiAttachment.class);
         when(attachment.getMimeType(xcontext)).thenReturn("image/png");
-        InputStream attachmentInputStream = new ByteArrayInputStream(IMAGE_CONTENT);
-        when(attachment.getContentInputStream(xcontext)).thenReturn(attachmentInputStream);
-        when(attachment.clone()).thenReturn(attachment);
-        when(attachment.getDate()).thenReturn(date);
-
-        XWikiAttachmentContent attachmentContent = mock(XWikiAttachmentContent.class);
-        when(attachment.getAttachment_content()).thenReturn(attachmentContent);
-        when(attachmentContent.getContentInputStream()).thenReturn(attachmentInputStream);
-        OutputStream attachmentOutputStream = mock(OutputStream.class);
-        when(attachmentContent.getContentOutputStream()).thenReturn(attachmentOutputStream);
+        when(attachment.getContentInputStream(xcontext)).thenReturn(new ByteArrayInputStream(IMAGE_CONTENT));
+        when(attachment.getDate()).thenReturn(new Date(0));
 
-        CacheManager cacheManager = this.oldCore.getMocker().getInstance(CacheManager.class);
-        Cache<Object> imageCache = mock(Cache.class);
-        when(cacheManager.createNewLocalCache(ArgumentMatchers.any())).thenReturn(imageCache);
+        return attachment;
+    }
 
+    private void setRequest(XWikiContext xcontext, String width, String height)
+    {
         XWikiServletRequest request = mock(XWikiServletRequest.class);
-        when(request.getParameter("width")).thenReturn("30");
-        when(request.getParameter("height")).thenReturn("30");
+        when(request.getParameter("width")).thenReturn(width);
+        when(request.getParameter("height")).thenReturn(height);
         xcontext.setRequest(request);
+    }
 
+    private Image mockImage(int width, int height) throws Exception
+    {
         Image image = mock(Image.class);
-        when(image.getWidth(null)).thenReturn(400);
-        when(image.getHeight(null)).thenReturn(300);
-        when(imageProcessor.readImage(attachmentInputStream)).thenReturn(image);
-        RenderedImage renderedImage = mock(RenderedImage.class);
-        when(imageProcessor.scaleImage(image, 30, 30)).thenReturn(renderedImage);
-
-        XWikiAttachment scaled = plugin.downloadAttachment(attachment, xcontext);
-
-        String cacheKey = "0;null;0;30;30;false;-1.0";
-        when(imageCache.get(cacheKey)).thenReturn(scaled);
-
-        // Load again, this time from cache.
-        assertSame(scaled, plugin.downloadAttachment(attachment, xcontext));
+        when(image.getWidth(null)).thenReturn(width);
+        when(image.getHeight(null)).thenReturn(height);
+        when(this.imageProcessor.readImage(any(InputStream.class))).thenReturn(image);
 
-        verify(imageProcessor, times(1)).writeImage(renderedImage, "image/png", .5F, attachmentOutputStream);
-        verify(imageCache, times(1)).set(cacheKey, attachment);
+        return image;
     }
 }
@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.io.File;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.XWikiTempDirExtension;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ImageThumbnailStore}.
+ *
+ * @version $Id$
+ */
+@ExtendWith(XWikiTempDirExtension.class)
+public class ImageThumbnailStoreTest
+{
+    private static final byte[] IMAGE = new byte[30];
+
+    @XWikiTempDir
+    private File directory;
+
+    private ImageThumbnailStore store;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        this.store = new ImageThumbnailStore(this.directory, 100);
+    }
+
+    private void store(String key, long lastModified) throws Exception
+    {
+        this.store.store(key, output -> output.write(IMAGE)).close();
+
+        this.store.getFile(key).setLastModified(lastModified);
+    }
+
+    @Test
+    public void getAndStore() throws Exception
+    {
+        assertNull(this.store.get("key"));
+
+        this.store.store("key", output -> output.write(IMAGE)).close();
+
+        try (InputStream stream = this.store.get("key")) {
+            assertArrayEquals(IMAGE, IOUtils.toByteArray(stream));
+        }
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception
+    {
+        store("image1", 1000);
+        store("image2", 2000);
+        store("image3", 3000);
+
+        // Exceed the capacity
+        try (InputStream stream = this.store.store("image4", output -> output.write(IMAGE))) {
+            assertArrayEquals(IMAGE, IOUtils.toByteArray(stream));
+        }
+
+        assertFalse(this.store.getFile("image1").exists());
+        assertTrue(this.store.getFile("image2").exists());
+        assertTrue(this.store.getFile("image3").exists());
+        assertTrue(this.store.getFile("image4").exists());
+    }
+
+    @Test
+    public void evictWhenImageWasRead() throws Exception
+    {
+        store("image1", 1000);
+        store("image2", 2000);
+        store("image3", 3000);
+
+        // Reading the oldest image makes it the most recently used one
+        this.store.get("image1").close();
+
+        this.store.store("image4", output -> output.write(IMAGE)).close();
+
+        assertTrue(this.store.getFile("image1").exists());
+        assertFalse(this.store.getFile("image2").exists());
+        assertTrue(this.store.getFile("image3").exists());
+        assertTrue(this.store.getFile("image4").exists());
+    }
+
+    @Test
+    public void getStoresWhenMissing() throws Exception
+    {
+        try (InputStream stream = this.store.get("key", output -> output.write(IMAGE))) {
+            assertArrayEquals(IMAGE, IOUtils.toByteArray(stream));
+        }
+
+        // The stored image is reused
+        try (InputStream stream = this.store.get("key", output -> {
+            throw new Exception("Should not be called");
+        })) {
+            assertArrayEquals(IMAGE, IOUtils.toByteArray(stream));
+        }
+    }
+}
@@ -121,4 +121,33 @@ default int getSendQueueCapacity()
     {
         return 1000;
     }
+
+    /**
+     * @return the number of threads sending mails in parallel, each of them using its own connection to the SMTP server
+     * @since 12.6RC1
+     */
+    default int getSendThreads()
+    {
+        return 1;
+    }
+
+    /**
+     * @return the maximum number of mails to send using the same connection to the SMTP server before opening a new
+     *         one, 0 or less for no limit
+     * @since 12.6RC1
+     */
+    default int getSendMaxMessagesPerConnection()
+    {
+        return 100;
+    }
+
+    /**
+     * @return the maximum size in bytes of a serialized mail for it to be kept in memory between the prepare and the
+     *         send threads instead of being stored on the filesystem, 0 or less to always use the filesystem
+     * @since 12.6RC1
+     */
+    default int getInMemoryMaxMessageSize()
+    {
+        return 0;
+    }
 }
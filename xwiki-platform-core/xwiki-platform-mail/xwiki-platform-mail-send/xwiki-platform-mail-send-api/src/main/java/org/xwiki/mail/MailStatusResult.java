@@ -75,4 +75,24 @@
      * @return the status for all mails matching the passed state
      */
     Iterator<MailStatus> getByState(MailState state);
+
+    /**
+     * @return the time in milliseconds elapsed between the start of the batch and the last processed mail
+     * @since 12.6RC1
+     */
+    default long getProcessingDuration()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the average number of mails processed per second for this batch
+     * @since 12.6RC1
+     */
+    default double getThroughput()
+    {
+        long duration = getProcessingDuration();
+
+        return duration > 0 ? getProcessedMailCount() * 1000D / duration : 0;
+    }
 }
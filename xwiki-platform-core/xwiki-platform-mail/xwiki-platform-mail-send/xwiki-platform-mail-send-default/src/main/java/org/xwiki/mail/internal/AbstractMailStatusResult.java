@@ -19,6 +19,8 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,7 +37,11 @@ public abstract class AbstractMailStatusResult implements UpdateableMailStatusRe
 
     private long totalSize = -1;
 
-    private long currentSize;
+    private final AtomicLong currentSize = new AtomicLong();
+
+    private final long startDate = System.currentTimeMillis();
+
+    private volatile long lastProcessedDate;
 
     @Override
     public void setTotalSize(long totalSize)
@@ -46,7 +52,9 @@ public void setTotalSize(long totalSize)
     @Override
     public void incrementCurrentSize()
     {
-        this.currentSize++;
+        // Mails can be sent by several threads in parallel
+        this.currentSize.incrementAndGet();
+        this.lastProcessedDate = System.currentTimeMillis();
     }
 
     @Override
@@ -58,7 +66,15 @@ public long getTotalMailCount()
     @Override
     public long getProcessedMailCount()
     {
-        return this.currentSize;
+        return this.currentSize.get();
+    }
+
+    @Override
+    public long getProcessingDuration()
+    {
+        long date = this.lastProcessedDate;
+
+        return date > 0 ? date - this.startDate : 0;
     }
 
     @Override
@@ -19,8 +19,11 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -40,7 +43,7 @@ public class MemoryMailStatusResult extends AbstractMailStatusResult
 {
     private abstract class AbstractMailStatusIterator implements Iterator<MailStatus>
     {
-        private final Iterator<MailStatus> it = statusMap.values().iterator();
+        private final Iterator<MailStatus> it = getStatuses().iterator();
         private MailStatus nextStatus;
 
         abstract boolean match(MailStatus status);
@@ -82,9 +85,9 @@ public void remove()
      * The Map's key is the unique message ID.
      *
      * Note that we keep the order in which messages are passed (i.e. the first status result will contain the first
-     * mail sent, etc).
+     * mail sent, etc). The Map is synchronized since the statuses can be set by several mail sender threads at once.
      */
-    private Map<String, MailStatus> statusMap = new LinkedHashMap<>();
+    private final Map<String, MailStatus> statusMap = Collections.synchronizedMap(new LinkedHashMap<>());
 
     /**
      * Retrieve the status for the given message identifier.
@@ -110,7 +113,7 @@ public void setStatus(MailStatus status)
     @Override
     public Iterator<MailStatus> getAll()
     {
-        return this.statusMap.values().iterator();
+        return getStatuses().iterator();
     }
 
     @Override
@@ -136,4 +139,12 @@ boolean match(MailStatus status)
             }
         };
     }
+
+    private List<MailStatus> getStatuses()
+    {
+        // Iterate over a copy so that the statuses can still be updated while the caller goes through them
+        synchronized (this.statusMap) {
+            return new ArrayList<>(this.statusMap.values());
+        }
+    }
 }
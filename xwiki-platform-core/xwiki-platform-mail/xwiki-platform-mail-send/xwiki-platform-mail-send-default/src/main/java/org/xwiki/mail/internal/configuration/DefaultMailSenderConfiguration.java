@@ -104,6 +104,12 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
     private static final String PREPARE_QUEUE_CAPACITY_PROPERTY = "prepareQueueCapacity";
     private static final String SEND_QUEUE_CAPACITY_PROPERTY = "sendQueueCapacity";
 
+    private static final String SEND_THREADS_PROPERTY = "sendThreads";
+
+    private static final String SEND_MAX_MESSAGES_PER_CONNECTION_PROPERTY = "sendMaxMessagesPerConnection";
+
+    private static final String IN_MEMORY_MAX_MESSAGE_SIZE_PROPERTY = "inMemoryMaxMessageSize";
+
     /**
      * The default size of the prepare queue.
      */
@@ -114,6 +120,22 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
      */
     private static final int SEND_QUEUE_CAPACITY_DEFAULT = 1000;
 
+    /**
+     * The default number of threads sending mails.
+     */
+    private static final int SEND_THREADS_DEFAULT = 1;
+
+    /**
+     * The default number of mails sent with the same SMTP connection.
+     */
+    private static final int SEND_MAX_MESSAGES_PER_CONNECTION_DEFAULT = 100;
+
+    /**
+     * By default the mails are always stored on the filesystem between the prepare and send threads so that they can
+     * be resent after a restart.
+     */
+    private static final int IN_MEMORY_MAX_MESSAGE_SIZE_DEFAULT = 0;
+
     @Inject
     private Logger logger;
 
@@ -337,6 +359,26 @@ public int getSendQueueCapacity()
             SEND_QUEUE_CAPACITY_DEFAULT);
     }
 
+    @Override
+    public int getSendThreads()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + SEND_THREADS_PROPERTY, SEND_THREADS_DEFAULT);
+    }
+
+    @Override
+    public int getSendMaxMessagesPerConnection()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + SEND_MAX_MESSAGES_PER_CONNECTION_PROPERTY,
+            SEND_MAX_MESSAGES_PER_CONNECTION_DEFAULT);
+    }
+
+    @Override
+    public int getInMemoryMaxMessageSize()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + IN_MEMORY_MAX_MESSAGE_SIZE_PROPERTY,
+            IN_MEMORY_MAX_MESSAGE_SIZE_DEFAULT);
+    }
+
     private boolean isMainWiki()
     {
         return this.wikiDescriptorManager.isMainWiki(this.wikiDescriptorManager.getCurrentWikiId());
@@ -59,6 +59,12 @@ public void addMessage(T mailQueueItem, long timeout, TimeUnit unit) throws Inte
         getMailQueue().offer(mailQueueItem, timeout, unit);
     }
 
+    @Override
+    public void putMessage(T mailQueueItem) throws InterruptedException
+    {
+        getMailQueue().put(mailQueueItem);
+    }
+
     @Override
     public boolean hasMessage()
     {
@@ -55,6 +55,18 @@ default void addMessage(T mailQueueItem, long timeout, TimeUnit unit) throws Int
         addToQueue(mailQueueItem);
     }
 
+    /**
+     * Add a mail on the queue for processing, waiting for space to become available in the queue if needed.
+     *
+     * @param mailQueueItem the object representing the mail item to add to the queue
+     * @throws InterruptedException if interrupted while waiting
+     * @since 12.6RC1
+     */
+    default void putMessage(T mailQueueItem) throws InterruptedException
+    {
+        addToQueue(mailQueueItem);
+    }
+
     /**
      * @return true if the queue has messages waiting for processing
      */
@@ -19,6 +19,9 @@
  */
 package org.xwiki.mail.internal.thread;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Iterator;
 
@@ -28,9 +31,11 @@
 import javax.mail.Address;
 import javax.mail.Message;
 import javax.mail.MessagingException;
+import javax.mail.Multipart;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 
+import org.apache.commons.io.output.ThresholdingOutputStream;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.ExecutionContextException;
@@ -39,6 +44,7 @@
 import org.xwiki.mail.MailListener;
 import org.xwiki.mail.MailStatusResult;
 import org.xwiki.mail.internal.UpdateableMailStatusResult;
+import org.xwiki.mail.internal.factory.attachment.AttachmentMimeBodyPartFactory;
 
 import com.xpn.xwiki.XWikiContext;
 
@@ -54,6 +60,36 @@
 @Singleton
 public class PrepareMailRunnable extends AbstractMailRunnable
 {
+    /**
+     * Buffer the serialized message and fail as soon as it's bigger than the passed limit.
+     */
+    private static final class LimitedOutputStream extends ThresholdingOutputStream
+    {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        LimitedOutputStream(int maxSize)
+        {
+            super(maxSize);
+        }
+
+        @Override
+        protected OutputStream getStream()
+        {
+            return this.buffer;
+        }
+
+        @Override
+        protected void thresholdReached() throws IOException
+        {
+            throw new IOException("The message is too big to be kept in memory");
+        }
+
+        byte[] toByteArray()
+        {
+            return this.buffer.toByteArray();
+        }
+    }
+
     @Inject
     private MailQueueManager<PrepareMailQueueItem> prepareMailQueueManager;
 
@@ -129,6 +165,13 @@ protected void prepareMail(PrepareMailQueueItem item)
                     removeContext();
                 }
             }
+        } catch (InterruptedException e) {
+            // Make sure the thread is stopped
+            Thread.currentThread().interrupt();
+
+            if (listener != null) {
+                listener.onPrepareFatalError(e, Collections.emptyMap());
+            }
         } catch (Exception e) {
             if (listener != null) {
                 listener.onPrepareFatalError(e, Collections.emptyMap());
@@ -158,7 +201,7 @@ protected void prepareContext(ExecutionContext executionContext) throws Executio
         }
     }
 
-    private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem item)
+    private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem item) throws InterruptedException
     {
         MailListener listener = item.getListener();
 
@@ -168,10 +211,14 @@ private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem ite
         // Ensure mimeMessage to be extended
         ExtendedMimeMessage message = ExtendedMimeMessage.wrap(mimeMessage);
 
-        // Step 2: Persist the MimeMessage
+        // Step 2: Persist the MimeMessage (or keep it in memory if it's small enough)
         // Note: Message identifier is stabilized at this step by the serialization process
+        byte[] content;
         try {
-            this.mailContentStore.save(item.getBatchId(), message);
+            content = serializeInMemory(message);
+            if (content == null) {
+                this.mailContentStore.save(item.getBatchId(), message);
+            }
         } catch (Exception e) {
             // An error occurred, notify the user if a listener has been provided
             if (listener != null) {
@@ -186,10 +233,63 @@ private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem ite
         }
 
         // Step 4: Put the MimeMessage id on the Mail Send Queue for sending
+        // Note: wait for the send thread to catch up when the queue is full
         // Extract the wiki id from the context
-        this.sendMailQueueManager.addToQueue(new SendMailQueueItem(message.getUniqueMessageId(),
+        this.sendMailQueueManager.putMessage(new SendMailQueueItem(message.getUniqueMessageId(), content,
             item.getSession(), listener, item.getBatchId(), extractWikiId(item)));
+    }
+
+    /**
+     * Serialize the message in memory to avoid writing it on the filesystem and reading it again in the send thread.
+     *
+     * @param message the message to serialize
+     * @return the serialized message or {@code null} if the message should be stored on the filesystem
+     * @throws MessagingException when failing to save the message
+     */
+    private byte[] serializeInMemory(ExtendedMimeMessage message) throws MessagingException
+    {
+        int maxSize = this.configuration.getInMemoryMaxMessageSize();
+        if (maxSize <= 0 || hasTemporaryFiles(message)) {
+            return null;
+        }
+
+        // Make sure the Message-ID header is not modified by the serialization
+        message.ensureSaved();
+
+        LimitedOutputStream stream = new LimitedOutputStream(maxSize);
+        try {
+            message.writeTo(stream);
+        } catch (IOException e) {
+            // Too big (or not serializable) message, let the filesystem store deal with it
+            return null;
+        }
+
+        return stream.toByteArray();
+    }
+
+    /**
+     * @return true if some attachments of the message are stored in temporary files, which are cleaned by the
+     *         filesystem store
+     */
+    private boolean hasTemporaryFiles(ExtendedMimeMessage message)
+    {
+        try {
+            Object content = message.getContent();
+            if (content instanceof Multipart) {
+                Multipart multipart = (Multipart) content;
+                for (int i = 0; i < multipart.getCount(); i++) {
+                    if (multipart.getBodyPart(i)
+                        .getHeader(AttachmentMimeBodyPartFactory.TMP_ATTACHMENT_LOCATION_FILE_HEADER) != null) {
+                        return true;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Let the filesystem store deal with it
+            return true;
+        }
 
+        return false;
     }
 
     private String extractWikiId(PrepareMailQueueItem item)
@@ -35,6 +35,8 @@ public class SendMailQueueItem extends AbstractMailQueueItem
 
     private String wikiId;
 
+    private byte[] content;
+
     /**
      * @param uniqueMessageId see {@link #getUniqueMessageId()}
      * @param session see {@link #getSession()}
@@ -44,9 +46,25 @@ public class SendMailQueueItem extends AbstractMailQueueItem
      */
     public SendMailQueueItem(String uniqueMessageId, Session session, MailListener listener, String batchId,
         String wikiId)
+    {
+        this(uniqueMessageId, null, session, listener, batchId, wikiId);
+    }
+
+    /**
+     * @param uniqueMessageId see {@link #getUniqueMessageId()}
+     * @param content see {@link #getContent()}
+     * @param session see {@link #getSession()}
+     * @param listener see {@link #getListener()}
+     * @param batchId see {@link #getBatchId()}
+     * @param wikiId see {@link #getWikiId()}
+     * @since 12.6RC1
+     */
+    public SendMailQueueItem(String uniqueMessageId, byte[] content, Session session, MailListener listener,
+        String batchId, String wikiId)
     {
         super(session, listener, batchId);
         this.uniqueMessageId = uniqueMessageId;
+        this.content = content;
         this.wikiId = wikiId;
     }
 
@@ -66,12 +84,23 @@ public String getWikiId()
         return this.wikiId;
     }
 
+    /**
+     * @return the serialized MimeMessage to send when it's small enough to be kept in memory, {@code null} if it
+     *         should be loaded from the mail content store
+     * @since 12.6RC1
+     */
+    public byte[] getContent()
+    {
+        return this.content;
+    }
+
     @Override
     public String toString()
     {
         return prepareToString()
             .append("messageId", getUniqueMessageId())
             .append("wikiId", getWikiId())
+            .append("inMemory", getContent() != null)
             .toString();
     }
 }
@@ -19,7 +19,17 @@
  */
 package org.xwiki.mail.internal.thread;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -30,6 +40,7 @@
 import javax.mail.Transport;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.ExecutionContextException;
@@ -37,11 +48,15 @@
 import org.xwiki.mail.ExtendedMimeMessage;
 import org.xwiki.mail.MailContentStore;
 import org.xwiki.mail.MailListener;
+import org.xwiki.mail.MailStoreException;
 
 import com.xpn.xwiki.XWikiContext;
 
 /**
  * Runnable that regularly check for mails on a Queue, and for each mail tries to send it.
+ * <p>
+ * When more than one send thread is configured, the mails are handed to a pool of sender threads, each of them reusing
+ * its own connection to the SMTP server.
  *
  * @version $Id$
  * @since 6.4
@@ -51,6 +66,19 @@
 @Singleton
 public class SendMailRunnable extends AbstractMailRunnable
 {
+    /**
+     * The Java Mail property which can be used to override the maximum number of mails sent with the same connection
+     * for a specific {@link Session}.
+     *
+     * @since 12.6RC1
+     */
+    public static final String SESSION_MAX_MESSAGES_PER_CONNECTION = "xwiki.mail.maxMessagesPerConnection";
+
+    /**
+     * The maximum time to wait for the mails being sent when the thread is stopped, in seconds.
+     */
+    private static final long STOP_TIMEOUT = 60L;
+
     @Inject
     private MailQueueManager<SendMailQueueItem> sendMailQueueManager;
 
@@ -64,11 +92,94 @@ public class SendMailRunnable extends AbstractMailRunnable
     @Inject
     private Provider<XWikiContext> contextProvider;
 
-    private Transport currentTransport;
+    /**
+     * The connection used when the mails are sent by this thread.
+     */
+    private final SendMailConnection connection = new SendMailConnection();
+
+    /**
+     * A connection to the SMTP server, reused to send several mails.
+     */
+    private final class SendMailConnection
+    {
+        private Transport transport;
+
+        private Session session;
+
+        private int count;
+
+        void send(ExtendedMimeMessage message, Session messageSession) throws MessagingException
+        {
+            // If the current Session in use is different from the one passed then close the current Transport, get a
+            // new one and reconnect. Also do that every N mails sent to not keep a connection open forever.
+            if (messageSession != this.session || this.transport == null || isExhausted()) {
+                close();
+                this.session = messageSession;
+                this.transport = this.session.getTransport("smtp");
+                this.transport.connect();
+            } else if (!this.transport.isConnected()) {
+                this.transport.connect();
+            }
+
+            // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
+            // message; this prevent the MessageID header to be changed.
+            this.transport.sendMessage(message, message.getAllRecipients());
+            this.count++;
+        }
+
+        private boolean isExhausted()
+        {
+            int maxMessages = getMaxMessagesPerConnection(this.session);
+
+            return maxMessages > 0 && this.count >= maxMessages;
+        }
+
+        void close()
+        {
+            if (this.transport != null) {
+                try {
+                    this.transport.close();
+                } catch (MessagingException e) {
+                    logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
 
-    private Session currentSession;
+                this.transport = null;
+            }
 
-    private int count;
+            this.count = 0;
+        }
+    }
+
+    /**
+     * Create the threads used to send the mails in parallel, each of them with its own execution context.
+     */
+    private final class SendMailThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(() -> {
+                try {
+                    prepareContext();
+                } catch (ExecutionContextException e) {
+                    logger.error("Failed to initialize the send mail thread's execution context", e);
+                }
+
+                try {
+                    runnable.run();
+                } finally {
+                    removeContext();
+                }
+            });
+            thread.setName("Mail Sender Thread " + this.index.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
 
     @Override
     public void run()
@@ -77,12 +188,17 @@ public void run()
             // Make sure we initialize an execution context.
             prepareContext();
 
-            runInternal();
+            int threads = this.configuration.getSendThreads();
+            if (threads > 1) {
+                runParallel(threads);
+            } else {
+                runInternal();
+            }
         } catch (ExecutionContextException e) {
             // Not much to do but log.
             logger.error("Failed to initialize the send mail thread's execution context", e);
         } finally {
-            closeTransport();
+            this.connection.close();
         }
     }
 
@@ -134,12 +250,102 @@ private void runInternal()
         } while (!this.shouldStop);
     }
 
+    private void runParallel(int threads)
+    {
+        // Each sender thread takes an available connection and gives it back once its mail has been sent. Since there
+        // is exactly one connection per thread this also make sure we never hand more mails than what the sender
+        // threads can handle.
+        List<SendMailConnection> connections = new ArrayList<>(threads);
+        BlockingQueue<SendMailConnection> availableConnections = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; ++i) {
+            SendMailConnection threadConnection = new SendMailConnection();
+            connections.add(threadConnection);
+            availableConnections.add(threadConnection);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new SendMailThreadFactory());
+
+        try {
+            do {
+                try {
+                    // Handle next message in the queue
+                    if (this.sendMailQueueManager.hasMessage()) {
+                        SendMailQueueItem mailItem = this.sendMailQueueManager.peekMessage();
+                        try {
+                            dispatchMail(mailItem, executor, availableConnections);
+                        } finally {
+                            // Note: the mail is not sent yet but it does not matter since MailSender.waitTillSent()
+                            // relies on the mail statuses and not on the content of the queue.
+                            this.sendMailQueueManager.removeMessageFromQueue(mailItem);
+                        }
+                        // Email throttling: Wait before handing the next mail queue item to the sender threads
+                        waitSendWaitTime();
+                    } else {
+                        // Note: a short pause to catch thread interruptions and to be kind on CPU.
+                        Thread.sleep(50L);
+                    }
+                } catch (InterruptedException e) {
+                    // Thread has been stopped, exit
+                    this.logger.debug("Mail Sender Thread was forcefully stopped", e);
+                    break;
+                } catch (Exception e) {
+                    // There was an unexpected problem, we just log the problem but keep the thread alive!
+                    this.logger.error("Unexpected error in the Mail Sender Thread", e);
+                }
+            } while (!this.shouldStop);
+        } finally {
+            stopExecutor(executor);
+
+            connections.forEach(SendMailConnection::close);
+        }
+    }
+
+    private void dispatchMail(SendMailQueueItem mailItem, ExecutorService executor,
+        BlockingQueue<SendMailConnection> availableConnections) throws InterruptedException
+    {
+        // Needed to get the right send wait time
+        prepareContextForQueueItem(mailItem);
+
+        // Wait for a sender thread to be available
+        SendMailConnection threadConnection = availableConnections.take();
+
+        executor.execute(() -> {
+            try {
+                sendMail(mailItem, threadConnection);
+            } catch (Exception e) {
+                this.logger.error("Unexpected error in the Mail Sender Thread", e);
+            } finally {
+                availableConnections.add(threadConnection);
+            }
+        });
+    }
+
+    private void stopExecutor(ExecutorService executor)
+    {
+        // Give a chance to the mails being sent to finish
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(STOP_TIMEOUT, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Send the mail.
      *
      * @param item the queue item containing all the data for sending the mail
      */
     protected void sendMail(SendMailQueueItem item)
+    {
+        sendMail(item, this.connection);
+    }
+
+    private void sendMail(SendMailQueueItem item, SendMailConnection sendConnection)
     {
         prepareContextForQueueItem(item);
 
@@ -147,8 +353,8 @@ protected void sendMail(SendMailQueueItem item)
 
         ExtendedMimeMessage message;
         try {
-            // Step 1: Load the message from the filesystem store
-            message = this.mailContentStore.load(item.getSession(), item.getBatchId(), item.getUniqueMessageId());
+            // Step 1: Load the message from memory or from the filesystem store
+            message = loadMessage(item);
         } catch (Exception e) {
             if (listener != null) {
                 listener.onSendMessageFatalError(item.getUniqueMessageId(), e, Collections.<String, Object>emptyMap());
@@ -157,30 +363,19 @@ protected void sendMail(SendMailQueueItem item)
         }
 
         try {
-            // Step 2: If the current Session in use is different from the one passed then close
-            // the current Transport, get a new one and reconnect.
-            // Also do that every 100 mails sent.
-            // TODO: explain why!
-            if (item.getSession() != this.currentSession || (this.count % 100) == 0) {
-                closeTransport();
-                this.currentSession = item.getSession();
-                this.currentTransport = this.currentSession.getTransport("smtp");
-                this.currentTransport.connect();
-            } else if (!this.currentTransport.isConnected()) {
-                this.currentTransport.connect();
-            }
-
-            // Step 3: Send the mail
-            // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
-            // message; this prevent the MessageID header to be changed.
-            this.currentTransport.sendMessage(message, message.getAllRecipients());
-            this.count++;
+            // Step 2: Send the mail (connecting to the SMTP server if needed)
+            sendConnection.send(message, item.getSession());
 
-            // Step 4: Notify the user of the success if a listener has been provided
+            // Step 3: Notify the user of the success if a listener has been provided
             if (listener != null) {
                 listener.onSendMessageSuccess(message, Collections.<String, Object>emptyMap());
             }
         } catch (Exception e) {
+            // Make sure the message can be resent
+            if (item.getContent() != null) {
+                saveMessage(item, message);
+            }
+
             // An error occurred, notify the user if a listener has been provided.
             if (listener != null) {
                 listener.onSendMessageError(message, e, Collections.<String, Object>emptyMap());
@@ -188,21 +383,39 @@ protected void sendMail(SendMailQueueItem item)
         }
     }
 
-    private void waitSendWaitTime() throws InterruptedException
+    private ExtendedMimeMessage loadMessage(SendMailQueueItem item) throws MessagingException, MailStoreException
     {
-        long sendWaitTime = this.configuration.getSendWaitTime();
-        Thread.sleep(sendWaitTime);
+        byte[] content = item.getContent();
+        if (content != null) {
+            return new ExtendedMimeMessage(item.getSession(), new ByteArrayInputStream(content));
+        }
+
+        return this.mailContentStore.load(item.getSession(), item.getBatchId(), item.getUniqueMessageId());
     }
 
-    private void closeTransport()
+    private void saveMessage(SendMailQueueItem item, ExtendedMimeMessage message)
     {
-        if (this.currentTransport != null) {
-            try {
-                this.currentTransport.close();
-            } catch (MessagingException e) {
-                this.logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
-                    ExceptionUtils.getRootCauseMessage(e));
-            }
+        try {
+            this.mailContentStore.save(item.getBatchId(), message);
+        } catch (Exception e) {
+            this.logger.warn("Failed to store message [{}] (batch id [{}]) for a later resend. Reason [{}].",
+                item.getUniqueMessageId(), item.getBatchId(), ExceptionUtils.getRootCauseMessage(e));
+        }
+    }
+
+    private int getMaxMessagesPerConnection(Session session)
+    {
+        String sessionValue = session != null ? session.getProperty(SESSION_MAX_MESSAGES_PER_CONNECTION) : null;
+        if (sessionValue != null) {
+            return NumberUtils.toInt(sessionValue, this.configuration.getSendMaxMessagesPerConnection());
         }
+
+        return this.configuration.getSendMaxMessagesPerConnection();
+    }
+
+    private void waitSendWaitTime() throws InterruptedException
+    {
+        long sendWaitTime = this.configuration.getSendWaitTime();
+        Thread.sleep(sendWaitTime);
     }
 }
@@ -31,6 +31,8 @@
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -79,4 +81,22 @@ public void getAllErrorTest()
         assertThat(allErrorIds, containsInAnyOrder(UNIQUE_MESSAGE_ID2, UNIQUE_MESSAGE_ID4, UNIQUE_MESSAGE_ID5));
         assertThat(allErrorIds.size(), equalTo(3));
     }
+
+    @Test
+    public void getThroughput() throws Exception
+    {
+        MemoryMailStatusResult statusResult = new MemoryMailStatusResult();
+        statusResult.setTotalSize(2);
+
+        assertEquals(0, statusResult.getProcessingDuration());
+        assertEquals(0, statusResult.getThroughput(), 0);
+
+        Thread.sleep(10L);
+        statusResult.incrementCurrentSize();
+        statusResult.incrementCurrentSize();
+
+        assertEquals(2, statusResult.getProcessedMailCount());
+        assertTrue(statusResult.getProcessingDuration() >= 10);
+        assertEquals(2000D / statusResult.getProcessingDuration(), statusResult.getThroughput(), 0.001);
+    }
 }
@@ -220,4 +220,13 @@ public void getPortWhenMailConfigDoesntExist()
 
         assertEquals(25, this.configuration.getPort());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getInMemoryMaxMessageSizeIsDisabledByDefault()
+    {
+        when(this.xwikiPropertiesSource.getProperty(eq("mail.sender.inMemoryMaxMessageSize"), anyInt()))
+            .thenAnswer(invocation -> invocation.getArgument(1));
+
+        assertEquals(0, this.configuration.getInMemoryMaxMessageSize());
+    }
+}
@@ -19,13 +19,19 @@
  */
 package org.xwiki.mail.internal.thread;
 
+import java.io.ByteArrayOutputStream;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Provider;
+import javax.mail.Address;
+import javax.mail.Message;
 import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
 import javax.mail.internet.MimeMessage;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -52,6 +58,11 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -67,18 +78,48 @@
 })
 public class SendMailRunnableTest
 {
+    /**
+     * Fake SMTP transport counting the connections opened to the server.
+     */
+    public static class CountingTransport extends Transport
+    {
+        static final AtomicInteger CONNECTIONS = new AtomicInteger();
+
+        static final AtomicInteger SENT = new AtomicInteger();
+
+        public CountingTransport(Session session, URLName urlname)
+        {
+            super(session, urlname);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password)
+        {
+            CONNECTIONS.incrementAndGet();
+
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses)
+        {
+            SENT.incrementAndGet();
+        }
+    }
+
     @InjectMockComponents
     private SendMailRunnable sendMailRunnable;
 
     @InjectComponentManager
     private MockitoComponentManager componentManager;
 
+    private MailSenderConfiguration configuration;
+
     @BeforeComponent
     public void beforeInitializable() throws Exception
     {
-        MailSenderConfiguration configuration =
-            this.componentManager.registerMockComponent(MailSenderConfiguration.class);
-        when(configuration.getSendQueueCapacity()).thenReturn(10);
+        this.configuration = this.componentManager.registerMockComponent(MailSenderConfiguration.class);
+        when(this.configuration.getSendQueueCapacity()).thenReturn(10);
     }
 
     @BeforeEach
@@ -220,4 +261,165 @@ public void sendMailWhenMailRetrievalFails() throws Exception
         }
         assertEquals(2, errorCount);
     }
+
+    @Test
+    public void sendMailWithSeveralThreadsWhenSendingFails() throws Exception
+    {
+        when(this.configuration.getSendThreads()).thenReturn(3);
+
+        // Create a Session with an invalid host so that it generates an error
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", "xwiki-unknown");
+        Session session = Session.getInstance(properties);
+
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(5);
+
+        MailQueueManager mailQueueManager = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+
+        for (int i = 0; i < 5; ++i) {
+            MimeMessage msg = new MimeMessage(session);
+            msg.setText("Content" + i);
+            ExtendedMimeMessage message = new ExtendedMimeMessage(msg);
+            String id = message.getUniqueMessageId();
+            listener.onPrepareMessageSuccess(message, Collections.emptyMap());
+
+            // Simulate loading the message from the content store
+            when(contentStore.load(session, batchId, id)).thenReturn(message);
+
+            mailQueueManager.addToQueue(new SendMailQueueItem(id, session, listener, batchId, "xwiki"));
+        }
+
+        Thread thread = new Thread(this.sendMailRunnable);
+        thread.start();
+
+        // Wait for the mails to have been processed.
+        try {
+            listener.getMailStatusResult().waitTillProcessed(10000L);
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread.interrupt();
+            thread.join();
+        }
+
+        // Verify that all the mails have been processed by the sender threads
+        Iterator<MailStatus> statuses = listener.getMailStatusResult().getByState(MailState.SEND_ERROR);
+        int errorCount = 0;
+        while (statuses.hasNext()) {
+            assertTrue(statuses.next().getErrorSummary() != null);
+            errorCount++;
+        }
+        assertEquals(5, errorCount);
+        assertEquals(5, listener.getMailStatusResult().getProcessedMailCount());
+    }
+
+    @Test
+    public void sendMailFromMemoryWhenSendingFails() throws Exception
+    {
+        // Create a Session with an invalid host so that it generates an error
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", "xwiki-unknown");
+        Session session = Session.getInstance(properties);
+
+        MimeMessage msg = new MimeMessage(session);
+        msg.setText("Content");
+        ExtendedMimeMessage message = new ExtendedMimeMessage(msg);
+        message.ensureSaved();
+        String id = message.getUniqueMessageId();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        message.writeTo(content);
+
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        listener.onPrepareMessageSuccess(message, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(1);
+
+        MailQueueManager mailQueueManager = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        mailQueueManager.addToQueue(
+            new SendMailQueueItem(id, content.toByteArray(), session, listener, batchId, "xwiki"));
+
+        Thread thread = new Thread(this.sendMailRunnable);
+        thread.start();
+
+        // Wait for the mail to have been processed.
+        try {
+            listener.getMailStatusResult().waitTillProcessed(10000L);
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread.interrupt();
+            thread.join();
+        }
+
+        MailStatus status = listener.getMailStatusResult().getByState(MailState.SEND_ERROR).next();
+        assertEquals(id, status.getMessageId());
+
+        // The message is not loaded from the store but it's saved in it so that it can be resent
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+        verify(contentStore, never()).load(any(), anyString(), anyString());
+        verify(contentStore).save(eq(batchId), any(ExtendedMimeMessage.class));
+    }
+
+    @Test
+    public void sendMailReconnectsWhenMaxMessagesPerConnectionIsReached() throws Exception
+    {
+        when(this.configuration.getSendMaxMessagesPerConnection()).thenReturn(2);
+        CountingTransport.CONNECTIONS.set(0);
+        CountingTransport.SENT.set(0);
+
+        Session session = Session.getInstance(new Properties());
+        session.setProvider(new javax.mail.Provider(javax.mail.Provider.Type.TRANSPORT, "smtp",
+            CountingTransport.class.getName(), "XWiki", "1.0"));
+
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(5);
+
+        MailQueueManager mailQueueManager = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+
+        for (int i = 0; i < 5; ++i) {
+            MimeMessage msg = new MimeMessage(session);
+            msg.setText("Content" + i);
+            ExtendedMimeMessage message = new ExtendedMimeMessage(msg);
+            String id = message.getUniqueMessageId();
+            listener.onPrepareMessageSuccess(message, Collections.emptyMap());
+
+            // Simulate loading the message from the content store
+            when(contentStore.load(session, batchId, id)).thenReturn(message);
+
+            mailQueueManager.addToQueue(new SendMailQueueItem(id, session, listener, batchId, "xwiki"));
+        }
+
+        Thread thread = new Thread(this.sendMailRunnable);
+        thread.start();
+
+        // Wait for the mails to have been processed.
+        try {
+            listener.getMailStatusResult().waitTillProcessed(10000L);
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread.interrupt();
+            thread.join();
+        }
+
+        // The 5 mails are sent using 3 connections: 2 mails, 2 mails and the last one
+        assertEquals(5, CountingTransport.SENT.get());
+        assertEquals(3, CountingTransport.CONNECTIONS.get());
+
+        Iterator<MailStatus> statuses = listener.getMailStatusResult().getByState(MailState.SEND_SUCCESS);
+        int successCount = 0;
+        while (statuses.hasNext()) {
+            statuses.next();
+            successCount++;
+        }
+        assertEquals(5, successCount);
+    }
 }
@@ -90,4 +90,14 @@ default int getAsyncPoolSize()
     {
         return 2;
     }
+
+    /**
+     * @return the number of threads to use for dispatching the events to the users when event prefiltering is enabled
+     * @since 12.6RC1
+     */
+    @Unstable
+    default int getEventPrefilteringPoolSize()
+    {
+        return 1;
+    }
 }
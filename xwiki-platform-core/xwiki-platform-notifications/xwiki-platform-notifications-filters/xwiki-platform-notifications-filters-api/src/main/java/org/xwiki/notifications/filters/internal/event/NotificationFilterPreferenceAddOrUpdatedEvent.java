@@ -21,6 +21,13 @@
 
 /**
  * Event generated when a notification filter preference is add or updated.
+ * <p>
+ * The event also send the following parameters:
+ * </p>
+ * <ul>
+ * <li>source: the reference of the user owning the filter preference, if known</li>
+ * <li>data: null</li>
+ * </ul>
  * 
  * @version $Id$
  * @since 10.11.4
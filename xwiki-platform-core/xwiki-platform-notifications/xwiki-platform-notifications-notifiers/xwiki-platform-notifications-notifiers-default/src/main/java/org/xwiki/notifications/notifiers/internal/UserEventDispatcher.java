@@ -19,9 +19,15 @@
  */
 package org.xwiki.notifications.notifiers.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -42,12 +48,14 @@
 import org.xwiki.eventstream.internal.DefaultEntityEvent;
 import org.xwiki.eventstream.internal.DefaultEvent;
 import org.xwiki.eventstream.internal.DefaultEventStatus;
+import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.notifications.NotificationConfiguration;
 import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.notifiers.internal.jmx.JMXUserEventDispatcher;
 import org.xwiki.user.group.GroupException;
 import org.xwiki.user.group.GroupManager;
 import org.xwiki.user.internal.group.UsersCache;
@@ -65,6 +73,8 @@ public class UserEventDispatcher implements Runnable, Disposable, Initializable
 {
     private static final Event STOP_EVENT = new DefaultEvent();
 
+    private static final String MBEAN_NAME = "name=notifications.dispatcher";
+
     @Inject
     private UsersCache userCache;
 
@@ -74,6 +84,9 @@ public class UserEventDispatcher implements Runnable, Disposable, Initializable
     @Inject
     private UserEventManager userEventManager;
 
+    @Inject
+    private UserEventSubscriptionIndex subscriptionIndex;
+
     @Inject
     private NotificationConfiguration notificationConfiguration;
 
@@ -92,29 +105,53 @@ public class UserEventDispatcher implements Runnable, Disposable, Initializable
     @Inject
     private EventStore events;
 
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
     @Inject
     private Logger logger;
 
     private BlockingQueue<Event> queue;
 
+    private int threadNumber;
+
+    private final AtomicInteger runningThreads = new AtomicInteger();
+
+    private final AtomicLong dispatchedEvents = new AtomicLong();
+
+    private final AtomicLong dispatchDuration = new AtomicLong();
+
+    private volatile long lastDispatchLatency;
+
     @Override
     public void initialize() throws InitializationException
     {
         this.queue = new LinkedBlockingQueue<>();
 
-        // Start a background thread to filter and dispatch users events
-        // Not making it a daemon thread because we don't want to loose events
-        Thread thread = new Thread(this);
-        thread.setName("User event dispatcher thread");
-        thread.setPriority(Thread.NORM_PRIORITY - 1);
-        thread.start();
+        // Start background threads to filter and dispatch users events
+        // Not making them daemon threads because we don't want to loose events
+        this.threadNumber = Math.max(1, this.notificationConfiguration.getEventPrefilteringPoolSize());
+        for (int i = 0; i < this.threadNumber; ++i) {
+            Thread thread = new Thread(this);
+            thread.setName("User event dispatcher thread " + i);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            this.runningThreads.incrementAndGet();
+            thread.start();
+        }
+
+        this.jmxRegistration.registerMBean(new JMXUserEventDispatcher(this), MBEAN_NAME);
     }
 
     @Override
     public void dispose() throws ComponentLifecycleException
     {
+        this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+
         try {
-            addEvent(STOP_EVENT);
+            // Stop all the threads
+            for (int i = 0; i < this.threadNumber; ++i) {
+                addEvent(STOP_EVENT);
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
 
@@ -133,6 +170,55 @@ public void addEvent(Event event) throws InterruptedException
         }
     }
 
+    /**
+     * @return the number of events waiting to be dispatched
+     * @since 12.6RC1
+     */
+    public int getQueueSize()
+    {
+        BlockingQueue<Event> currentQueue = this.queue;
+
+        return currentQueue != null ? currentQueue.size() : 0;
+    }
+
+    /**
+     * @return the number of threads dispatching the events
+     * @since 12.6RC1
+     */
+    public int getThreadNumber()
+    {
+        return this.runningThreads.get();
+    }
+
+    /**
+     * @return the number of events dispatched since the start
+     * @since 12.6RC1
+     */
+    public long getDispatchedEventCount()
+    {
+        return this.dispatchedEvents.get();
+    }
+
+    /**
+     * @return the average time spent dispatching an event, in milliseconds
+     * @since 12.6RC1
+     */
+    public long getAverageDispatchDuration()
+    {
+        long count = this.dispatchedEvents.get();
+
+        return count > 0 ? TimeUnit.NANOSECONDS.toMillis(this.dispatchDuration.get() / count) : 0;
+    }
+
+    /**
+     * @return the time between the creation of the last dispatched event and the end of its dispatch, in milliseconds
+     * @since 12.6RC1
+     */
+    public long getLastDispatchLatency()
+    {
+        return this.lastDispatchLatency;
+    }
+
     @Override
     public void run()
     {
@@ -151,12 +237,23 @@ public void run()
 
                     try {
                         if (event == STOP_EVENT) {
-                            this.queue = null;
+                            // The last running thread disable the queue
+                            if (this.runningThreads.decrementAndGet() == 0) {
+                                this.queue = null;
+                            }
 
                             return;
                         }
 
+                        long start = System.nanoTime();
+
                         dispatch(event);
+
+                        this.dispatchDuration.addAndGet(System.nanoTime() - start);
+                        this.dispatchedEvents.incrementAndGet();
+                        if (event.getDate() != null) {
+                            this.lastDispatchLatency = System.currentTimeMillis() - event.getDate().getTime();
+                        }
                     } finally {
                         // Get rid of current context
                         this.ecm.popContext();
@@ -178,66 +275,80 @@ private void dispatch(Event event)
         if (CollectionUtils.isNotEmpty(event.getTarget())) {
             // The event explicitly indicate with which entities to associated it
 
+            List<String> entities = new ArrayList<>();
             event.getTarget().forEach(entity -> {
                 DocumentReference entityReference = this.resolver.resolve(entity, event.getWiki());
 
                 // Associated the entity
-                saveEventStatus(event, entity);
-                saveMailEntityEvent(event, entity);
+                entities.add(entity);
 
                 // Also recursively associate the members of the entity if it's a group
                 try {
-                    this.groupManager.getMembers(entityReference, true).forEach(userReference -> {
-                        String userId = this.entityReferenceSerializer.serialize(userReference);
-                        saveEventStatus(event, userId);
-                        saveMailEntityEvent(event, userId);
-                    });
+                    this.groupManager.getMembers(entityReference, true).forEach(
+                        userReference -> entities.add(this.entityReferenceSerializer.serialize(userReference)));
                 } catch (GroupException e) {
                     this.logger.warn("Failed to get the member of the entity [{}]: {}", entity,
                         ExceptionUtils.getRootCauseMessage(e));
                 }
             });
+
+            saveEventStatuses(event, entities);
+            entities.forEach(entity -> saveMailEntityEvent(event, entity));
         } else {
             // Try to find users listening to this event
 
             // Associated event with event's wiki users
-            dispatch(event, this.userCache.getUsers(eventWiki, true));
+            dispatch(event, eventWiki);
 
             // Also take into account global users (main wiki users) if the event is on a subwiki
             if (!this.wikiManager.isMainWiki(eventWiki.getName())) {
-                dispatch(event, this.userCache.getUsers(new WikiReference(this.wikiManager.getMainWikiId()), true));
+                dispatch(event, new WikiReference(this.wikiManager.getMainWikiId()));
             }
         }
     }
 
-    private void dispatch(Event event, List<DocumentReference> users)
+    private void dispatch(Event event, WikiReference wiki)
     {
-        boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
-
-        for (DocumentReference user : users) {
-            // Make sure the user asked to be alerted about this event
-            if (this.userEventManager.isListening(event, user, NotificationFormat.ALERT)) {
-                // Associate the event with the user
-                String userId = this.entityReferenceSerializer.serialize(user);
-                saveEventStatus(event, userId);
-            }
+        List<DocumentReference> users = this.userCache.getUsers(wiki, true);
 
-            // Make sure the notification module is allowed to send mails
-            // Make sure the user asked to receive mails about this event
-            if (mailEnabled && this.userEventManager.isListening(event, user, NotificationFormat.EMAIL)) {
-                // Associate the event with the user
-                String userId = this.entityReferenceSerializer.serialize(user);
-                saveMailEntityEvent(event, userId);
-            }
-        }
+        // Only check the users who enabled the event type or follow the user who triggered the event
+        // Make sure the user asked to be alerted about this event
+        List<String> alertUsers = getListeningUsers(event, wiki, users, NotificationFormat.ALERT);
+
+        // Make sure the notification module is allowed to send mails
+        // Make sure the user asked to receive mails about this event
+        List<String> mailUsers = this.notificationConfiguration.areEmailsEnabled()
+            ? getListeningUsers(event, wiki, users, NotificationFormat.EMAIL) : Collections.emptyList();
+
+        // Associate the event with the users
+        saveEventStatuses(event, alertUsers);
+        mailUsers.forEach(userId -> saveMailEntityEvent(event, userId));
 
         // Remember we are done pre filtering this event
         this.events.prefilterEvent(event);
     }
 
-    private void saveEventStatus(Event event, String entityId)
+    private List<String> getListeningUsers(Event event, WikiReference wiki, List<DocumentReference> users,
+        NotificationFormat format)
+    {
+        List<String> listeningUsers = new ArrayList<>();
+
+        for (DocumentReference user : this.subscriptionIndex.getSubscribers(event, wiki, users, format)) {
+            if (this.userEventManager.isListening(event, user, format)) {
+                listeningUsers.add(this.entityReferenceSerializer.serialize(user));
+            }
+        }
+
+        return listeningUsers;
+    }
+
+    private void saveEventStatuses(Event event, List<String> entityIds)
     {
-        this.events.saveEventStatus(new DefaultEventStatus(event, entityId, false));
+        if (!entityIds.isEmpty()) {
+            // Save all the statuses with a single store call so that they are saved in the same batch
+            this.events.saveEventStatuses(entityIds.stream()
+                .map(entityId -> new DefaultEventStatus(event, entityId, false)).collect(Collectors.toList()));
+        }
     }
 
     private void saveMailEntityEvent(Event event, String entityId)
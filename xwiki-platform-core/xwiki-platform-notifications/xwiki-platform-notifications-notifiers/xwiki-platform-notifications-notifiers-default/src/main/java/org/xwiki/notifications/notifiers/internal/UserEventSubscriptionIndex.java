@@ -0,0 +1,360 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilterPreference;
+import org.xwiki.notifications.filters.NotificationFilterPreferenceManager;
+import org.xwiki.notifications.filters.NotificationFilterType;
+import org.xwiki.notifications.filters.internal.user.EventUserFilter;
+import org.xwiki.notifications.preferences.NotificationPreference;
+import org.xwiki.notifications.preferences.NotificationPreferenceManager;
+import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
+
+/**
+ * Index the users by the event types they enabled and the users they follow, to quickly find the users who might be
+ * listening to an event.
+ * <p>
+ * The index only contains the first conditions checked by {@link UserEventManager#isListening(Event,
+ * DocumentReference, NotificationFormat)} (an enabled notification preference for the event type or an enabled
+ * filter preference following the author of the event), the rights and the filters still have to be checked for each
+ * returned user. The lookups made by the {@link UserEventDispatcher} threads are synchronized, the invalidations sent
+ * by other threads are applied before each lookup.
+ * 
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = UserEventSubscriptionIndex.class)
+@Singleton
+public class UserEventSubscriptionIndex
+{
+    @Inject
+    private NotificationPreferenceManager notificationPreferenceManager;
+
+    @Inject
+    private NotificationFilterPreferenceManager notificationFilterPreferenceManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> referenceResolver;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<WikiReference, WikiSubscriptions> wikis = new HashMap<>();
+
+    private final Set<DocumentReference> invalidatedUsers = ConcurrentHashMap.newKeySet();
+
+    private final Set<DocumentReference> invalidatedDocuments = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean invalidated;
+
+    /**
+     * The subscriptions of a user.
+     */
+    private static final class UserSubscriptions
+    {
+        private final Map<NotificationFormat, Set<String>> eventTypes = new EnumMap<>(NotificationFormat.class);
+
+        private final Map<NotificationFormat, Set<DocumentReference>> followedUsers =
+            new EnumMap<>(NotificationFormat.class);
+    }
+
+    /**
+     * The subscriptions of the users of a wiki.
+     */
+    private static final class WikiSubscriptions
+    {
+        /**
+         * The list of users from which the index was built.
+         */
+        private final List<DocumentReference> users;
+
+        private final Map<DocumentReference, UserSubscriptions> subscriptions = new HashMap<>();
+
+        /**
+         * The users for which the subscriptions could not be loaded, they are returned for every event.
+         */
+        private final Set<DocumentReference> unknownUsers = new HashSet<>();
+
+        private final Map<NotificationFormat, Map<String, Set<DocumentReference>>> eventTypes =
+            new EnumMap<>(NotificationFormat.class);
+
+        private final Map<NotificationFormat, Map<DocumentReference, Set<DocumentReference>>> followedUsers =
+            new EnumMap<>(NotificationFormat.class);
+
+        WikiSubscriptions(List<DocumentReference> users)
+        {
+            this.users = users;
+        }
+
+        void add(DocumentReference user, UserSubscriptions userSubscriptions)
+        {
+            if (userSubscriptions == null) {
+                this.unknownUsers.add(user);
+            } else {
+                this.subscriptions.put(user, userSubscriptions);
+
+                index(user, userSubscriptions.eventTypes, this.eventTypes);
+                index(user, userSubscriptions.followedUsers, this.followedUsers);
+            }
+        }
+
+        void remove(DocumentReference user)
+        {
+            this.unknownUsers.remove(user);
+
+            UserSubscriptions userSubscriptions = this.subscriptions.remove(user);
+            if (userSubscriptions != null) {
+                unindex(user, userSubscriptions.eventTypes, this.eventTypes);
+                unindex(user, userSubscriptions.followedUsers, this.followedUsers);
+            }
+        }
+
+        boolean contains(DocumentReference user)
+        {
+            return this.subscriptions.containsKey(user) || this.unknownUsers.contains(user);
+        }
+
+        private <K> void index(DocumentReference user, Map<NotificationFormat, Set<K>> keys,
+            Map<NotificationFormat, Map<K, Set<DocumentReference>>> index)
+        {
+            for (Map.Entry<NotificationFormat, Set<K>> entry : keys.entrySet()) {
+                Map<K, Set<DocumentReference>> formatIndex =
+                    index.computeIfAbsent(entry.getKey(), k -> new HashMap<>());
+                for (K key : entry.getValue()) {
+                    formatIndex.computeIfAbsent(key, k -> new HashSet<>()).add(user);
+                }
+            }
+        }
+
+        private <K> void unindex(DocumentReference user, Map<NotificationFormat, Set<K>> keys,
+            Map<NotificationFormat, Map<K, Set<DocumentReference>>> index)
+        {
+            for (Map.Entry<NotificationFormat, Set<K>> entry : keys.entrySet()) {
+                Map<K, Set<DocumentReference>> formatIndex = index.get(entry.getKey());
+                for (K key : entry.getValue()) {
+                    Set<DocumentReference> keyUsers = formatIndex.get(key);
+                    keyUsers.remove(user);
+                    if (keyUsers.isEmpty()) {
+                        formatIndex.remove(key);
+                    }
+                }
+            }
+        }
+
+        <K> void get(NotificationFormat format, K key, Map<NotificationFormat, Map<K, Set<DocumentReference>>> index,
+            Set<DocumentReference> result)
+        {
+            Map<K, Set<DocumentReference>> formatIndex = index.get(format);
+            if (formatIndex != null) {
+                result.addAll(formatIndex.getOrDefault(key, Collections.emptySet()));
+            }
+        }
+    }
+
+    /**
+     * @param event the event
+     * @param wiki the wiki of the users
+     * @param users the users of the wiki
+     * @param format the format of the notification
+     * @return the users, among the passed ones, who might be listening to the passed event
+     */
+    public synchronized Set<DocumentReference> getSubscribers(Event event, WikiReference wiki,
+        List<DocumentReference> users, NotificationFormat format)
+    {
+        applyInvalidations();
+
+        WikiSubscriptions wikiSubscriptions = getWikiSubscriptions(wiki, users);
+
+        Set<DocumentReference> subscribers = new HashSet<>(wikiSubscriptions.unknownUsers);
+        if (event.getType() != null) {
+            wikiSubscriptions.get(format, event.getType(), wikiSubscriptions.eventTypes, subscribers);
+        }
+        if (event.getUser() != null) {
+            wikiSubscriptions.get(format, event.getUser(), wikiSubscriptions.followedUsers, subscribers);
+        }
+
+        return subscribers;
+    }
+
+    /**
+     * Indicate that the filter preferences of the passed user have been modified.
+     * 
+     * @param user the reference of the user
+     */
+    public void invalidateUser(DocumentReference user)
+    {
+        this.invalidatedUsers.add(user);
+    }
+
+    /**
+     * Indicate that the notification preferences stored in the passed document have been modified. If it's not the
+     * profile of a known user, the preferences of all the users might be impacted (default preferences).
+     * 
+     * @param document the reference of the document
+     */
+    public void invalidateDocument(DocumentReference document)
+    {
+        this.invalidatedDocuments.add(document);
+    }
+
+    /**
+     * Indicate that the preferences of any user might have been modified.
+     */
+    public void invalidate()
+    {
+        this.invalidated = true;
+    }
+
+    private void applyInvalidations()
+    {
+        for (Iterator<DocumentReference> it = this.invalidatedDocuments.iterator(); it.hasNext();) {
+            DocumentReference document = it.next();
+            it.remove();
+
+            WikiSubscriptions wikiSubscriptions = this.wikis.get(document.getWikiReference());
+            if (wikiSubscriptions != null && wikiSubscriptions.contains(document)) {
+                this.invalidatedUsers.add(document);
+            } else {
+                this.invalidated = true;
+            }
+        }
+
+        if (this.invalidated) {
+            this.invalidated = false;
+            this.invalidatedUsers.clear();
+            this.wikis.clear();
+        } else {
+            for (Iterator<DocumentReference> it = this.invalidatedUsers.iterator(); it.hasNext();) {
+                DocumentReference user = it.next();
+                it.remove();
+
+                WikiSubscriptions wikiSubscriptions = this.wikis.get(user.getWikiReference());
+                if (wikiSubscriptions != null && wikiSubscriptions.contains(user)) {
+                    wikiSubscriptions.remove(user);
+                    wikiSubscriptions.add(user, loadSubscriptions(user));
+                }
+            }
+        }
+    }
+
+    private WikiSubscriptions getWikiSubscriptions(WikiReference wiki, List<DocumentReference> users)
+    {
+        WikiSubscriptions wikiSubscriptions = this.wikis.get(wiki);
+
+        // The users cache return the same list instance as long as the users of the wiki did not change
+        if (wikiSubscriptions == null || wikiSubscriptions.users != users) {
+            WikiSubscriptions previousSubscriptions = wikiSubscriptions;
+
+            wikiSubscriptions = new WikiSubscriptions(users);
+            for (DocumentReference user : users) {
+                UserSubscriptions userSubscriptions = null;
+                if (previousSubscriptions != null) {
+                    userSubscriptions = previousSubscriptions.subscriptions.get(user);
+                }
+                if (userSubscriptions == null) {
+                    userSubscriptions = loadSubscriptions(user);
+                }
+
+                wikiSubscriptions.add(user, userSubscriptions);
+            }
+
+            this.wikis.put(wiki, wikiSubscriptions);
+        }
+
+        return wikiSubscriptions;
+    }
+
+    private UserSubscriptions loadSubscriptions(DocumentReference user)
+    {
+        UserSubscriptions userSubscriptions = new UserSubscriptions();
+
+        try {
+            loadEventTypes(user, userSubscriptions);
+            loadFollowedUsers(user, userSubscriptions);
+        } catch (NotificationException e) {
+            this.logger.warn("Failed to load the notification preferences of user [{}]: {}", user,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return null;
+        }
+
+        return userSubscriptions;
+    }
+
+    private void loadEventTypes(DocumentReference user, UserSubscriptions userSubscriptions)
+        throws NotificationException
+    {
+        Map<NotificationFormat, Set<String>> matchedEventTypes = new EnumMap<>(NotificationFormat.class);
+
+        for (NotificationPreference preference : this.notificationPreferenceManager.getAllPreferences(user)) {
+            Object eventType = preference.getProperties().get(NotificationPreferenceProperty.EVENT_TYPE);
+            NotificationFormat format = preference.getFormat();
+
+            // Only the first preference matching a format and an event type is taken into account
+            if (format != null && eventType instanceof String
+                && matchedEventTypes.computeIfAbsent(format, k -> new HashSet<>()).add((String) eventType)
+                && preference.isNotificationEnabled()) {
+                userSubscriptions.eventTypes.computeIfAbsent(format, k -> new HashSet<>()).add((String) eventType);
+            }
+        }
+    }
+
+    private void loadFollowedUsers(DocumentReference user, UserSubscriptions userSubscriptions)
+        throws NotificationException
+    {
+        Collection<NotificationFilterPreference> filterPreferences =
+            this.notificationFilterPreferenceManager.getFilterPreferences(user);
+
+        for (NotificationFilterPreference filterPreference : filterPreferences) {
+            // When the list of event types concerned by the filter is empty, the filter concerns all events
+            if (filterPreference.isEnabled() && EventUserFilter.FILTER_NAME.equals(filterPreference.getFilterName())
+                && filterPreference.getFilterType() == NotificationFilterType.INCLUSIVE
+                && filterPreference.getEventTypes().isEmpty() && filterPreference.getUser() != null) {
+                DocumentReference followedUser = this.referenceResolver.resolve(filterPreference.getUser());
+                for (NotificationFormat format : filterPreference.getNotificationFormats()) {
+                    userSubscriptions.followedUsers.computeIfAbsent(format, k -> new HashSet<>()).add(followedUser);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.notifications.filters.internal.event.AbstractNotificationFilterPreferenceEvent;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceAddOrUpdatedEvent;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceDeletedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceAddedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceDeletedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceUpdatedEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Keep the {@link UserEventSubscriptionIndex} up to date with the notification preferences modifications.
+ * 
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Named(UserEventSubscriptionIndexListener.NAME)
+@Singleton
+public class UserEventSubscriptionIndexListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.notifications.notifiers.internal.UserEventSubscriptionIndexListener";
+
+    @Inject
+    private UserEventSubscriptionIndex index;
+
+    /**
+     * Configure the listener.
+     */
+    public UserEventSubscriptionIndexListener()
+    {
+        super(NAME, new NotificationPreferenceAddedEvent(), new NotificationPreferenceUpdatedEvent(),
+            new NotificationPreferenceDeletedEvent(), new NotificationFilterPreferenceAddOrUpdatedEvent(),
+            new NotificationFilterPreferenceDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof AbstractNotificationFilterPreferenceEvent && source instanceof DocumentReference) {
+            this.index.invalidateUser((DocumentReference) source);
+        } else if (source instanceof DocumentReference) {
+            // The notification preference events send the reference of the modified document
+            this.index.invalidateDocument((DocumentReference) source);
+        } else if (source instanceof DocumentModelBridge) {
+            this.index.invalidateDocument(((DocumentModelBridge) source).getDocumentReference());
+        } else {
+            // We don't know which preferences have been modified (for example when the event comes from another
+            // cluster member)
+            this.index.invalidate();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal.jmx;
+
+import org.xwiki.notifications.notifiers.internal.UserEventDispatcher;
+
+/**
+ * Implementation of the user event dispatcher JMX MBean.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class JMXUserEventDispatcher implements JMXUserEventDispatcherMBean
+{
+    private final UserEventDispatcher dispatcher;
+
+    /**
+     * @param dispatcher the dispatcher to monitor
+     */
+    public JMXUserEventDispatcher(UserEventDispatcher dispatcher)
+    {
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public int getQueueSize()
+    {
+        return this.dispatcher.getQueueSize();
+    }
+
+    @Override
+    public int getThreadNumber()
+    {
+        return this.dispatcher.getThreadNumber();
+    }
+
+    @Override
+    public long getDispatchedEventCount()
+    {
+        return this.dispatcher.getDispatchedEventCount();
+    }
+
+    @Override
+    public long getAverageDispatchDuration()
+    {
+        return this.dispatcher.getAverageDispatchDuration();
+    }
+
+    @Override
+    public long getLastDispatchLatency()
+    {
+        return this.dispatcher.getLastDispatchLatency();
+    }
+}
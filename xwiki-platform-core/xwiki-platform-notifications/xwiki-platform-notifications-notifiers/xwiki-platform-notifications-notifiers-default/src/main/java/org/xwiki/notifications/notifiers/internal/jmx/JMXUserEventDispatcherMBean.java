@@ -0,0 +1,55 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal.jmx;
+
+/**
+ * Interface of the user event dispatcher JMX MBean.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public interface JMXUserEventDispatcherMBean
+{
+    /**
+     * @return the number of events waiting to be dispatched to the users
+     */
+    int getQueueSize();
+
+    /**
+     * @return the current number of threads dedicated to the dispatch of the events
+     */
+    int getThreadNumber();
+
+    /**
+     * @return the number of events dispatched since the start
+     */
+    long getDispatchedEventCount();
+
+    /**
+     * @return the average time spent dispatching an event, in milliseconds
+     */
+    long getAverageDispatchDuration();
+
+    /**
+     * @return the time between the creation of the last dispatched event and the end of its dispatch, in
+     *         milliseconds
+     */
+    long getLastDispatchLatency();
+}
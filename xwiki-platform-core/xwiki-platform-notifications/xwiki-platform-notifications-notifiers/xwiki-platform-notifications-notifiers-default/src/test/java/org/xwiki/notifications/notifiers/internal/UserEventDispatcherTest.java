@@ -0,0 +1,239 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStatus;
+import org.xwiki.eventstream.EventStore;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.notifiers.internal.jmx.JMXUserEventDispatcherMBean;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.user.internal.group.UsersCache;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link UserEventDispatcher}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class UserEventDispatcherTest
+{
+    private static final int THREADS = 3;
+
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final DocumentReference USER1 = new DocumentReference("wiki", "XWiki", "User1");
+
+    private static final DocumentReference USER2 = new DocumentReference("wiki", "XWiki", "User2");
+
+    private static final List<DocumentReference> USERS = Arrays.asList(USER1, USER2);
+
+    @InjectMockComponents
+    private UserEventDispatcher dispatcher;
+
+    @MockComponent
+    private NotificationConfiguration configuration;
+
+    @MockComponent
+    private UsersCache usersCache;
+
+    @MockComponent
+    private WikiDescriptorManager wikiManager;
+
+    @MockComponent
+    private UserEventSubscriptionIndex subscriptionIndex;
+
+    @MockComponent
+    private UserEventManager userEventManager;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @MockComponent
+    private EventStore store;
+
+    @MockComponent
+    private JMXBeanRegistration jmxRegistration;
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        // The threads are started when the component is initialized
+        when(this.configuration.getEventPrefilteringPoolSize()).thenReturn(THREADS);
+    }
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.wikiManager.isMainWiki(WIKI.getName())).thenReturn(true);
+        when(this.usersCache.getUsers(WIKI, true)).thenReturn(USERS);
+        when(this.subscriptionIndex.getSubscribers(any(), eq(WIKI), eq(USERS), eq(NotificationFormat.ALERT)))
+            .thenReturn(USERS);
+        when(this.userEventManager.isListening(any(), any(), eq(NotificationFormat.ALERT))).thenReturn(true);
+        when(this.serializer.serialize(any())).then(invocation -> String.valueOf(invocation.<Object>getArgument(0)));
+    }
+
+    @AfterEach
+    void afterEach() throws Exception
+    {
+        this.dispatcher.dispose();
+    }
+
+    private Event event(String id)
+    {
+        Event event = mock(Event.class, id);
+        when(event.getId()).thenReturn(id);
+        when(event.getWiki()).thenReturn(WIKI);
+
+        return event;
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException
+    {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+
+    private JMXUserEventDispatcherMBean getMBean()
+    {
+        ArgumentCaptor<Object> mbean = ArgumentCaptor.forClass(Object.class);
+        verify(this.jmxRegistration).registerMBean(mbean.capture(), eq("name=notifications.dispatcher"));
+
+        return (JMXUserEventDispatcherMBean) mbean.getValue();
+    }
+
+    @Test
+    void dispatchInParallel() throws Exception
+    {
+        // Each dispatch waits for the others to be running at the same time
+        CountDownLatch runningLatch = new CountDownLatch(THREADS);
+        AtomicInteger parallelDispatches = new AtomicInteger();
+        when(this.store.prefilterEvent(any())).then(invocation -> {
+            runningLatch.countDown();
+            if (runningLatch.await(10, TimeUnit.SECONDS)) {
+                parallelDispatches.incrementAndGet();
+            }
+
+            return null;
+        });
+
+        for (int i = 0; i < THREADS; ++i) {
+            this.dispatcher.addEvent(event("event" + i));
+        }
+
+        waitFor(() -> this.dispatcher.getDispatchedEventCount() == THREADS);
+
+        assertEquals(THREADS, parallelDispatches.get());
+
+        // The statuses of each event are saved with a single call
+        ArgumentCaptor<Collection<EventStatus>> statuses = ArgumentCaptor.forClass(Collection.class);
+        verify(this.store, times(THREADS)).saveEventStatuses(statuses.capture());
+        for (Collection<EventStatus> eventStatuses : statuses.getAllValues()) {
+            assertEquals(Arrays.asList(USER1.toString(), USER2.toString()),
+                eventStatuses.stream().map(EventStatus::getEntityId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void disposeWithEventsInFlight() throws Exception
+    {
+        CountDownLatch dispatchLatch = new CountDownLatch(1);
+        when(this.store.prefilterEvent(any())).then(invocation -> {
+            dispatchLatch.await(10, TimeUnit.SECONDS);
+
+            return null;
+        });
+
+        // More events than threads: some are being dispatched and some are waiting in the queue
+        for (int i = 0; i < THREADS + 2; ++i) {
+            this.dispatcher.addEvent(event("event" + i));
+        }
+        waitFor(() -> this.dispatcher.getQueueSize() == 2);
+
+        this.dispatcher.dispose();
+        verify(this.jmxRegistration).unregisterMBean("name=notifications.dispatcher");
+
+        // The threads are still running until the events queued before the stop are dispatched
+        assertEquals(THREADS, this.dispatcher.getThreadNumber());
+
+        dispatchLatch.countDown();
+        waitFor(() -> this.dispatcher.getThreadNumber() == 0);
+
+        assertEquals(0, this.dispatcher.getThreadNumber());
+        assertEquals(THREADS + 2, this.dispatcher.getDispatchedEventCount());
+        verify(this.store, times(THREADS + 2)).prefilterEvent(any());
+
+        // The events added after the stop are ignored
+        this.dispatcher.addEvent(event("ignored"));
+        assertEquals(0, this.dispatcher.getQueueSize());
+    }
+
+    @Test
+    void jmxAttributes() throws Exception
+    {
+        JMXUserEventDispatcherMBean mbean = getMBean();
+
+        assertEquals(THREADS, mbean.getThreadNumber());
+        assertEquals(0, mbean.getQueueSize());
+        assertEquals(0, mbean.getDispatchedEventCount());
+
+        Event event = event("event");
+        this.dispatcher.addEvent(event);
+        waitFor(() -> mbean.getDispatchedEventCount() == 1);
+
+        assertEquals(1, mbean.getDispatchedEventCount());
+        assertEquals(0, mbean.getQueueSize());
+        assertTrue(mbean.getAverageDispatchDuration() >= 0);
+        verify(this.store).prefilterEvent(event);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceAddOrUpdatedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceAddedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceDeletedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceUpdatedEvent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Validate {@link UserEventSubscriptionIndexListener}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class UserEventSubscriptionIndexListenerTest
+{
+    private static final DocumentReference USER = new DocumentReference("wiki", "XWiki", "User");
+
+    @InjectMockComponents
+    private UserEventSubscriptionIndexListener listener;
+
+    @MockComponent
+    private UserEventSubscriptionIndex index;
+
+    @Test
+    void onNotificationPreferenceEventWithDocumentReference()
+    {
+        this.listener.onEvent(new NotificationPreferenceAddedEvent(), USER, null);
+        this.listener.onEvent(new NotificationPreferenceUpdatedEvent(), USER, null);
+        this.listener.onEvent(new NotificationPreferenceDeletedEvent(), USER, null);
+
+        verify(this.index, times(3)).invalidateDocument(USER);
+        verifyNoMoreInteractions(this.index);
+    }
+
+    @Test
+    void onNotificationFilterPreferenceEvent()
+    {
+        this.listener.onEvent(new NotificationFilterPreferenceAddOrUpdatedEvent(), USER, null);
+
+        verify(this.index).invalidateUser(USER);
+        verifyNoMoreInteractions(this.index);
+    }
+
+    @Test
+    void onEventWithoutSource()
+    {
+        this.listener.onEvent(new NotificationPreferenceUpdatedEvent(), null, null);
+
+        verify(this.index).invalidate();
+        verifyNoMoreInteractions(this.index);
+    }
+}
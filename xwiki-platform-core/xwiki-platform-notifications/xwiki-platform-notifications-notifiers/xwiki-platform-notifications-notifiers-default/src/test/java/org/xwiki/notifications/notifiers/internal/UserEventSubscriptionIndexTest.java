@@ -0,0 +1,202 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.internal.util.collections.Sets;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilterPreference;
+import org.xwiki.notifications.filters.NotificationFilterPreferenceManager;
+import org.xwiki.notifications.filters.NotificationFilterType;
+import org.xwiki.notifications.filters.internal.user.EventUserFilter;
+import org.xwiki.notifications.preferences.NotificationPreference;
+import org.xwiki.notifications.preferences.NotificationPreferenceManager;
+import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static java.util.Collections.emptySet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link UserEventSubscriptionIndex}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class UserEventSubscriptionIndexTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final DocumentReference USER1 = new DocumentReference("wiki", "XWiki", "User1");
+
+    private static final DocumentReference USER2 = new DocumentReference("wiki", "XWiki", "User2");
+
+    private static final DocumentReference USER3 = new DocumentReference("wiki", "XWiki", "User3");
+
+    private static final DocumentReference AUTHOR = new DocumentReference("wiki", "XWiki", "Author");
+
+    private static final List<DocumentReference> USERS = Arrays.asList(USER1, USER2, USER3);
+
+    @InjectMockComponents
+    private UserEventSubscriptionIndex index;
+
+    @MockComponent
+    private NotificationPreferenceManager notificationPreferenceManager;
+
+    @MockComponent
+    private NotificationFilterPreferenceManager notificationFilterPreferenceManager;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> referenceResolver;
+
+    private Event event;
+
+    @BeforeEach
+    public void beforeEach() throws NotificationException
+    {
+        this.event = mock(Event.class);
+        when(this.event.getType()).thenReturn("update");
+        when(this.event.getUser()).thenReturn(AUTHOR);
+
+        when(this.referenceResolver.resolve("wiki:XWiki.Author")).thenReturn(AUTHOR);
+
+        // User1 enabled the event type
+        when(this.notificationPreferenceManager.getAllPreferences(USER1)).thenReturn(
+            Arrays.asList(preference("update", NotificationFormat.ALERT, true),
+                preference("create", NotificationFormat.EMAIL, true)));
+        when(this.notificationFilterPreferenceManager.getFilterPreferences(USER1)).thenReturn(emptySet());
+
+        // User2 disabled the event type (only the first preference is taken into account)
+        when(this.notificationPreferenceManager.getAllPreferences(USER2)).thenReturn(
+            Arrays.asList(preference("update", NotificationFormat.ALERT, false),
+                preference("update", NotificationFormat.ALERT, true)));
+        when(this.notificationFilterPreferenceManager.getFilterPreferences(USER2)).thenReturn(emptySet());
+
+        // User3 follows the author of the event
+        when(this.notificationPreferenceManager.getAllPreferences(USER3)).thenReturn(Collections.emptyList());
+        NotificationFilterPreference filterPreference = mock(NotificationFilterPreference.class);
+        when(filterPreference.isEnabled()).thenReturn(true);
+        when(filterPreference.getFilterName()).thenReturn(EventUserFilter.FILTER_NAME);
+        when(filterPreference.getFilterType()).thenReturn(NotificationFilterType.INCLUSIVE);
+        when(filterPreference.getEventTypes()).thenReturn(emptySet());
+        when(filterPreference.getUser()).thenReturn("wiki:XWiki.Author");
+        when(filterPreference.getNotificationFormats())
+            .thenReturn(Collections.singleton(NotificationFormat.ALERT));
+        when(this.notificationFilterPreferenceManager.getFilterPreferences(USER3))
+            .thenReturn(Collections.singletonList(filterPreference));
+    }
+
+    private NotificationPreference preference(String eventType, NotificationFormat format, boolean enabled)
+    {
+        NotificationPreference preference = mock(NotificationPreference.class);
+
+        Map<NotificationPreferenceProperty, Object> properties = new HashMap<>();
+        properties.put(NotificationPreferenceProperty.EVENT_TYPE, eventType);
+        when(preference.getProperties()).thenReturn(properties);
+        when(preference.getFormat()).thenReturn(format);
+        when(preference.isNotificationEnabled()).thenReturn(enabled);
+
+        return preference;
+    }
+
+    @Test
+    public void getSubscribers() throws NotificationException
+    {
+        assertEquals(Sets.newSet(USER1, USER3),
+            this.index.getSubscribers(this.event, WIKI, USERS, NotificationFormat.ALERT));
+        assertEquals(emptySet(), this.index.getSubscribers(this.event, WIKI, USERS, NotificationFormat.EMAIL));
+
+        // The preferences are loaded only once
+        verify(this.notificationPreferenceManager).getAllPreferences(USER1);
+
+        // Only the subscribers present in the passed list are returned
+        List<DocumentReference> users = Arrays.asList(USER1, USER2);
+        assertEquals(Sets.newSet(USER1),
+            this.index.getSubscribers(this.event, WIKI, users, NotificationFormat.ALERT));
+        verify(this.notificationPreferenceManager).getAllPreferences(USER1);
+    }
+
+    @Test
+    public void invalidateUser() throws NotificationException
+    {
+        assertEquals(Sets.newSet(USER1, USER3),
+            this.index.getSubscribers(this.event, WIKI, USERS, NotificationFormat.ALERT));
+
+        when(this.notificationPreferenceManager.getAllPreferences(USER2))
+            .thenReturn(Arrays.asList(preference("update", NotificationFormat.ALERT, true)));
+        this.index.invalidateUser(USER2);
+
+        assertEquals(Sets.newSet(USER1, USER2, USER3),
+            this.index.getSubscribers(this.event, WIKI, USERS, NotificationFormat.ALERT));
+
+        verify(this.notificationPreferenceManager).getAllPreferences(USER1);
+        verify(this.notificationPreferenceManager, times(2)).getAllPreferences(USER2);
+    }
+
+    @Test
+    public void invalidateDocument() throws NotificationException
+    {
+        this.index.getSubscribers(this.event, WIKI, USERS, NotificationFormat.ALERT);
+
+        // A user profile only invalidate the user
+        this.index.invalidateDocument(USER1);
+        this.index.getSubscribers(this.event, WIKI, USERS, NotificationFormat.ALERT);
+
+        verify(this.notificationPreferenceManager, times(2)).getAllPreferences(USER1);
+        verify(this.notificationPreferenceManager).getAllPreferences(USER2);
+
+        // Any other document invalidate all the users
+        this.index.invalidateDocument(new DocumentReference("wiki", "XWiki", "XWikiPreferences"));
+        this.index.getSubscribers(this.event, WIKI, USERS, NotificationFormat.ALERT);
+
+        verify(this.notificationPreferenceManager, times(3)).getAllPreferences(USER1);
+        verify(this.notificationPreferenceManager, times(2)).getAllPreferences(USER2);
+    }
+
+    @Test
+    public void getSubscribersWhenPreferencesFailToLoad() throws NotificationException
+    {
+        when(this.notificationPreferenceManager.getAllPreferences(USER2)).thenThrow(NotificationException.class);
+
+        // The user is checked for each event
+        assertEquals(Sets.newSet(USER1, USER2, USER3),
+            this.index.getSubscribers(this.event, WIKI, USERS, NotificationFormat.ALERT));
+        assertEquals(Sets.newSet(USER2),
+            this.index.getSubscribers(this.event, WIKI, USERS, NotificationFormat.EMAIL));
+    }
+}
@@ -21,6 +21,13 @@
 
 /**
  * Event generated when a notification preference is deleted.
+ * <p>
+ * The event also send the following parameters:
+ * </p>
+ * <ul>
+ * <li>source: the reference of the document containing the notification preference, if known</li>
+ * <li>data: null</li>
+ * </ul>
  * 
  * @version $Id$
  * @since 10.11.4
@@ -24,6 +24,7 @@
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.RegexEntityReference;
 import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceAddedEvent;
 import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceDeletedEvent;
@@ -32,6 +33,7 @@
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.event.Event;
 
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.event.XObjectAddedEvent;
 import com.xpn.xwiki.internal.event.XObjectDeletedEvent;
 import com.xpn.xwiki.internal.event.XObjectUpdatedEvent;
@@ -72,12 +74,16 @@ public NotificationPreferenceEventGeneratorListener()
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
+        // Send the reference of the document and not the document itself so that the event can be sent to the other
+        // members of the cluster
+        DocumentReference documentReference = ((XWikiDocument) source).getDocumentReference();
+
         if (event instanceof XObjectAddedEvent) {
-            this.observation.notify(new NotificationPreferenceAddedEvent(), null);
+            this.observation.notify(new NotificationPreferenceAddedEvent(), documentReference);
         } else if (event instanceof XObjectUpdatedEvent) {
-            this.observation.notify(new NotificationPreferenceUpdatedEvent(), null);
+            this.observation.notify(new NotificationPreferenceUpdatedEvent(), documentReference);
         } else if (event instanceof XObjectDeletedEvent) {
-            this.observation.notify(new NotificationPreferenceDeletedEvent(), null);
+            this.observation.notify(new NotificationPreferenceDeletedEvent(), documentReference);
         }
     }
 }
@@ -19,9 +19,11 @@
  */
 package org.xwiki.observation.remote;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Provide configuration for remote observation manager.
@@ -46,4 +48,49 @@
      * @return the identifier of the network adapter implementation to use to actually send and receive network messages
      */
     String getNetworkAdapter();
+
+    /**
+     * @return the time in milliseconds during which the events to send are accumulated to be sent together, 0 to send
+     *         each event as soon as possible
+     * @since 12.6RC1
+     */
+    @Unstable
+    default long getBatchDelay()
+    {
+        return 10;
+    }
+
+    /**
+     * @return the maximum number of events sent together
+     * @since 12.6RC1
+     */
+    @Unstable
+    default int getBatchMaxSize()
+    {
+        return 1000;
+    }
+
+    /**
+     * @return the class names of the events which are only used to invalidate caches on the other members of the
+     *         cluster: when the same event is sent several times for the same entity in a batch, only the last one is
+     *         actually sent
+     * @since 12.6RC1
+     */
+    @Unstable
+    default List<String> getBatchCoalescedEvents()
+    {
+        return Arrays.asList("org.xwiki.bridge.event.DocumentUpdatedEvent",
+            "org.xwiki.bridge.event.DocumentDeletedEvent");
+    }
+
+    /**
+     * @return the hint of the {@link org.xwiki.observation.remote.converter.RemoteEventDataCodec} to use to encode the
+     *         events sent on the network
+     * @since 12.6RC1
+     */
+    @Unstable
+    default String getCodec()
+    {
+        return "java";
+    }
 }
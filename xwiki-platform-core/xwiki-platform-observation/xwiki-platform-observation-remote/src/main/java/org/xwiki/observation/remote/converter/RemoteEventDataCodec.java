@@ -0,0 +1,55 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Encode the remote events sent together on the network and decode them on the other side. The role hint of the
+ * codec used to encode a batch of events is sent with it so that the receiver can find the codec to use to decode it.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Role
+@Unstable
+public interface RemoteEventDataCodec
+{
+    /**
+     * @param events the events to encode
+     * @param stream the stream where to write the encoded events
+     * @throws IOException when failing to encode the events
+     */
+    void encode(List<RemoteEventData> events, OutputStream stream) throws IOException;
+
+    /**
+     * @param stream the stream containing the encoded events
+     * @return the decoded events
+     * @throws IOException when failing to decode the events
+     */
+    List<RemoteEventData> decode(InputStream stream) throws IOException;
+}
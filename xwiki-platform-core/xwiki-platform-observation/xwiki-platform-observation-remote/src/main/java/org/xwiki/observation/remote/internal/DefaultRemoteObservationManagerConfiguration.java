@@ -69,4 +69,35 @@ public String getNetworkAdapter()
     {
         return this.configurationSource.getProperty("observation.remote.networkadapter", "jgroups");
     }
+
+    @Override
+    public long getBatchDelay()
+    {
+        return this.configurationSource.getProperty("observation.remote.batch.delay",
+            RemoteObservationManagerConfiguration.super.getBatchDelay());
+    }
+
+    @Override
+    public int getBatchMaxSize()
+    {
+        return this.configurationSource.getProperty("observation.remote.batch.maxSize",
+            RemoteObservationManagerConfiguration.super.getBatchMaxSize());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> getBatchCoalescedEvents()
+    {
+        List<String> events = this.configurationSource.getProperty("observation.remote.batch.coalescedEvents",
+            List.class);
+
+        return events != null ? events : RemoteObservationManagerConfiguration.super.getBatchCoalescedEvents();
+    }
+
+    @Override
+    public String getCodec()
+    {
+        return this.configurationSource.getProperty("observation.remote.codec",
+            RemoteObservationManagerConfiguration.super.getCodec());
+    }
 }
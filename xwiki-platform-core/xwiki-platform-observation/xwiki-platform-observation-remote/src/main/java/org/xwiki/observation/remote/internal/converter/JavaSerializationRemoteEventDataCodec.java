@@ -0,0 +1,125 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventDataCodec;
+
+/**
+ * A {@link RemoteEventDataCodec} based on standard Java serialization, compressed with {@link Deflater}.
+ * <p>
+ * It's not a compact encoding of the events (each event is still serialized with the standard Java serialization) but
+ * all the events of a batch are written in the same stream so that the description of the classes and the objects
+ * shared between events (like the document references or the context information sent with most of the document
+ * events) are written only once, and the whole stream is compressed.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Named(JavaSerializationRemoteEventDataCodec.HINT)
+@Singleton
+public class JavaSerializationRemoteEventDataCodec implements RemoteEventDataCodec
+{
+    /**
+     * The role hint of this codec.
+     */
+    public static final String HINT = "java";
+
+    private static final class ContextClassLoaderObjectInputStream extends ObjectInputStream
+    {
+        ContextClassLoaderObjectInputStream(InputStream stream) throws IOException
+        {
+            super(stream);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException
+        {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // Fallback on the standard behavior
+                }
+            }
+
+            return super.resolveClass(desc);
+        }
+    }
+
+    @Override
+    public void encode(List<RemoteEventData> events, OutputStream stream) throws IOException
+    {
+        DeflaterOutputStream deflaterStream = new DeflaterOutputStream(stream, new Deflater(Deflater.BEST_SPEED));
+        ObjectOutputStream objectStream = new ObjectOutputStream(deflaterStream);
+
+        objectStream.writeInt(events.size());
+        for (RemoteEventData event : events) {
+            objectStream.writeObject(event.getEvent());
+            objectStream.writeObject(event.getSource());
+            objectStream.writeObject(event.getData());
+        }
+
+        objectStream.flush();
+        deflaterStream.finish();
+    }
+
+    @Override
+    public List<RemoteEventData> decode(InputStream stream) throws IOException
+    {
+        ObjectInputStream objectStream = new ContextClassLoaderObjectInputStream(new InflaterInputStream(stream));
+
+        try {
+            int size = objectStream.readInt();
+            List<RemoteEventData> events = new ArrayList<>();
+            for (int i = 0; i < size; ++i) {
+                Serializable event = (Serializable) objectStream.readObject();
+                Serializable source = (Serializable) objectStream.readObject();
+                Serializable data = (Serializable) objectStream.readObject();
+
+                events.add(new RemoteEventData(event, source, data));
+            }
+
+            return events;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Failed to find the class of a remote event", e);
+        }
+    }
+}
@@ -19,6 +19,8 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -60,6 +62,12 @@ public class DefaultJGroupsReceiver extends ReceiverAdapter implements JGroupsRe
     @Inject
     private Logger logger;
 
+    /**
+     * Used to read the events contained in the received messages.
+     */
+    @Inject
+    private JGroupsMessageSerializer serializer;
+
     /**
      * @return the RemoteObservationManager
      */
@@ -79,10 +87,19 @@ public RemoteObservationManager getRemoteObservationManager()
     @Override
     public void receive(Message msg)
     {
-        RemoteEventData remoteEvent = (RemoteEventData) msg.getObject();
+        List<RemoteEventData> remoteEvents;
+        try {
+            remoteEvents = this.serializer.unserialize(msg);
+        } catch (Exception e) {
+            this.logger.error("Failed to read the remote events received from [{}]", msg.getSrc(), e);
+
+            return;
+        }
 
-        this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+        for (RemoteEventData remoteEvent : remoteEvents) {
+            this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
 
-        getRemoteObservationManager().notify(remoteEvent);
+            getRemoteObservationManager().notify(remoteEvent);
+        }
     }
 }
@@ -0,0 +1,109 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jgroups.Message;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
+import org.xwiki.observation.remote.converter.RemoteEventDataCodec;
+
+/**
+ * Convert a batch of remote events to the content of a JGroups message and back.
+ * <p>
+ * The content starts with a marker followed by the hint of the {@link RemoteEventDataCodec} used to encode the events.
+ * Messages without this marker are considered to contain a single {@link RemoteEventData} serialized by JGroups.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = JGroupsMessageSerializer.class)
+@Singleton
+public class JGroupsMessageSerializer
+{
+    private static final byte[] MARKER = { 'X', 'E' };
+
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private RemoteObservationManagerConfiguration configuration;
+
+    /**
+     * @param events the events to serialize
+     * @return the content of the message to send
+     * @throws IOException when failing to encode the events
+     * @throws ComponentLookupException when failing to find the configured codec
+     */
+    public byte[] serialize(List<RemoteEventData> events) throws IOException, ComponentLookupException
+    {
+        String hint = this.configuration.getCodec();
+        RemoteEventDataCodec codec = this.componentManager.getInstance(RemoteEventDataCodec.class, hint);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream dataStream = new DataOutputStream(stream);
+        dataStream.write(MARKER);
+        dataStream.writeUTF(hint);
+        dataStream.flush();
+
+        codec.encode(events, stream);
+
+        return stream.toByteArray();
+    }
+
+    /**
+     * @param message the received message
+     * @return the events contained in the message
+     * @throws IOException when failing to decode the events
+     * @throws ComponentLookupException when failing to find the codec used to encode the events
+     */
+    public List<RemoteEventData> unserialize(Message message) throws IOException, ComponentLookupException
+    {
+        byte[] buffer = message.getRawBuffer();
+        int offset = message.getOffset();
+        int length = message.getLength();
+
+        if (buffer == null || length < MARKER.length || buffer[offset] != MARKER[0]
+            || buffer[offset + 1] != MARKER[1]) {
+            // Single event serialized by JGroups
+            return Collections.singletonList((RemoteEventData) message.getObject());
+        }
+
+        DataInputStream stream =
+            new DataInputStream(new ByteArrayInputStream(buffer, offset + MARKER.length, length - MARKER.length));
+        String hint = stream.readUTF();
+        RemoteEventDataCodec codec = this.componentManager.getInstance(RemoteEventDataCodec.class, hint);
+
+        return codec.decode(stream);
+    }
+}
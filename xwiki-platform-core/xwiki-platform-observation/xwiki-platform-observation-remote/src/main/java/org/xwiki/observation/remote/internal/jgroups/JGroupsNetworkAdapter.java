@@ -21,10 +21,21 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -40,12 +51,17 @@
 import org.jgroups.jmx.JmxConfigurator;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
 import org.xwiki.environment.Environment;
 import org.xwiki.observation.remote.NetworkAdapter;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteEventException;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
@@ -57,13 +73,18 @@
 @Component
 @Named("jgroups")
 @Singleton
-public class JGroupsNetworkAdapter implements NetworkAdapter
+public class JGroupsNetworkAdapter implements NetworkAdapter, Initializable, Disposable
 {
     /**
      * Relative path where to find jgroups channels configurations.
      */
     public static final String CONFIGURATION_PATH = "observation/remote/jgroups/";
 
+    /**
+     * Queued to ask the batch thread to stop once the events queued before have been sent.
+     */
+    private static final RemoteEventData STOP = new RemoteEventData(null, null, null);
+
     /**
      * Used to lookup the receiver corresponding to the channel identifier.
      */
@@ -81,21 +102,197 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
      */
     private Map<String, JChannel> channels = new ConcurrentHashMap<String, JChannel>();
 
+    /**
+     * Used to know how to batch the events.
+     */
+    @Inject
+    private RemoteObservationManagerConfiguration configuration;
+
+    /**
+     * Used to convert the events to messages content.
+     */
+    @Inject
+    private JGroupsMessageSerializer serializer;
+
+    /**
+     * The events waiting to be sent.
+     */
+    private final BlockingQueue<RemoteEventData> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Used to make sure no event is added to the queue once the batch thread is asked to stop.
+     */
+    private final Object batchLock = new Object();
+
+    /**
+     * The thread sending the events by batches, {@code null} if each event is sent right away.
+     */
+    private Thread batchThread;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        startBatchThread();
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        stopBatchThread();
+    }
+
     @Override
     public void send(RemoteEventData remoteEvent)
     {
         this.logger.debug("Send JGroups remote event [" + remoteEvent + "]");
 
-        // Send the message to the whole group
-        Message message = new Message(null, remoteEvent);
+        synchronized (this.batchLock) {
+            if (this.batchThread != null) {
+                this.queue.add(remoteEvent);
+
+                return;
+            }
+        }
+
+        send(Collections.singletonList(remoteEvent));
+    }
+
+    private void startBatchThread()
+    {
+        if (this.configuration.getBatchDelay() > 0) {
+            synchronized (this.batchLock) {
+                if (this.batchThread == null) {
+                    this.batchThread = new Thread(this::runBatches, "XWiki remote events batching");
+                    this.batchThread.setDaemon(true);
+                    this.batchThread.start();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for the batch thread to send the events waiting in the queue and stop it. The events sent after that are
+     * sent right away.
+     */
+    private void stopBatchThread()
+    {
+        Thread thread;
+        synchronized (this.batchLock) {
+            thread = this.batchThread;
+
+            if (thread != null) {
+                // No other event can be queued after the stop marker
+                this.queue.add(STOP);
+                this.batchThread = null;
+            }
+        }
+
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                this.logger.warn("Interrupted while waiting for the remote events to be sent");
+
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Gather the events sent during the configured delay and send them in a single message, until the stop marker is
+     * found.
+     */
+    private void runBatches()
+    {
+        long delay = this.configuration.getBatchDelay();
+        int maxSize = Math.max(1, this.configuration.getBatchMaxSize());
+
+        List<RemoteEventData> events = new ArrayList<>();
+        boolean stopped = false;
+        try {
+            while (!stopped) {
+                events.add(this.queue.take());
+                this.queue.drainTo(events, maxSize - events.size());
+
+                // Wait for the other events sent in the meantime, unless the batch is already full or asked to stop
+                if (events.size() < maxSize && !events.contains(STOP)) {
+                    Thread.sleep(delay);
+                    this.queue.drainTo(events, maxSize - events.size());
+                }
+
+                // The stop marker is always the last queued event
+                stopped = events.remove(STOP);
+
+                if (!events.isEmpty()) {
+                    send(coalesce(events));
+                    events.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            this.logger.warn("The remote events batching thread has been interrupted, [{}] events won't be sent",
+                events.size() + this.queue.size());
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Remove the invalidation events which are sent again later in the same batch for the same entity (for example
+     * several invalidations of the same document), only the last one being kept so that the entity is invalidated after
+     * all the other events of the batch. The other events are never removed.
+     *
+     * @param events the events to filter
+     * @return the events to actually send
+     */
+    private List<RemoteEventData> coalesce(List<RemoteEventData> events)
+    {
+        if (events.size() < 2) {
+            return events;
+        }
+
+        Set<String> coalescedEvents = new HashSet<>(this.configuration.getBatchCoalescedEvents());
+
+        Set<List<Serializable>> keys = new HashSet<>();
+        LinkedList<RemoteEventData> uniqueEvents = new LinkedList<>();
+        for (ListIterator<RemoteEventData> it = events.listIterator(events.size()); it.hasPrevious();) {
+            RemoteEventData event = it.previous();
+            if (event.getEvent() == null || !coalescedEvents.contains(event.getEvent().getClass().getName())
+                || keys.add(Arrays.asList(event.getEvent(), event.getSource(), event.getData()))) {
+                uniqueEvents.addFirst(event);
+            }
+        }
+
+        if (uniqueEvents.size() < events.size()) {
+            this.logger.debug("Coalesced [{}] duplicated remote invalidation events",
+                events.size() - uniqueEvents.size());
+        }
+
+        return uniqueEvents;
+    }
+
+    /**
+     * Send several events in a single message.
+     *
+     * @param events the events to send
+     */
+    private void send(List<RemoteEventData> events)
+    {
+        byte[] buffer;
+        try {
+            buffer = this.serializer.serialize(events);
+        } catch (Exception e) {
+            this.logger.error("Failed to serialize messages [{}]", events, e);
+
+            return;
+        }
 
         // Send message to JGroups channels
         for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
             try {
-                entry.getValue().send(message);
+                // Send the message to the whole group
+                entry.getValue().send(new Message(null, buffer));
             } catch (Exception e) {
-                this.logger
-                    .error("Failed to send message [" + remoteEvent + "] to the channel [" + entry.getKey() + "]", e);
+                this.logger.error("Failed to send messages [{}] to the channel [{}]", events, entry.getKey(), e);
             }
         }
     }
@@ -113,6 +310,9 @@ public void startChannel(String channelId) throws RemoteEventException
             channel.connect("event");
 
             this.channels.put(channelId, channel);
+
+            // Restart the batching if all the channels were stopped before
+            startBatchThread();
         } catch (Exception e) {
             throw new RemoteEventException("Failed to create channel [" + channelId + "]", e);
         }
@@ -218,6 +418,9 @@ private ProtocolStackConfigurator loadChannelConfiguration(String channelId) thr
     @Override
     public void stopAllChannels() throws RemoteEventException
     {
+        // Make sure the pending events are sent before closing the channels
+        stopBatchThread();
+
         for (Map.Entry<String, JChannel> channelEntry : this.channels.entrySet()) {
             channelEntry.getValue().close();
         }
@@ -0,0 +1,71 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.test.TestEvent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link JavaSerializationRemoteEventDataCodec}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class JavaSerializationRemoteEventDataCodecTest
+{
+    @InjectMockComponents
+    private JavaSerializationRemoteEventDataCodec codec;
+
+    @Test
+    void encodeDecode() throws Exception
+    {
+        HashMap<String, String> data = new HashMap<>();
+        data.put("wiki", "xwiki");
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        this.codec.encode(Arrays.asList(new RemoteEventData(new TestEvent(), "source1", data),
+            new RemoteEventData(new TestEvent(), null, data)), stream);
+
+        List<RemoteEventData> events = this.codec.decode(new ByteArrayInputStream(stream.toByteArray()));
+
+        assertEquals(2, events.size());
+        assertTrue(events.get(0).getEvent() instanceof TestEvent);
+        assertEquals("source1", events.get(0).getSource());
+        assertEquals(data, events.get(0).getData());
+        assertTrue(events.get(1).getEvent() instanceof TestEvent);
+        assertNull(events.get(1).getSource());
+        // The objects shared between events are written only once
+        assertSame(events.get(0).getData(), events.get(1).getData());
+    }
+}
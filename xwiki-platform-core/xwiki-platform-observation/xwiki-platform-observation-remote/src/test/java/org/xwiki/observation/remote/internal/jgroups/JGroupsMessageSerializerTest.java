@@ -0,0 +1,115 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jgroups.Message;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
+import org.xwiki.observation.remote.internal.converter.JavaSerializationRemoteEventDataCodec;
+import org.xwiki.observation.remote.test.TestEvent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link JGroupsMessageSerializer}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList(JavaSerializationRemoteEventDataCodec.class)
+public class JGroupsMessageSerializerTest
+{
+    @InjectMockComponents
+    private JGroupsMessageSerializer serializer;
+
+    @MockComponent
+    private RemoteObservationManagerConfiguration configuration;
+
+    @Test
+    void serializeUnserialize() throws Exception
+    {
+        when(this.configuration.getCodec()).thenReturn(JavaSerializationRemoteEventDataCodec.HINT);
+
+        byte[] buffer = this.serializer.serialize(Arrays.asList(new RemoteEventData(new TestEvent(), "source1", null),
+            new RemoteEventData(new TestEvent(), "source2", "data2")));
+
+        List<RemoteEventData> events = this.serializer.unserialize(new Message(null, buffer));
+
+        assertEquals(2, events.size());
+        assertTrue(events.get(0).getEvent() instanceof TestEvent);
+        assertEquals("source1", events.get(0).getSource());
+        assertNull(events.get(0).getData());
+        assertTrue(events.get(1).getEvent() instanceof TestEvent);
+        assertEquals("source2", events.get(1).getSource());
+        assertEquals("data2", events.get(1).getData());
+    }
+
+    @Test
+    void unserializeLegacyMessage() throws Exception
+    {
+        // Message sent by an older version of XWiki, containing a single event serialized by JGroups
+        Message message = new Message(null, new RemoteEventData(new TestEvent(), "source", "data"));
+
+        List<RemoteEventData> events = this.serializer.unserialize(message);
+
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).getEvent() instanceof TestEvent);
+        assertEquals("source", events.get(0).getSource());
+        assertEquals("data", events.get(0).getData());
+    }
+
+    @Test
+    void serializeWithUnknownCodec()
+    {
+        when(this.configuration.getCodec()).thenReturn("unknown");
+
+        assertThrows(ComponentLookupException.class,
+            () -> this.serializer.serialize(Arrays.asList(new RemoteEventData(new TestEvent(), null, null))));
+    }
+
+    @Test
+    void unserializeWithUnknownCodec() throws Exception
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream dataStream = new DataOutputStream(stream);
+        dataStream.write(new byte[] { 'X', 'E' });
+        dataStream.writeUTF("unknown");
+        dataStream.flush();
+
+        Message message = new Message(null, stream.toByteArray());
+
+        assertThrows(ComponentLookupException.class, () -> this.serializer.unserialize(message));
+    }
+}
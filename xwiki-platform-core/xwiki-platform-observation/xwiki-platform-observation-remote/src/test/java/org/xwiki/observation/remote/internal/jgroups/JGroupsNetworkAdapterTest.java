@@ -0,0 +1,226 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
+import org.xwiki.observation.remote.test.TestEvent;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the batching of the events in {@link JGroupsNetworkAdapter}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class JGroupsNetworkAdapterTest
+{
+    @InjectMockComponents
+    private JGroupsNetworkAdapter adapter;
+
+    @MockComponent
+    private RemoteObservationManagerConfiguration configuration;
+
+    @MockComponent
+    private JGroupsMessageSerializer serializer;
+
+    private JChannel channel;
+
+    private final List<List<RemoteEventData>> batches = new ArrayList<>();
+
+    private final Answer<byte[]> serializerAnswer = invocation -> {
+        // Copy the batch since the list is reused by the adapter
+        synchronized (this.batches) {
+            this.batches.add(new ArrayList<>(invocation.<List<RemoteEventData>>getArgument(0)));
+        }
+
+        return new byte[0];
+    };
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        // The batch thread is started when the component is initialized
+        when(this.configuration.getBatchDelay()).thenReturn(200L);
+        when(this.configuration.getBatchMaxSize()).thenReturn(2);
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.serializer.serialize(any())).then(this.serializerAnswer);
+
+        this.channel = mock(JChannel.class);
+        Map<String, JChannel> channels = ReflectionUtils.getFieldValue(this.adapter, "channels");
+        channels.put("test", this.channel);
+    }
+
+    private RemoteEventData event(String source)
+    {
+        return new RemoteEventData(new TestEvent(), source, null);
+    }
+
+    /**
+     * Block the batch thread in the next serialization until the passed latch is released.
+     */
+    private void blockSerializer(CountDownLatch latch) throws Exception
+    {
+        Answer<?> answer = this.serializerAnswer;
+        when(this.serializer.serialize(any())).then(invocation -> {
+            latch.await(10, TimeUnit.SECONDS);
+
+            return answer.answer(invocation);
+        });
+    }
+
+    private void waitForQueue(int size) throws Exception
+    {
+        BlockingQueue<?> queue = ReflectionUtils.getFieldValue(this.adapter, "queue");
+        long timeout = System.currentTimeMillis() + 10000;
+        while (queue.size() < size && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void sendInBatches() throws Exception
+    {
+        RemoteEventData event1 = event("source1");
+        RemoteEventData event2 = event("source2");
+        RemoteEventData event3 = event("source3");
+        RemoteEventData event4 = event("source4");
+        RemoteEventData event5 = event("source5");
+
+        this.adapter.send(event1);
+        this.adapter.send(event2);
+        this.adapter.send(event3);
+        this.adapter.send(event4);
+        this.adapter.send(event5);
+
+        // Wait for the queued events to be sent
+        this.adapter.stopAllChannels();
+
+        // The batches are split according to the maximum size
+        assertEquals(
+            Arrays.asList(Arrays.asList(event1, event2), Arrays.asList(event3, event4), Arrays.asList(event5)),
+            this.batches);
+        verify(this.channel, times(3)).send(any(Message.class));
+    }
+
+    @Test
+    void sendDuplicatedEvents() throws Exception
+    {
+        RemoteEventData event1 = event("source");
+        RemoteEventData event2 = event("source");
+        RemoteEventData event3 = event("other");
+
+        this.adapter.send(event1);
+        this.adapter.send(event3);
+        this.adapter.send(event2);
+
+        this.adapter.stopAllChannels();
+
+        // Similar events which are not invalidations are all sent, in the same order
+        assertEquals(Arrays.asList(Arrays.asList(event1, event3), Arrays.asList(event2)), this.batches);
+    }
+
+    @Test
+    void sendDuplicatedInvalidationEvents() throws Exception
+    {
+        when(this.configuration.getBatchCoalescedEvents()).thenReturn(Arrays.asList(TestEvent.class.getName()));
+
+        RemoteEventData event1 = event("source");
+        RemoteEventData event2 = event("source");
+        RemoteEventData event3 = event("other");
+
+        this.adapter.send(event1);
+        this.adapter.send(event2);
+        this.adapter.send(event3);
+
+        this.adapter.stopAllChannels();
+
+        // Only the last occurrence of the same invalidation in a batch is sent
+        assertEquals(Arrays.asList(Arrays.asList(event2), Arrays.asList(event3)), this.batches);
+    }
+
+    @Test
+    void sendFullBatchesWithoutDelay() throws Exception
+    {
+        CountDownLatch serializeLatch = new CountDownLatch(1);
+        blockSerializer(serializeLatch);
+        this.adapter.send(event("source0"));
+
+        // Queue 3 full batches while the first one is being sent
+        for (int i = 1; i <= 7; ++i) {
+            this.adapter.send(event("source" + i));
+        }
+        waitForQueue(6);
+
+        long start = System.currentTimeMillis();
+        serializeLatch.countDown();
+        this.adapter.stopAllChannels();
+
+        // The batch thread does not wait for more events when the batch is already full
+        assertEquals(4, this.batches.size());
+        assertTrue(System.currentTimeMillis() - start < 3 * 200, "The full batches should be sent right away");
+    }
+
+    @Test
+    void sendAfterStop() throws Exception
+    {
+        this.adapter.stopAllChannels();
+
+        // Put back a channel to check what's sent after the batch thread is stopped
+        Map<String, JChannel> channels = ReflectionUtils.getFieldValue(this.adapter, "channels");
+        channels.put("test", this.channel);
+
+        RemoteEventData event = event("source");
+        this.adapter.send(event);
+
+        // Sent right away instead of being queued
+        assertEquals(Arrays.asList(Arrays.asList(event)), this.batches);
+        verify(this.channel).send(any(Message.class));
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.component.annotation.ComponentAnnotationLoader;
+import org.xwiki.display.internal.DisplayConfiguration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.test.MockitoOldcore;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Base class of the old core benchmarks: initialize all the components found in the classpath in the same in-memory
+ * environment as the old core unit tests (see {@link MockitoOldcore}) and provide helpers to create realistic
+ * documents.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = AbstractOldcoreBenchmark.ITERATIONS, time = 1)
+@Measurement(iterations = AbstractOldcoreBenchmark.ITERATIONS, time = 1)
+@Fork(1)
+// Tell MockitoOldcore that all the components are registered (it then force mocking the authorization managers)
+@AllComponents
+public abstract class AbstractOldcoreBenchmark
+{
+    /**
+     * The wiki in which the benchmark documents are created.
+     */
+    protected static final String WIKI = "xwiki";
+
+    /**
+     * The space in which the benchmark documents are created.
+     */
+    protected static final String SPACE = "Benchmark";
+
+    /**
+     * The reference of the class of the objects added to the benchmark documents.
+     */
+    protected static final DocumentReference CLASS_REFERENCE = new DocumentReference(WIKI, SPACE, "Class");
+
+    /**
+     * A content using the most common wiki syntax elements but no macro or link, to measure the cost of the rendering
+     * itself and not the cost of external resources resolution.
+     */
+    protected static final String TYPICAL_CONTENT;
+
+    /**
+     * The number of warmup and measurement iterations (of 1 second each).
+     */
+    static final int ITERATIONS = 5;
+
+    private static final int SECTION_COUNT = 10;
+
+    private static final int AREA_LENGTH = 200;
+
+    static {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < SECTION_COUNT; ++i) {
+            content.append("= Section ").append(i).append(" =\n\n");
+            content.append("Some **bold** and //italic// text with a __underlined__ part and a ##monospace## one.\n");
+            content.append("A second line in the same paragraph.\n\n");
+            content.append("* item 1\n* item 2\n** sub item 2.1\n** sub item 2.2\n* item 3\n\n");
+            content.append("1. first\n1. second\n\n");
+            content.append("|=Header 1|=Header 2|=Header 3\n");
+            content.append("|cell 1.1|cell 1.2|cell 1.3\n");
+            content.append("|cell 2.1|cell 2.2|cell 2.3\n\n");
+        }
+        TYPICAL_CONTENT = content.toString();
+    }
+
+    private MockitoComponentManager componentManager;
+
+    private MockitoOldcore oldcore;
+
+    /**
+     * Initialize the environment and call {@link #setUpBenchmark()}.
+     * 
+     * @throws Exception when failing to initialize the environment
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.componentManager = new MockitoComponentManager();
+        new ComponentAnnotationLoader().initialize(this.componentManager, getClass().getClassLoader());
+
+        DisplayConfiguration displayConfiguration =
+            this.componentManager.registerMockComponent(DisplayConfiguration.class);
+        when(displayConfiguration.getDocumentDisplayerHint()).thenReturn("default");
+        when(displayConfiguration.getTitleHeadingDepth()).thenReturn(2);
+
+        this.oldcore = new MockitoOldcore(this.componentManager);
+        // Don't use getClass() since JMH runs generated sub classes of the benchmarks
+        this.oldcore.before(AbstractOldcoreBenchmark.class);
+
+        when(this.oldcore.getMockAuthorizationManager().hasAccess(any(), any(), any())).thenReturn(true);
+        when(this.oldcore.getMockContextualAuthorizationManager().hasAccess(any())).thenReturn(true);
+        when(this.oldcore.getMockRightService().hasProgrammingRights(any())).thenReturn(true);
+
+        setUpBenchmark();
+    }
+
+    /**
+     * Dispose the environment.
+     * 
+     * @throws Exception when failing to dispose the environment
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        this.oldcore.after();
+        this.componentManager.dispose();
+    }
+
+    /**
+     * Prepare the data needed by the benchmark.
+     * 
+     * @throws Exception when failing to prepare the data
+     */
+    protected abstract void setUpBenchmark() throws Exception;
+
+    /**
+     * @return the component manager in which all the components found in the classpath are registered
+     */
+    protected MockitoComponentManager getComponentManager()
+    {
+        return this.componentManager;
+    }
+
+    /**
+     * @return the in-memory old core environment
+     */
+    protected MockitoOldcore getOldcore()
+    {
+        return this.oldcore;
+    }
+
+    /**
+     * @return the current XWiki context
+     */
+    protected XWikiContext getXWikiContext()
+    {
+        return this.oldcore.getXWikiContext();
+    }
+
+    /**
+     * Create a document with a typical content and the passed number of objects.
+     * 
+     * @param name the name of the document
+     * @param objectCount the number of objects to add to the document
+     * @return the new document
+     */
+    protected XWikiDocument createDocument(String name, int objectCount)
+    {
+        XWikiDocument document = new XWikiDocument(new DocumentReference(WIKI, SPACE, name));
+        document.setSyntax(Syntax.XWIKI_2_1);
+        document.setContent(TYPICAL_CONTENT);
+        document.setTitle(name);
+
+        for (int i = 0; i < objectCount; ++i) {
+            BaseObject xobject = new BaseObject();
+            xobject.setXClassReference(CLASS_REFERENCE);
+            xobject.setStringValue("string", "value" + i);
+            xobject.setIntValue("int", i);
+            xobject.setLargeStringValue("area", TYPICAL_CONTENT.substring(0, AREA_LENGTH));
+            xobject.setStringListValue("list", Arrays.asList("item1", "item2", "item3"));
+            document.addXObject(xobject);
+        }
+
+        return document;
+    }
+}
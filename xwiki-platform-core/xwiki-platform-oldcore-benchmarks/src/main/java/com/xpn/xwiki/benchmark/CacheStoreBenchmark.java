@@ -0,0 +1,63 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.XWikiCacheStore;
+
+/**
+ * Measure the cost of loading a document found in the document cache.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class CacheStoreBenchmark extends AbstractOldcoreBenchmark
+{
+    private XWikiCacheStore store;
+
+    private DocumentReference reference;
+
+    @Override
+    protected void setUpBenchmark() throws Exception
+    {
+        XWikiDocument document = createDocument("Cache", 10);
+        this.reference = document.getDocumentReference();
+        getOldcore().getSpyXWiki().saveDocument(document, getXWikiContext());
+
+        this.store = new XWikiCacheStore(getOldcore().getMockStore(), getXWikiContext());
+
+        // Fill the cache
+        this.store.loadXWikiDoc(new XWikiDocument(this.reference), getXWikiContext());
+    }
+
+    /**
+     * @return the cached document
+     * @throws XWikiException when failing to load the document
+     */
+    @Benchmark
+    public XWikiDocument loadCachedDocument() throws XWikiException
+    {
+        return this.store.loadXWikiDoc(new XWikiDocument(this.reference), getXWikiContext());
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Measure the cost of cloning a document, which is done each time a document is modified or taken out of the
+ * document cache for modification.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class DocumentCloneBenchmark extends AbstractOldcoreBenchmark
+{
+    /**
+     * The number of objects in the cloned document.
+     */
+    @Param({ "10", "1000" })
+    private int objectCount;
+
+    private XWikiDocument document;
+
+    private DocumentReference duplicateReference;
+
+    @Override
+    protected void setUpBenchmark()
+    {
+        this.document = createDocument("Clone", this.objectCount);
+        this.duplicateReference = new DocumentReference(WIKI, SPACE, "Duplicate");
+    }
+
+    /**
+     * @return the clone
+     */
+    @Benchmark
+    public XWikiDocument cloneDocument()
+    {
+        return this.document.clone();
+    }
+
+    /**
+     * @return the duplicate
+     */
+    @Benchmark
+    public XWikiDocument duplicateDocument()
+    {
+        return this.document.duplicate(this.duplicateReference);
+    }
+}
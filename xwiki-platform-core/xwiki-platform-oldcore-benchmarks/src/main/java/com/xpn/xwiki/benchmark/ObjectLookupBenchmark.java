@@ -0,0 +1,97 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+
+/**
+ * Measure the cost of finding objects and properties in a document.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class ObjectLookupBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final String STRING_PROPERTY = "string";
+
+    /**
+     * The number of objects in the document.
+     */
+    @Param({ "10", "1000" })
+    private int objectCount;
+
+    private XWikiDocument document;
+
+    private BaseObject xobject;
+
+    private int number;
+
+    private String value;
+
+    @Override
+    protected void setUpBenchmark()
+    {
+        this.document = createDocument("Lookup", this.objectCount);
+        this.number = this.objectCount / 2;
+        this.value = "value" + this.number;
+        this.xobject = this.document.getXObject(CLASS_REFERENCE, this.number);
+    }
+
+    /**
+     * @return the object found by number
+     */
+    @Benchmark
+    public BaseObject getXObjectByNumber()
+    {
+        return this.document.getXObject(CLASS_REFERENCE, this.number);
+    }
+
+    /**
+     * @return the object found by property value
+     */
+    @Benchmark
+    public BaseObject getXObjectByValue()
+    {
+        return this.document.getXObject(CLASS_REFERENCE, STRING_PROPERTY, this.value);
+    }
+
+    /**
+     * @return the value of the property
+     */
+    @Benchmark
+    public String getStringValue()
+    {
+        return this.xobject.getStringValue(STRING_PROPERTY);
+    }
+
+    /**
+     * @return the property
+     */
+    @Benchmark
+    public BaseProperty getField()
+    {
+        return (BaseProperty) this.xobject.getField("area");
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Measure the cost of rendering a typical page to HTML.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class RenderingBenchmark extends AbstractOldcoreBenchmark
+{
+    private XWikiDocument document;
+
+    @Override
+    protected void setUpBenchmark()
+    {
+        this.document = createDocument("Rendering", 0);
+        this.document.setNew(false);
+
+        getXWikiContext().setDoc(this.document);
+        getXWikiContext().put("isInRenderingEngine", true);
+    }
+
+    /**
+     * @return the rendered content
+     * @throws XWikiException when failing to render the document
+     */
+    @Benchmark
+    public String getRenderedContent() throws XWikiException
+    {
+        return this.document.getRenderedContent(getXWikiContext());
+    }
+}
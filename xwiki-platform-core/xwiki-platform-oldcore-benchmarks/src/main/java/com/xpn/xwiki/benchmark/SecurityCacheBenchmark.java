@@ -0,0 +1,190 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.SecurityAccessEntry;
+import org.xwiki.security.authorization.SecurityRuleEntry;
+import org.xwiki.security.authorization.cache.internal.SecurityCache;
+import org.xwiki.security.internal.XWikiBridge;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measure the cost of the security cache lookups done for each right check.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class SecurityCacheBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final String PAGE_PREFIX = "Page";
+
+    /**
+     * The number of threads reading the cache while another thread modifies it.
+     */
+    private static final int READER_THREADS = 3;
+
+    /**
+     * The number of documents in the cache.
+     */
+    @Param({ "100", "10000" })
+    private int documentCount;
+
+    private SecurityCache securityCache;
+
+    private UserSecurityReference user;
+
+    private SecurityReference document;
+
+    private SecurityReference[] documents;
+
+    /**
+     * The access entry removed and added again by the writer thread of the invalidation benchmark.
+     */
+    private SecurityAccessEntry invalidatedEntry;
+
+    @Override
+    protected void setUpBenchmark() throws Exception
+    {
+        XWikiBridge xwikiBridge = getComponentManager().registerMockComponent(XWikiBridge.class);
+        when(xwikiBridge.getMainWikiReference()).thenReturn(new WikiReference(WIKI));
+        when(xwikiBridge.toCompatibleEntityReference(any(EntityReference.class)))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+
+        SecurityReferenceFactory factory = getComponentManager().getInstance(SecurityReferenceFactory.class);
+        this.securityCache = getComponentManager().getInstance(SecurityCache.class);
+
+        WikiReference wikiReference = new WikiReference(WIKI);
+        SpaceReference xwikiSpaceReference = new SpaceReference("XWiki", wikiReference);
+        SpaceReference spaceReference = new SpaceReference(SPACE, wikiReference);
+
+        this.securityCache.add(mockRuleEntry(factory.newEntityReference(wikiReference)));
+        this.securityCache.add(mockRuleEntry(factory.newEntityReference(xwikiSpaceReference)));
+        this.user = factory.newUserReference(new DocumentReference("User", xwikiSpaceReference));
+        this.securityCache.add(mockRuleEntry(this.user), null);
+        this.securityCache.add(mockRuleEntry(factory.newEntityReference(spaceReference)));
+
+        this.documents = new SecurityReference[this.documentCount];
+        for (int i = 0; i < this.documentCount; ++i) {
+            SecurityReference reference =
+                factory.newEntityReference(new DocumentReference(PAGE_PREFIX + i, spaceReference));
+            this.securityCache.add(mockRuleEntry(reference));
+            this.securityCache.add(mockAccessEntry(reference, this.user));
+            this.documents[i] = reference;
+        }
+
+        this.document = factory
+            .newEntityReference(new DocumentReference(PAGE_PREFIX + (this.documentCount / 2), spaceReference));
+
+        SecurityReference invalidatedDocument =
+            factory.newEntityReference(new DocumentReference("Invalidated", spaceReference));
+        this.securityCache.add(mockRuleEntry(invalidatedDocument));
+        this.invalidatedEntry = mockAccessEntry(invalidatedDocument, this.user);
+        this.securityCache.add(this.invalidatedEntry);
+    }
+
+    private SecurityRuleEntry mockRuleEntry(SecurityReference reference)
+    {
+        SecurityRuleEntry entry = mock(SecurityRuleEntry.class);
+        when(entry.getReference()).thenReturn(reference);
+
+        return entry;
+    }
+
+    private SecurityAccessEntry mockAccessEntry(SecurityReference reference, UserSecurityReference user)
+    {
+        SecurityAccessEntry entry = mock(SecurityAccessEntry.class);
+        when(entry.getReference()).thenReturn(reference);
+        when(entry.getUserReference()).thenReturn(user);
+
+        return entry;
+    }
+
+    /**
+     * @return the cached access of the user on the document
+     */
+    @Benchmark
+    public SecurityAccessEntry getAccessEntry()
+    {
+        return this.securityCache.get(this.user, this.document);
+    }
+
+    /**
+     * Get the access of the user on all the cached documents. Run it with the JMH GC profiler ({@code -prof gc}) to
+     * measure the memory allocated to compute the cache keys.
+     * 
+     * @param blackhole used to consume the cached entries
+     */
+    @Benchmark
+    public void getAccessEntries(Blackhole blackhole)
+    {
+        for (SecurityReference reference : this.documents) {
+            blackhole.consume(this.securityCache.get(this.user, reference));
+        }
+    }
+
+    /**
+     * @return the cached rules of the document
+     */
+    @Benchmark
+    public SecurityRuleEntry getRuleEntry()
+    {
+        return this.securityCache.get(this.document);
+    }
+
+    /**
+     * @return the cached access of the user on the document while another thread keeps modifying the cache
+     */
+    @Benchmark
+    @Group("invalidation")
+    @GroupThreads(READER_THREADS)
+    public SecurityAccessEntry getAccessEntryDuringInvalidation()
+    {
+        return this.securityCache.get(this.user, this.document);
+    }
+
+    /**
+     * Remove an access entry and add it again, like when the rights of a document are modified.
+     * 
+     * @throws Exception when failing to add the entry again
+     */
+    @Benchmark
+    @Group("invalidation")
+    @GroupThreads(1)
+    public void invalidate() throws Exception
+    {
+        this.securityCache.remove(this.user, this.invalidatedEntry.getReference());
+        this.securityCache.add(this.invalidatedEntry);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.benchmark;
+
+import java.io.StringReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Compare getting the cached {@link XDOM} of a document with parsing its content.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class XDOMBenchmark extends AbstractOldcoreBenchmark
+{
+    private XWikiDocument document;
+
+    private Parser parser;
+
+    @Override
+    protected void setUpBenchmark() throws Exception
+    {
+        this.document = createDocument("XDOM", 0);
+        this.parser = getComponentManager().getInstance(Parser.class, this.document.getSyntax().toIdString());
+
+        // Fill the cache
+        this.document.getXDOM();
+    }
+
+    /**
+     * @return the (copy of the) cached XDOM
+     */
+    @Benchmark
+    public XDOM getXDOM()
+    {
+        return this.document.getXDOM();
+    }
+
+    /**
+     * @return the parsed XDOM
+     * @throws ParseException when failing to parse the content
+     */
+    @Benchmark
+    public XDOM parse() throws ParseException
+    {
+        return this.parser.parse(new StringReader(this.document.getContent()));
+    }
+}
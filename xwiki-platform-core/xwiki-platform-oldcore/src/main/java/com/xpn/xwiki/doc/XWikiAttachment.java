@@ -59,6 +59,7 @@
 import org.xwiki.model.reference.EntityReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.WikiReference;
+import org.xwiki.stability.Unstable;
 import org.xwiki.text.XWikiToStringBuilder;
 import org.xwiki.tika.internal.TikaUtils;
 
@@ -905,6 +906,34 @@ public InputStream getContentInputStream(XWikiContext xcontext) throws XWikiExce
         return getContentInputStream();
     }
 
+    /**
+     * Retrieve a range of the content of this attachment as an input stream.
+     *
+     * @param offset the index of the first byte to read
+     * @param length the maximum number of bytes to read
+     * @param xcontext current XWikiContext
+     * @return an InputStream to consume for receiving the requested range of the content of this attachment
+     * @throws XWikiException when an error occurs during wiki operation
+     * @since 12.6RC1
+     */
+    @Unstable
+    public InputStream getContentInputStream(long offset, long length, XWikiContext xcontext) throws XWikiException
+    {
+        if (this.content == null && xcontext != null) {
+            reloadAttachmentContent(xcontext);
+        }
+
+        if (this.content == null) {
+            return null;
+        }
+
+        try {
+            return this.content.getContentInputStream(offset, length);
+        } catch (IOException e) {
+            throw new XWikiException("Failed to read attachment content", e);
+        }
+    }
+
     private InputStream getContentInputStream()
     {
         return this.content != null ? this.content.getContentInputStream() : null;
@@ -32,6 +32,7 @@
 import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.io.output.ProxyOutputStream;
 import org.xwiki.environment.Environment;
+import org.xwiki.stability.Unstable;
 import org.xwiki.store.UnexpectedException;
 
 import com.xpn.xwiki.web.Utils;
@@ -250,6 +251,44 @@ public InputStream getContentInputStream()
         }
     }
 
+    /**
+     * @param offset the index of the first byte to read
+     * @param length the maximum number of bytes to read
+     * @return an InputStream to read a range of the binary content of this attachment
+     * @throws IOException when failing to move to the beginning of the range
+     * @since 12.6RC1
+     */
+    @Unstable
+    public InputStream getContentInputStream(long offset, long length) throws IOException
+    {
+        InputStream stream = getContentInputStream();
+
+        try {
+            IOUtils.skipFully(stream, offset);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(stream);
+
+            throw e;
+        }
+
+        return new BoundedInputStream(stream, length);
+    }
+
+    /**
+     * Give access to the file holding the content so that it can be sent without being loaded in memory (for example
+     * using {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} or the
+     * servlet container sendfile support).
+     *
+     * @return the file holding exactly the binary content of this attachment, {@code null} if the content is not
+     *         stored as is in a stable file
+     * @since 12.6RC1
+     */
+    @Unstable
+    public File getContentFile()
+    {
+        return null;
+    }
+
     /**
      * Set the content of the attachment by writing to a provided OutputStream. Content is *not* appended, this method
      * clears the content and creates new content. If you want to append content, you can call
@@ -5264,7 +5264,7 @@ private Set<EntityReference> getUniqueLinkedEntityReferences(XWikiContext contex
                 references = new LinkedHashSet<>();
 
                 // Document content
-                XDOM dom = getXDOM();
+                XDOM dom = getReadOnlyXDOM();
                 getUniqueLinkedEntityReferences(dom, entityType, references);
 
                 // XObjects
@@ -5639,7 +5639,7 @@ private List<String> getIncludedPagesInternal(XWikiContext context)
             return getIncludedPagesForXWiki10Syntax(getContent(), context);
         } else {
             // Find all include macros listed on the page
-            XDOM dom = getXDOM();
+            XDOM dom = getReadOnlyXDOM();
 
             List<String> result = new ArrayList<String>();
             List<MacroBlock> macroBlocks =
@@ -7077,7 +7077,7 @@ private String getDefaultEditModeInternal(XWikiContext context) throws XWikiExce
             // Find all include macros and extract the document names
             // TODO: Is there a good way not to hardcode the macro name? The macro itself shouldn't know
             // its own name since it's a deployment time concern.
-            for (Block macroBlock : getXDOM().getBlocks(new MacroBlockMatcher("include"), Axes.CHILD)) {
+            for (Block macroBlock : getReadOnlyXDOM().getBlocks(new MacroBlockMatcher("include"), Axes.CHILD)) {
                 // Find the document reference to include by checking the macro's "reference" parameter.
                 // For backward-compatibility we also check for a "document" parameter since this is the parameter name
                 // that was used prior to XWiki 3.4M1 when the "reference" one was introduced and thus when the
@@ -8532,20 +8532,54 @@ public void convertSyntax(Syntax targetSyntax, XWikiContext context) throws XWik
      * NOTE: This method caches the XDOM and returns a clone that can be safely modified.
      *
      * @return the XDOM corresponding to the document's string content
+     * @see #getReadOnlyXDOM()
      */
     @Override
     public XDOM getXDOM()
     {
-        if (this.xdomCache == null) {
-            try {
-                this.xdomCache = parseContent(getContent());
-            } catch (XWikiException e) {
-                ErrorBlockGenerator errorBlockGenerator = Utils.getComponent(ErrorBlockGenerator.class);
-                return new XDOM(errorBlockGenerator.generateErrorBlocks("Failed to render content", e, false));
-            }
+        try {
+            return getCachedXDOM().clone();
+        } catch (XWikiException e) {
+            return getErrorXDOM(e);
         }
+    }
+
+    /**
+     * NOTE: This method returns the cached XDOM itself, shared by all the callers, so it must not be modified in any
+     * way (this includes using its blocks as children of another block, which changes their parent). It's meant for
+     * code which only looks at the content (e.g. to find links or macros), the other callers should use
+     * {@link #getXDOM()} which returns a clone that can be safely modified.
+     *
+     * @return the XDOM corresponding to the document's string content
+     * @since 12.6RC1
+     */
+    @Unstable
+    public XDOM getReadOnlyXDOM()
+    {
+        try {
+            return getCachedXDOM();
+        } catch (XWikiException e) {
+            return getErrorXDOM(e);
+        }
+    }
+
+    private XDOM getCachedXDOM() throws XWikiException
+    {
+        XDOM xdom = this.xdomCache;
+
+        if (xdom == null) {
+            xdom = parseContent(getContent());
+            this.xdomCache = xdom;
+        }
+
+        return xdom;
+    }
+
+    private XDOM getErrorXDOM(XWikiException e)
+    {
+        ErrorBlockGenerator errorBlockGenerator = Utils.getComponent(ErrorBlockGenerator.class);
 
-        return this.xdomCache.clone();
+        return new XDOM(errorBlockGenerator.generateErrorBlocks("Failed to render content", e, false));
     }
 
     /**
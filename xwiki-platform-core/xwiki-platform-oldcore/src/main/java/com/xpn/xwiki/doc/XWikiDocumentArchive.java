@@ -20,6 +20,7 @@
 package com.xpn.xwiki.doc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
@@ -30,6 +31,9 @@
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.suigeneris.jrcs.rcs.Version;
 import org.suigeneris.jrcs.util.ToString;
 
@@ -40,6 +44,8 @@
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeContent;
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeId;
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+import com.xpn.xwiki.internal.doc.DocumentRevisionXMLCache;
+import com.xpn.xwiki.web.Utils;
 
 /**
  * Contains document history. Allows to load any version of document.
@@ -48,6 +54,8 @@
  */
 public class XWikiDocumentArchive
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(XWikiDocumentArchive.class);
+
     /** =docId. */
     private long id;
 
@@ -358,15 +366,67 @@ public XWikiDocument loadDocument(Version version, XWikiContext context)
      */
     public String getVersionXml(Version version, XWikiContext context) throws XWikiException
     {
+        DocumentRevisionXMLCache cache = getRevisionXMLCache(context);
+        String wiki = cache != null ? context.getWikiId() : null;
+
+        XWikiRCSNodeInfo nodeInfo = getNode(version);
+        if (cache != null && nodeInfo != null) {
+            String xml = cache.get(wiki, getId(), version, nodeInfo.getDate());
+            if (xml != null) {
+                return xml;
+            }
+        }
+
         Version nearestFullVersion = getNearestFullVersion(version);
 
-        List<XWikiRCSNodeContent> lstContent = loadRCSNodeContents(nearestFullVersion, version, context);
+        // Start from the closest already reconstructed revision instead of the full version when possible
+        Version startVersion = nearestFullVersion;
         List<String> origText = new ArrayList<String>();
+        if (cache != null && nearestFullVersion != null && !nearestFullVersion.equals(version)) {
+            String startXml = null;
+            for (XWikiRCSNodeInfo node : getNodes(nearestFullVersion, version)) {
+                Version nodeVersion = node.getId().getVersion();
+                if (!nodeVersion.equals(version)) {
+                    String xml = cache.get(wiki, getId(), nodeVersion, node.getDate());
+                    if (xml != null) {
+                        startVersion = nodeVersion;
+                        startXml = xml;
+                    }
+                }
+            }
+            if (startXml != null) {
+                origText.addAll(Arrays.asList(ToString.stringToArray(startXml)));
+                startVersion = getPrevVersion(startVersion);
+            }
+        }
+
+        List<XWikiRCSNodeContent> lstContent = loadRCSNodeContents(startVersion, version, context);
         for (XWikiRCSNodeContent nodeContent : lstContent) {
             nodeContent.getPatch().patch(origText);
         }
 
-        return ToString.arrayToString(origText.toArray());
+        String xml = ToString.arrayToString(origText.toArray());
+
+        if (cache != null && nodeInfo != null) {
+            cache.set(wiki, getId(), version, nodeInfo.getDate(), xml);
+        }
+
+        return xml;
+    }
+
+    private DocumentRevisionXMLCache getRevisionXMLCache(XWikiContext context)
+    {
+        if (context == null || context.getWikiId() == null) {
+            return null;
+        }
+
+        try {
+            return Utils.getComponent(DocumentRevisionXMLCache.class);
+        } catch (Exception e) {
+            LOGGER.debug("Failed to get the document revisions cache: {}", ExceptionUtils.getRootCauseMessage(e));
+
+            return null;
+        }
     }
 
     /**
@@ -0,0 +1,140 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc;
+
+import java.util.Date;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.suigeneris.jrcs.rcs.Version;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+
+/**
+ * Keep the XML of the document revisions reconstructed by {@link XWikiDocumentArchive} so that browsing the history
+ * of a document does not apply again the whole chain of patches for each displayed version.
+ * <p>
+ * A revision never changes once it's been stored so the cache is local to each cluster member. The date of the
+ * revision is part of the key to make sure a version number reused by a new document with the same identifier (after
+ * a delete for example) is not mixed with the old one.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = DocumentRevisionXMLCache.class)
+@Singleton
+public class DocumentRevisionXMLCache implements Initializable
+{
+    /**
+     * The name of the xwiki.cfg property indicating the maximum number of revisions to keep in the cache.
+     */
+    public static final String CAPACITY_PROPERTY = "xwiki.store.rcs.cache.capacity";
+
+    private static final int DEFAULT_CAPACITY = 100;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    private Cache<String> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int capacity = this.configuration.getProperty(CAPACITY_PROPERTY, DEFAULT_CAPACITY);
+
+        if (capacity > 0) {
+            try {
+                this.cache = this.cacheManager
+                    .createNewLocalCache(new LRUCacheConfiguration("xwiki.store.rcs.revisions", capacity));
+            } catch (CacheException e) {
+                throw new InitializationException("Failed to create the document revisions cache", e);
+            }
+        }
+    }
+
+    private String getKey(String wiki, long documentId, Version version, Date date)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(wiki);
+        builder.append(':');
+        builder.append(documentId);
+        builder.append(':');
+        builder.append(version);
+        builder.append(':');
+        builder.append(date != null ? date.getTime() : -1);
+
+        return builder.toString();
+    }
+
+    /**
+     * @param wiki the identifier of the wiki where the document is located
+     * @param documentId the identifier of the document
+     * @param version the version of the revision
+     * @param date the date of the revision
+     * @return the cached XML of the revision or {@code null} if it's not in the cache
+     */
+    public String get(String wiki, long documentId, Version version, Date date)
+    {
+        if (this.cache == null) {
+            return null;
+        }
+
+        return this.cache.get(getKey(wiki, documentId, version, date));
+    }
+
+    /**
+     * @param wiki the identifier of the wiki where the document is located
+     * @param documentId the identifier of the document
+     * @param version the version of the revision
+     * @param date the date of the revision
+     * @param xml the XML of the revision
+     */
+    public void set(String wiki, long documentId, Version version, Date date, String xml)
+    {
+        if (this.cache != null) {
+            this.cache.set(getKey(wiki, documentId, version, date), xml);
+        }
+    }
+
+    /**
+     * Remove all the revisions from the cache.
+     */
+    public void clear()
+    {
+        if (this.cache != null) {
+            this.cache.removeAll();
+        }
+    }
+}
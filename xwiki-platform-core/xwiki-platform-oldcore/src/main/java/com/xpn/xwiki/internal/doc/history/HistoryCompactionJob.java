@@ -0,0 +1,278 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc.history;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.commons.lang3.StringUtils;
+import org.suigeneris.jrcs.rcs.Version;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
+import org.xwiki.job.AbstractJob;
+import org.xwiki.job.Request;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeContent;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+import com.xpn.xwiki.internal.event.DocumentHistoryCompactedEvent;
+import com.xpn.xwiki.store.XWikiVersioningStoreInterface;
+
+/**
+ * Remove the old revisions of the documents history according to a {@link HistoryRetentionPolicy}. The documents are
+ * processed by batches, the documents of a batch being compacted in parallel.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+@Named(HistoryCompactionJob.JOBTYPE)
+public class HistoryCompactionJob extends AbstractJob<HistoryCompactionRequest, HistoryCompactionJobStatus>
+{
+    /**
+     * The id of the job.
+     */
+    public static final String JOBTYPE = "store.history.compaction";
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    private HistoryRetentionPolicy policy;
+
+    private Date now;
+
+    @Override
+    protected HistoryCompactionRequest castRequest(Request request)
+    {
+        HistoryCompactionRequest compactionRequest;
+        if (request instanceof HistoryCompactionRequest) {
+            compactionRequest = (HistoryCompactionRequest) request;
+        } else {
+            compactionRequest = new HistoryCompactionRequest(request);
+        }
+
+        return compactionRequest;
+    }
+
+    @Override
+    protected HistoryCompactionJobStatus createNewStatus(HistoryCompactionRequest request)
+    {
+        return new HistoryCompactionJobStatus(request, this.observationManager, this.loggerManager);
+    }
+
+    @Override
+    public String getType()
+    {
+        return JOBTYPE;
+    }
+
+    @Override
+    protected void runInternal() throws Exception
+    {
+        this.policy = new HistoryRetentionPolicy(getRequest().getKeepAllDays(), getRequest().getKeepDailyDays(),
+            ZoneId.systemDefault());
+        this.now = new Date();
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        List<String> wikis = getRequest().getWikis();
+        if (wikis == null) {
+            wikis = xcontext.getWiki().getVirtualWikisDatabaseNames(xcontext);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, getRequest().getThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "XWiki history compaction");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        this.progressManager.pushLevelProgress(wikis.size(), this);
+
+        try {
+            for (String wiki : wikis) {
+                this.progressManager.startStep(this);
+
+                if (this.status.isCanceled()) {
+                    break;
+                }
+
+                compactWiki(wiki, executor);
+
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            executor.shutdownNow();
+
+            this.progressManager.popLevelProgress(this);
+        }
+
+        this.logger.info("Removed [{}] revisions from the history of [{}] documents, reclaiming [{}] bytes",
+            this.status.getRemovedRevisions(), this.status.getCompactedDocuments(), this.status.getReclaimedBytes());
+    }
+
+    private void compactWiki(String wiki, ExecutorService executor) throws Exception
+    {
+        Query countQuery = this.queryManager.createQuery("select count(doc.id) from XWikiDocument doc", Query.HQL);
+        countQuery.setWiki(wiki);
+        long count = (Long) countQuery.execute().get(0);
+
+        int batchSize = Math.max(1, getRequest().getBatchSize());
+
+        this.progressManager.pushLevelProgress((int) ((count + batchSize - 1) / batchSize), this);
+
+        try {
+            WikiReference wikiReference = new WikiReference(wiki);
+            Query query = this.queryManager
+                .createQuery("select doc.fullName, doc.language from XWikiDocument doc order by doc.id", Query.HQL);
+            query.setWiki(wiki);
+            query.setLimit(batchSize);
+
+            List<Object[]> documents;
+            int offset = 0;
+            do {
+                this.progressManager.startStep(this);
+
+                query.setOffset(offset);
+                documents = query.execute();
+
+                List<Callable<Object>> tasks = new ArrayList<>(documents.size());
+                for (Object[] document : documents) {
+                    DocumentReference documentReference = this.resolver.resolve((String) document[0], wikiReference);
+                    String language = (String) document[1];
+                    tasks.add(Executors.callable(new ExecutionContextRunnable(
+                        () -> compactDocument(documentReference, language), this.componentManagerProvider.get())));
+                }
+                for (Future<Object> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+
+                offset += documents.size();
+
+                this.progressManager.endStep(this);
+
+                if (documents.size() == batchSize && getRequest().getBatchPause() > 0) {
+                    Thread.sleep(getRequest().getBatchPause());
+                }
+            } while (documents.size() == batchSize && !this.status.isCanceled());
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+
+    private void compactDocument(DocumentReference documentReference, String language)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        xcontext.setWikiId(documentReference.getWikiReference().getName());
+
+        try {
+            XWikiDocument document = xcontext.getWiki().getDocument(documentReference, xcontext);
+            if (StringUtils.isNotEmpty(language)) {
+                document = document.getTranslatedDocument(language, xcontext);
+            }
+            if (document.isNew()) {
+                return;
+            }
+
+            // Work on a dedicated instance of the archive to not disturb the users of the one cached in the document
+            XWikiVersioningStoreInterface versioningStore = xcontext.getWiki().getVersioningStore();
+            XWikiDocumentArchive archive = new XWikiDocumentArchive(document.getId());
+            versioningStore.loadXWikiDocArchive(archive, true, xcontext);
+
+            List<Version[]> ranges = this.policy.getRangesToRemove(archive.getNodes(), this.now);
+            if (ranges.isEmpty()) {
+                return;
+            }
+
+            int nodeCount = archive.getNodes().size();
+            long size = getSize(archive, xcontext);
+
+            for (Version[] range : ranges) {
+                archive.removeVersions(range[0], range[1], xcontext);
+            }
+
+            int removedRevisions = nodeCount - archive.getNodes().size();
+            long reclaimedBytes = size - getSize(archive, xcontext);
+
+            versioningStore.saveXWikiDocArchive(archive, true, xcontext);
+
+            // The document is shared through the document cache so don't modify its archive: make this instance and
+            // the other members of the cluster forget the document (and the history it holds) instead
+            this.observationManager.notify(new DocumentHistoryCompactedEvent(),
+                document.getDocumentReferenceWithLocale());
+
+            this.status.onDocumentCompacted(removedRevisions, reclaimedBytes);
+
+            this.logger.debug("Removed [{}] revisions from the history of document [{}] in language [{}]",
+                removedRevisions, documentReference, language);
+        } catch (Exception e) {
+            this.logger.warn("Failed to compact the history of document [{}] in language [{}]", documentReference,
+                language, e);
+        }
+    }
+
+    private long getSize(XWikiDocumentArchive archive, XWikiContext xcontext) throws XWikiException
+    {
+        long size = 0;
+        for (XWikiRCSNodeInfo node : archive.getNodes()) {
+            XWikiRCSNodeContent content = node.getContent(xcontext);
+            String patch = content.getPatch().getContent();
+            if (patch != null) {
+                size += patch.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+
+        return size;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc.history;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.job.AbstractJobStatus;
+import org.xwiki.logging.LoggerManager;
+import org.xwiki.observation.ObservationManager;
+
+/**
+ * Used to expose {@link HistoryCompactionJob} status.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class HistoryCompactionJobStatus extends AbstractJobStatus<HistoryCompactionRequest>
+{
+    private final AtomicLong compactedDocuments = new AtomicLong();
+
+    private final AtomicLong removedRevisions = new AtomicLong();
+
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    /**
+     * @param request the request provided when started the job
+     * @param observationManager the observation manager component
+     * @param loggerManager the logger manager component
+     */
+    public HistoryCompactionJobStatus(HistoryCompactionRequest request, ObservationManager observationManager,
+        LoggerManager loggerManager)
+    {
+        super(HistoryCompactionJob.JOBTYPE, request, null, observationManager, loggerManager);
+    }
+
+    /**
+     * @param revisions the number of revisions removed from the document history
+     * @param bytes the size of the history before the compaction minus its size after the compaction
+     */
+    public void onDocumentCompacted(int revisions, long bytes)
+    {
+        this.compactedDocuments.incrementAndGet();
+        this.removedRevisions.addAndGet(revisions);
+        this.reclaimedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * @return the number of documents with removed revisions
+     */
+    public long getCompactedDocuments()
+    {
+        return this.compactedDocuments.get();
+    }
+
+    /**
+     * @return the total number of removed revisions
+     */
+    public long getRemovedRevisions()
+    {
+        return this.removedRevisions.get();
+    }
+
+    /**
+     * @return the number of bytes of history removed from the store
+     */
+    public long getReclaimedBytes()
+    {
+        return this.reclaimedBytes.get();
+    }
+}
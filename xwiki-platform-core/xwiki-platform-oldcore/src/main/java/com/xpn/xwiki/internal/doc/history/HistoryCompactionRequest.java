@@ -0,0 +1,167 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc.history;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.xwiki.job.AbstractRequest;
+import org.xwiki.job.Request;
+
+/**
+ * Request to use with {@link HistoryCompactionJob}.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class HistoryCompactionRequest extends AbstractRequest
+{
+    /**
+     * The identifier of the history compaction job.
+     */
+    public static final List<String> JOB_ID = Arrays.asList("store", "history", "compaction");
+
+    private static final String PROPERTY_WIKIS = "wikis";
+
+    private static final String PROPERTY_KEEP_ALL_DAYS = "keepAllDays";
+
+    private static final String PROPERTY_KEEP_DAILY_DAYS = "keepDailyDays";
+
+    private static final String PROPERTY_BATCH_SIZE = "batchSize";
+
+    private static final String PROPERTY_THREADS = "threads";
+
+    private static final String PROPERTY_BATCH_PAUSE = "batchPause";
+
+    /**
+     * Default constructor.
+     */
+    public HistoryCompactionRequest()
+    {
+        setId(JOB_ID);
+        setInteractive(false);
+    }
+
+    /**
+     * @param request the request to copy
+     */
+    public HistoryCompactionRequest(Request request)
+    {
+        super(request);
+    }
+
+    /**
+     * @return the identifiers of the wikis to compact, {@code null} for all the wikis
+     */
+    public List<String> getWikis()
+    {
+        return getProperty(PROPERTY_WIKIS);
+    }
+
+    /**
+     * @param wikis the identifiers of the wikis to compact, {@code null} for all the wikis
+     */
+    public void setWikis(List<String> wikis)
+    {
+        setProperty(PROPERTY_WIKIS, wikis);
+    }
+
+    /**
+     * @return the number of days during which all the revisions are kept
+     */
+    public int getKeepAllDays()
+    {
+        return getProperty(PROPERTY_KEEP_ALL_DAYS, 30);
+    }
+
+    /**
+     * @param keepAllDays the number of days during which all the revisions are kept
+     */
+    public void setKeepAllDays(int keepAllDays)
+    {
+        setProperty(PROPERTY_KEEP_ALL_DAYS, keepAllDays);
+    }
+
+    /**
+     * @return the number of days during which the last revision of each day is kept, one revision per month is kept
+     *         for older revisions
+     */
+    public int getKeepDailyDays()
+    {
+        return getProperty(PROPERTY_KEEP_DAILY_DAYS, 365);
+    }
+
+    /**
+     * @param keepDailyDays the number of days during which the last revision of each day is kept, one revision per
+     *            month is kept for older revisions
+     */
+    public void setKeepDailyDays(int keepDailyDays)
+    {
+        setProperty(PROPERTY_KEEP_DAILY_DAYS, keepDailyDays);
+    }
+
+    /**
+     * @return the number of documents compacted in each batch
+     */
+    public int getBatchSize()
+    {
+        return getProperty(PROPERTY_BATCH_SIZE, 100);
+    }
+
+    /**
+     * @param batchSize the number of documents compacted in each batch
+     */
+    public void setBatchSize(int batchSize)
+    {
+        setProperty(PROPERTY_BATCH_SIZE, batchSize);
+    }
+
+    /**
+     * @return the number of documents of a batch compacted in parallel
+     */
+    public int getThreads()
+    {
+        return getProperty(PROPERTY_THREADS, 2);
+    }
+
+    /**
+     * @param threads the number of documents of a batch compacted in parallel
+     */
+    public void setThreads(int threads)
+    {
+        setProperty(PROPERTY_THREADS, threads);
+    }
+
+    /**
+     * @return the time to wait between two batches in milliseconds, used to limit the load on the database
+     */
+    public long getBatchPause()
+    {
+        return getProperty(PROPERTY_BATCH_PAUSE, 1000L);
+    }
+
+    /**
+     * @param batchPause the time to wait between two batches in milliseconds, used to limit the load on the database
+     */
+    public void setBatchPause(long batchPause)
+    {
+        setProperty(PROPERTY_BATCH_PAUSE, batchPause);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc.history;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.job.Job;
+import org.xwiki.job.JobException;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Start the {@link HistoryCompactionJob} periodically when enabled in xwiki.cfg.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Named(HistoryCompactionScheduler.NAME)
+@Singleton
+public class HistoryCompactionScheduler extends AbstractEventListener implements Disposable
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "store.history.compaction";
+
+    private static final String PREFIX = "xwiki.store.rcs.compaction.";
+
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private JobExecutor jobExecutor;
+
+    @Inject
+    private Logger logger;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Default constructor.
+     */
+    public HistoryCompactionScheduler()
+    {
+        super(NAME, new ApplicationReadyEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        long period = this.configuration.getProperty(PREFIX + "period", 0L);
+
+        if (period > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "XWiki history compaction scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.scheduleAtFixedRate(this::startCompaction, period, period, TimeUnit.HOURS);
+        }
+    }
+
+    private void startCompaction()
+    {
+        Job currentJob = this.jobExecutor.getJob(HistoryCompactionRequest.JOB_ID);
+        if (currentJob != null && currentJob.getStatus().getState() != JobStatus.State.FINISHED) {
+            this.logger.debug("Skipping the history compaction since the previous one is still running");
+
+            return;
+        }
+
+        HistoryCompactionRequest request = new HistoryCompactionRequest();
+        request.setKeepAllDays(this.configuration.getProperty(PREFIX + "keepAllDays", request.getKeepAllDays()));
+        request.setKeepDailyDays(this.configuration.getProperty(PREFIX + "keepDailyDays", request.getKeepDailyDays()));
+        request.setBatchSize(this.configuration.getProperty(PREFIX + "batchSize", request.getBatchSize()));
+        request.setThreads(this.configuration.getProperty(PREFIX + "threads", request.getThreads()));
+        request.setBatchPause(this.configuration.getProperty(PREFIX + "batchPause", request.getBatchPause()));
+
+        try {
+            this.jobExecutor.execute(HistoryCompactionJob.JOBTYPE, request);
+        } catch (JobException e) {
+            this.logger.error("Failed to start the history compaction", e);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+    }
+}
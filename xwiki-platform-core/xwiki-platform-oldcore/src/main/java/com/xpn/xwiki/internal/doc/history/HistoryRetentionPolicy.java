@@ -0,0 +1,105 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc.history;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.suigeneris.jrcs.rcs.Version;
+
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+
+/**
+ * Decide which revisions of a document history can be removed: all the recent revisions are kept, then only the
+ * last revision of each day and finally only the last revision of each month. The latest revision is always kept.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class HistoryRetentionPolicy
+{
+    private final int keepAllDays;
+
+    private final int keepDailyDays;
+
+    private final ZoneId zone;
+
+    /**
+     * @param keepAllDays the number of days during which all the revisions are kept
+     * @param keepDailyDays the number of days during which the last revision of each day is kept
+     * @param zone the time zone used to find the day and the month of a revision
+     */
+    public HistoryRetentionPolicy(int keepAllDays, int keepDailyDays, ZoneId zone)
+    {
+        this.keepAllDays = keepAllDays;
+        this.keepDailyDays = keepDailyDays;
+        this.zone = zone;
+    }
+
+    /**
+     * @param nodes the revisions of the document ordered by version descending
+     * @param now the reference date used to compute the age of the revisions
+     * @return the ranges of consecutive revisions to remove, each range being an array containing the newest and the
+     *         oldest version of the range
+     */
+    public List<Version[]> getRangesToRemove(Collection<XWikiRCSNodeInfo> nodes, Date now)
+    {
+        Instant keepAllLimit = now.toInstant().minus(this.keepAllDays, ChronoUnit.DAYS);
+        Instant keepDailyLimit = now.toInstant().minus(this.keepDailyDays, ChronoUnit.DAYS);
+
+        List<Version[]> ranges = new ArrayList<>();
+        Set<Object> periods = new HashSet<>();
+        Version[] currentRange = null;
+        for (XWikiRCSNodeInfo node : nodes) {
+            Instant date = node.getDate() != null ? node.getDate().toInstant() : Instant.EPOCH;
+
+            boolean keep;
+            if (!date.isBefore(keepAllLimit)) {
+                keep = true;
+            } else {
+                LocalDate day = date.atZone(this.zone).toLocalDate();
+                // The nodes are ordered from the newest to the oldest so the first one of each period is the last
+                // revision of that period
+                keep = periods.add(date.isBefore(keepDailyLimit) ? YearMonth.from(day) : day);
+            }
+
+            Version version = node.getId().getVersion();
+            if (keep) {
+                currentRange = null;
+            } else if (currentRange == null) {
+                currentRange = new Version[] { version, version };
+                ranges.add(currentRange);
+            } else {
+                currentRange[1] = version;
+            }
+        }
+
+        return ranges;
+    }
+}
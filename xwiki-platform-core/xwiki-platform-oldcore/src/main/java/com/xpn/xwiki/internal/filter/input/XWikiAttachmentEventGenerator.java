@@ -89,11 +89,13 @@
     private Logger logger;
 
     @Override
-    public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilter attachmentFilter,
+    public void write(XWikiAttachment sourceAttachment, Object filter, XWikiAttachmentFilter attachmentFilter,
         DocumentInstanceInputProperties properties) throws FilterException
     {
         XWikiContext xcontext = this.xcontextProvider.get();
 
+        XWikiAttachment attachment = getExportedAttachment(sourceAttachment);
+
         FilterEventParameters attachmentParameters = getAttachmentParameters(attachment);
 
         if (properties.isWithWikiAttachmentJRCSRevisions()) {
@@ -112,6 +114,27 @@ public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilt
         writeAttachment(attachment, attachmentFilter, properties, attachmentParameters, xcontext);
     }
 
+    /**
+     * The attachment usually comes from a document shared through the document cache: when its content or history is
+     * not loaded yet, export a copy of the attachment so that what is loaded for the export is not kept in memory by
+     * the cached document (and without modifying an attachment which might be used by other threads).
+     * 
+     * @param attachment the attachment to export
+     * @return the attachment instance to use for the export
+     */
+    XWikiAttachment getExportedAttachment(XWikiAttachment attachment)
+    {
+        if (attachment.getAttachment_content() != null && attachment.getAttachment_archive() != null) {
+            return attachment;
+        }
+
+        XWikiAttachment exportedAttachment = attachment.clone();
+        // Associate the copy to the document without adding it to the document or modifying the document
+        exportedAttachment.setDoc(attachment.getDoc(), false);
+
+        return exportedAttachment;
+    }
+
     private void writeAttachment(XWikiAttachment attachment, XWikiAttachmentFilter attachmentFilter,
         DocumentInstanceInputProperties properties, FilterEventParameters attachmentParameters, XWikiContext xcontext)
         throws FilterException
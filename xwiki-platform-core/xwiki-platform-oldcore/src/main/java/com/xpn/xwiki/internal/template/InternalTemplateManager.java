@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.internal.template;
 
+import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -33,6 +34,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,9 +42,11 @@
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
+import javax.servlet.ServletContext;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -51,6 +55,7 @@
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.environment.Environment;
+import org.xwiki.environment.internal.ServletEnvironment;
 import org.xwiki.filter.input.InputSource;
 import org.xwiki.filter.input.InputStreamInputSource;
 import org.xwiki.filter.input.ReaderInputSource;
@@ -168,6 +173,11 @@ public class InternalTemplateManager implements Initializable
 
     private String templateRootURL;
 
+    /**
+     * The content of the filesystem templates, indexed by template identifier.
+     */
+    private final Map<String, CachedTemplateContent> filesystemContents = new ConcurrentHashMap<>();
+
     private static abstract class AbtractTemplate<T extends TemplateContent, R extends Resource<?>> implements Template
     {
         protected R resource;
@@ -195,30 +205,35 @@ public String getPath()
         public TemplateContent getContent() throws Exception
         {
             if (this.content == null) {
-                // TODO: work with streams instead of forcing String
-                String strinContent;
-
-                try (InputSource source = this.resource.getInputSource()) {
-                    if (source instanceof StringInputSource) {
-                        strinContent = source.toString();
-                    } else if (source instanceof ReaderInputSource) {
-                        strinContent = IOUtils.toString(((ReaderInputSource) source).getReader());
-                    } else if (source instanceof InputStreamInputSource) {
-                        // It's impossible to know the real attachment encoding, but let's assume that they respect the
-                        // standard and use UTF-8 (which is required for the files located on the filesystem)
-                        strinContent = IOUtils.toString(((InputStreamInputSource) source).getInputStream(),
-                            StandardCharsets.UTF_8);
-                    } else {
-                        return null;
-                    }
-                }
-
-                this.content = getContentInternal(strinContent);
+                this.content = readContent();
             }
 
             return this.content;
         }
 
+        protected T readContent() throws Exception
+        {
+            // TODO: work with streams instead of forcing String
+            String strinContent;
+
+            try (InputSource source = this.resource.getInputSource()) {
+                if (source instanceof StringInputSource) {
+                    strinContent = source.toString();
+                } else if (source instanceof ReaderInputSource) {
+                    strinContent = IOUtils.toString(((ReaderInputSource) source).getReader());
+                } else if (source instanceof InputStreamInputSource) {
+                    // It's impossible to know the real attachment encoding, but let's assume that they respect the
+                    // standard and use UTF-8 (which is required for the files located on the filesystem)
+                    strinContent = IOUtils.toString(((InputStreamInputSource) source).getInputStream(),
+                        StandardCharsets.UTF_8);
+                } else {
+                    return null;
+                }
+            }
+
+            return getContentInternal(strinContent);
+        }
+
         protected abstract T getContentInternal(String content) throws Exception;
 
         @Override
@@ -228,31 +243,87 @@ public String toString()
         }
     }
 
-    private class EnvironmentTemplate extends AbtractTemplate<FilesystemTemplateContent, AbstractEnvironmentResource>
+    /**
+     * Base class of the templates located on the filesystem or in a jar, which don't change often so their content is
+     * shared between all the instances of the same template.
+     *
+     * @param <R> the type of the resource
+     */
+    private abstract class AbstractFilesystemTemplate<R extends Resource<?>>
+        extends AbtractTemplate<FilesystemTemplateContent, R>
     {
-        EnvironmentTemplate(AbstractEnvironmentResource resource)
+        AbstractFilesystemTemplate(R resource)
         {
             super(resource);
         }
 
+        @Override
+        public TemplateContent getContent() throws Exception
+        {
+            if (this.content == null) {
+                this.content = getCachedContent(this);
+            }
+
+            return this.content;
+        }
+
         @Override
         protected FilesystemTemplateContent getContentInternal(String content)
         {
             return new FilesystemTemplateContent(content);
         }
+
+        /**
+         * @return the URL of the template file, {@code null} if it does not exist
+         */
+        protected abstract URL getURL();
+    }
+
+    private class EnvironmentTemplate extends AbstractFilesystemTemplate<AbstractEnvironmentResource>
+    {
+        EnvironmentTemplate(AbstractEnvironmentResource resource)
+        {
+            super(resource);
+        }
+
+        @Override
+        protected URL getURL()
+        {
+            return InternalTemplateManager.this.environment.getResource(this.resource.getPath());
+        }
     }
 
-    private class ClassloaderTemplate extends AbtractTemplate<FilesystemTemplateContent, ClassloaderResource>
+    private class ClassloaderTemplate extends AbstractFilesystemTemplate<ClassloaderResource>
     {
-        ClassloaderTemplate(ClassloaderResource resource)
+        private final URL url;
+
+        ClassloaderTemplate(URL url, ClassloaderResource resource)
         {
             super(resource);
+
+            this.url = url;
         }
 
         @Override
-        protected FilesystemTemplateContent getContentInternal(String content)
+        protected URL getURL()
         {
-            return new FilesystemTemplateContent(content);
+            return this.url;
+        }
+    }
+
+    /**
+     * The content of a filesystem template and the modification date of the file it was read from.
+     */
+    private static final class CachedTemplateContent
+    {
+        private final FilesystemTemplateContent content;
+
+        private final long lastModified;
+
+        CachedTemplateContent(FilesystemTemplateContent content, long lastModified)
+        {
+            this.content = content;
+            this.lastModified = lastModified;
         }
     }
 
@@ -872,6 +943,110 @@ private String evaluateContent(Template template, TemplateContent content) throw
         return writer.toString();
     }
 
+    private FilesystemTemplateContent getCachedContent(AbstractFilesystemTemplate<?> template) throws Exception
+    {
+        long lastModified = getLastModified(template.getURL());
+
+        CachedTemplateContent cachedContent = this.filesystemContents.get(template.getId());
+        if (cachedContent == null || cachedContent.lastModified != lastModified) {
+            FilesystemTemplateContent content = template.readContent();
+            if (content == null) {
+                return null;
+            }
+
+            cachedContent = new CachedTemplateContent(content, lastModified);
+            this.filesystemContents.put(template.getId(), cachedContent);
+        }
+
+        return cachedContent.content;
+    }
+
+    /**
+     * @param url the URL of a template file
+     * @return the modification date of the file, or -1 when it cannot be known without reading the file (in which
+     *         case the file is considered immutable, which is the case of the files located in a jar)
+     */
+    private long getLastModified(URL url)
+    {
+        if (url != null && "file".equals(url.getProtocol())) {
+            try {
+                return new File(url.toURI()).lastModified();
+            } catch (Exception e) {
+                // Not a standard file URL
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the number of filesystem template contents currently cached
+     * @since 12.6RC1
+     */
+    public int getCachedTemplateCount()
+    {
+        return this.filesystemContents.size();
+    }
+
+    /**
+     * Remove all the cached filesystem template contents.
+     *
+     * @since 12.6RC1
+     */
+    public void clearCache()
+    {
+        this.filesystemContents.clear();
+    }
+
+    /**
+     * Load the content of all the filesystem templates of the default skin and of the {@code /templates/} directory,
+     * so that the first requests don't have to.
+     *
+     * @since 12.6RC1
+     */
+    public void warmUp()
+    {
+        if (!(this.environment instanceof ServletEnvironment)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+
+        ServletContext servletContext = ((ServletEnvironment) this.environment).getServletContext();
+
+        List<String> paths = new ArrayList<>();
+        collectTemplatePaths(servletContext, TEMPLATE_RESOURCE_SUFFIX, paths);
+        String skinId = this.skins.getDefaultSkinId();
+        if (skinId != null) {
+            collectTemplatePaths(servletContext, "/skins/" + skinId + '/', paths);
+        }
+
+        paths.parallelStream().forEach(path -> {
+            try {
+                new EnvironmentTemplate(new TemplateEnvironmentResource(path, path, this.environment)).getContent();
+            } catch (Exception e) {
+                this.logger.warn("Failed to load the template [{}]: {}", path, ExceptionUtils.getRootCauseMessage(e));
+            }
+        });
+
+        this.logger.debug("Loaded [{}] templates in [{}] ms", paths.size(), System.currentTimeMillis() - start);
+    }
+
+    private void collectTemplatePaths(ServletContext servletContext, String directory, List<String> paths)
+    {
+        Set<String> children = servletContext.getResourcePaths(directory);
+
+        if (children != null) {
+            for (String child : children) {
+                if (child.endsWith("/")) {
+                    collectTemplatePaths(servletContext, child, paths);
+                } else if (child.endsWith(".vm")) {
+                    paths.add(child);
+                }
+            }
+        }
+    }
+
     private Syntax getTargetSyntax()
     {
         Syntax targetSyntax = this.renderingContext.getTargetSyntax();
@@ -898,7 +1073,7 @@ private Template getClassloaderTemplate(ClassLoader classloader, String suffixPa
 
         URL url = classloader.getResource(templatePath);
 
-        return url != null ? new ClassloaderTemplate(new ClassloaderResource(url, templateName)) : null;
+        return url != null ? new ClassloaderTemplate(url, new ClassloaderResource(url, templateName)) : null;
     }
 
     private Template createTemplate(Resource<?> resource)
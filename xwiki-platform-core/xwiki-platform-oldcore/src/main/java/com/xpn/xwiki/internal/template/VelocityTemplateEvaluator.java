@@ -21,10 +21,15 @@
 
 import java.io.StringReader;
 import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.rendering.internal.transformation.MutableRenderingContext;
@@ -45,6 +50,51 @@
 @Singleton
 public class VelocityTemplateEvaluator
 {
+    /**
+     * The number of evaluations and the time spent evaluating a template.
+     *
+     * @version $Id$
+     * @since 12.6RC1
+     */
+    public static final class EvaluationStatistics
+    {
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder duration = new LongAdder();
+
+        private void add(long evaluationDuration)
+        {
+            this.count.increment();
+            this.duration.add(evaluationDuration);
+        }
+
+        /**
+         * @return the number of times the template was evaluated
+         */
+        public long getCount()
+        {
+            return this.count.sum();
+        }
+
+        /**
+         * @return the total time spent evaluating the template, in nanoseconds
+         */
+        public long getTotalDuration()
+        {
+            return this.duration.sum();
+        }
+
+        /**
+         * @return the average time spent evaluating the template, in nanoseconds
+         */
+        public long getAverageDuration()
+        {
+            long evaluations = getCount();
+
+            return evaluations > 0 ? getTotalDuration() / evaluations : 0;
+        }
+    }
+
     @Inject
     private AuthorizationManager authorization;
 
@@ -57,6 +107,30 @@
     @Inject
     private VelocityManager velocityManager;
 
+    @Inject
+    private Logger logger;
+
+    private final Map<String, EvaluationStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * @return the evaluation statistics of each template, indexed by template identifier
+     * @since 12.6RC1
+     */
+    public Map<String, EvaluationStatistics> getStatistics()
+    {
+        return Collections.unmodifiableMap(this.statistics);
+    }
+
+    /**
+     * Forget the collected evaluation statistics.
+     *
+     * @since 12.6RC1
+     */
+    public void resetStatistics()
+    {
+        this.statistics.clear();
+    }
+
     /**
      * @param template the template to execute
      * @param content the template content to execute
@@ -91,9 +165,12 @@ public void evaluateContent(Template template, TemplateContent content, Writer w
         this.progress.startStep(template, "template.evaluateContent.message",
             "Evaluate content of template with id [{}]", template.getId());
 
+        long start = System.nanoTime();
         try {
             this.velocityManager.evaluate(writer, namespace, new StringReader(content.getContent()));
         } finally {
+            updateStatistics(template, System.nanoTime() - start);
+
             // Get rid of temporary rendering context
             if (renderingContextPushed) {
                 ((MutableRenderingContext) this.renderingContext).pop();
@@ -102,4 +179,14 @@ public void evaluateContent(Template template, TemplateContent content, Writer w
             this.progress.endStep(template);
         }
     }
+
+    private void updateStatistics(Template template, long duration)
+    {
+        // Templates without identifier (created from a String) cannot be tracked
+        if (template.getId() != null) {
+            this.statistics.computeIfAbsent(template.getId(), k -> new EvaluationStatistics()).add(duration);
+
+            this.logger.debug("Evaluated template [{}] in [{}] ns", template.getId(), duration);
+        }
+    }
 }
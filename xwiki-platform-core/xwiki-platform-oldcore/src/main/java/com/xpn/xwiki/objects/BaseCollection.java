@@ -635,9 +635,12 @@ public BaseCollection clone()
     {
         BaseCollection collection = (BaseCollection) super.clone();
         collection.setXClassReference(getRelativeXClassReference());
+        // The clone is located in the same document so there is no need to resolve the XClass reference again
+        collection.xClassReferenceCache = this.xClassReferenceCache;
         collection.setNumber(getNumber());
         Map fields = getFields();
-        Map cfields = new HashMap();
+        // Keep the order of the properties and avoid rehashing while copying them
+        Map cfields = new LinkedHashMap((int) (fields.size() / 0.75F) + 1);
         for (Object objEntry : fields.entrySet()) {
             Map.Entry entry = (Map.Entry) objEntry;
             PropertyInterface prop = (PropertyInterface) ((BaseElement) entry.getValue()).clone();
@@ -813,11 +816,14 @@ public Map<String, Object> getCustomMappingMap() throws XWikiException
     @Override
     public void setDocumentReference(DocumentReference reference)
     {
-        super.setDocumentReference(reference);
-
         // We force to refresh the XClass reference so that next time it's retrieved again it'll be resolved against
-        // the new document reference.
-        this.xClassReferenceCache = null;
+        // the new document reference (the XClass reference does not need to be resolved again when the object is just
+        // moved to an equivalent document, like when cloning a document).
+        if (reference == null || !reference.equals(this.documentReference)) {
+            this.xClassReferenceCache = null;
+        }
+
+        super.setDocumentReference(reference);
     }
 
     @Override
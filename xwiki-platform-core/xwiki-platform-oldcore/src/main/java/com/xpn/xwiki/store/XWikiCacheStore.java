@@ -21,6 +21,12 @@
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -56,6 +62,7 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
+import com.xpn.xwiki.internal.event.DocumentHistoryCompactedEvent;
 import com.xpn.xwiki.internal.store.AbstractXWikiStore;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
@@ -75,6 +82,18 @@ public class XWikiCacheStore extends AbstractXWikiStore
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiCacheStore.class);
 
+    /**
+     * A document load currently running against the underlying store.
+     * 
+     * @version $Id$
+     */
+    private static final class DocumentLoad
+    {
+        private final Thread thread = Thread.currentThread();
+
+        private final CompletableFuture<XWikiDocument> future = new CompletableFuture<>();
+    }
+
     /**
      * Used to know if a received event is a local or remote one.
      */
@@ -109,6 +128,16 @@ public class XWikiCacheStore extends AbstractXWikiStore
      */
     private Cache<Integer> limitSizePropertyCache;
 
+    /**
+     * The loads currently running against the underlying store, indexed by cache key. Used to make sure only one
+     * thread at a time loads a given document from the store, the other ones waiting for its result.
+     */
+    private final ConcurrentMap<String, DocumentLoad> loads = new ConcurrentHashMap<>();
+
+    private final AtomicLong storeLoadCount = new AtomicLong();
+
+    private final AtomicLong coalescedLoadCount = new AtomicLong();
+
     /**
      * Default constructor generally used by the Component Manager.
      */
@@ -157,7 +186,7 @@ public String getName()
     public List<Event> getEvents()
     {
         return Arrays.<Event>asList(new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent(),
-            new WikiDeletedEvent());
+            new WikiDeletedEvent(), new DocumentHistoryCompactedEvent());
     }
 
     private void initListener()
@@ -229,6 +258,7 @@ public void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, XW
         } finally {
             // Flushing the cache for old document
             String key = getKey(doc, context);
+            this.loads.remove(key);
             getCache().remove(key);
             getPageExistCache().remove(key);
 
@@ -239,6 +269,7 @@ public void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, XW
             }
             XWikiDocument newDoc = new XWikiDocument(newReference);
             key = getKey(newDoc, context);
+            this.loads.remove(key);
             getCache().remove(key);
             getPageExistCache().remove(key);
             context.setWikiReference(originalWikiReference);
@@ -259,8 +290,9 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
 
             doc.setStore(this.store);
         } finally {
-            // Flushing the cache
+            // Flushing the cache (and making sure next loads don't wait for a load started before the save)
             String key = getKey(doc, context);
+            this.loads.remove(key);
             getCache().remove(key);
             getPageExistCache().remove(key);
 
@@ -277,6 +309,7 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
     @Override
     public void flushCache()
     {
+        this.loads.clear();
         getCache().removeAll();
         getPageExistCache().removeAll();
         getLimitSizePropertyCache().removeAll();
@@ -285,8 +318,18 @@ public void flushCache()
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
-        // only react to remote events since local actions are already taken into account
-        if (this.remoteObservationManagerContext.isRemoteState()) {
+        if (event instanceof DocumentHistoryCompactedEvent) {
+            // The history is modified without going through the document store so local events are not already
+            // taken into account: forget the cached document (and the history it holds)
+            DocumentReference reference = (DocumentReference) source;
+            String key = this.uidStringEntityReferenceSerializer.serialize(reference, reference);
+
+            this.loads.remove(key);
+            if (getCache() != null) {
+                getCache().remove(key);
+            }
+        } else if (this.remoteObservationManagerContext.isRemoteState()) {
+            // only react to remote events since local actions are already taken into account
             if (event instanceof WikiDeletedEvent) {
                 flushCache();
             } else {
@@ -294,6 +337,8 @@ public void onEvent(Event event, Object source, Object data)
 
                 String key = doc.getKey();
 
+                this.loads.remove(key);
+
                 if (getCache() != null) {
                     getCache().remove(key);
                 }
@@ -389,22 +434,7 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                     cachedoc
                         .setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
                 } else {
-                    LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
-
-                    cachedoc = this.store.loadXWikiDoc(doc, context);
-
-                    LOGGER.debug("Cache: Got doc {} from storage", key);
-
-                    if (cachedoc.isNew()) {
-                        getPageExistCache().set(key, Boolean.FALSE);
-                    } else {
-                        getCache().set(key, cachedoc);
-
-                        // Also update exist cache
-                        getPageExistCache().set(key, Boolean.TRUE);
-                    }
-
-                    LOGGER.debug("Cache: put doc {} in cache", key);
+                    cachedoc = loadXWikiDocFromStore(key, doc, context);
                 }
             }
 
@@ -417,6 +447,103 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
         }
     }
 
+    private XWikiDocument loadXWikiDocFromStore(String key, XWikiDocument doc, XWikiContext context)
+        throws XWikiException
+    {
+        DocumentLoad load = new DocumentLoad();
+        DocumentLoad currentLoad = this.loads.putIfAbsent(key, load);
+
+        if (currentLoad == null) {
+            try {
+                XWikiDocument document = loadXWikiDocFromStore(key, doc, context, load);
+
+                load.future.complete(document);
+
+                return document;
+            } catch (XWikiException | RuntimeException e) {
+                load.future.completeExceptionally(e);
+
+                throw e;
+            } finally {
+                this.loads.remove(key, load);
+
+                // Make sure waiting threads are never stuck (for example in case of Error)
+                load.future.cancel(false);
+            }
+        } else if (currentLoad.thread == load.thread) {
+            // Reentrant load of the same document: waiting for it would be a deadlock
+            return loadXWikiDocFromStore(key, doc, context, null);
+        }
+
+        LOGGER.debug("Cache: Waiting for the load of doc {} started by another thread", key);
+
+        XWikiDocument document = waitForLoad(key, currentLoad);
+
+        this.coalescedLoadCount.incrementAndGet();
+
+        if (document.isNew()) {
+            // The store fills and returns the passed document when it does not exist so we can't share it
+            document = doc;
+            document.setNew(true);
+            document.setOriginalDocument(new XWikiDocument(document.getDocumentReference(), document.getLocale()));
+        }
+
+        return document;
+    }
+
+    private XWikiDocument loadXWikiDocFromStore(String key, XWikiDocument doc, XWikiContext context,
+        DocumentLoad load) throws XWikiException
+    {
+        LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
+
+        this.storeLoadCount.incrementAndGet();
+
+        XWikiDocument document = this.store.loadXWikiDoc(doc, context);
+
+        LOGGER.debug("Cache: Got doc {} from storage", key);
+
+        // Don't cache the result if the document was modified while it was being loaded
+        if (load != null && this.loads.get(key) == load) {
+            if (document.isNew()) {
+                getPageExistCache().set(key, Boolean.FALSE);
+            } else {
+                getCache().set(key, document);
+
+                // Also update exist cache
+                getPageExistCache().set(key, Boolean.TRUE);
+            }
+
+            LOGGER.debug("Cache: put doc {} in cache", key);
+        }
+
+        return document;
+    }
+
+    private XWikiDocument waitForLoad(String key, DocumentLoad load) throws XWikiException
+    {
+        try {
+            return load.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC,
+                "Interrupted while waiting for the load of document [" + key + "]", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XWikiException) {
+                throw (XWikiException) e.getCause();
+            }
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC,
+                "Failed to load document [" + key + "]", e.getCause());
+        } catch (CancellationException e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC,
+                "The load of document [" + key + "] was aborted", e);
+        }
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -429,6 +556,7 @@ public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws
 
             this.store.deleteXWikiDoc(doc, context);
 
+            this.loads.remove(key);
             getCache().remove(key);
             getPageExistCache().remove(key);
             getPageExistCache().set(key, Boolean.FALSE);
@@ -793,6 +921,27 @@ public Cache<Integer> getLimitSizePropertyCache()
         return this.limitSizePropertyCache;
     }
 
+    /**
+     * @return the number of documents actually loaded from the underlying store
+     * @since 12.6RC1
+     */
+    @Unstable
+    public long getStoreLoadCount()
+    {
+        return this.storeLoadCount.get();
+    }
+
+    /**
+     * @return the number of document loads which did not hit the underlying store because they waited for the same
+     *         document to be loaded by another thread
+     * @since 12.6RC1
+     */
+    @Unstable
+    public long getCoalescedLoadCount()
+    {
+        return this.coalescedLoadCount.get();
+    }
+
     @Override
     public List<String> getCustomMappingPropertyList(BaseClass bclass)
     {
@@ -0,0 +1,115 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copy a content to the response using the non blocking output of the servlet container, so that the request thread
+ * is released while the content is sent to the client.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+class AsyncContentWriter implements WriteListener
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncContentWriter.class);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputStream content;
+
+    private final AsyncContext asyncContext;
+
+    private final ServletOutputStream output;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private AsyncContentWriter(InputStream content, AsyncContext asyncContext, ServletOutputStream output)
+    {
+        this.content = content;
+        this.asyncContext = asyncContext;
+        this.output = output;
+    }
+
+    /**
+     * Put the request in asynchronous mode and start copying the content to the response. The content is closed once
+     * fully sent or when the client connection fails.
+     *
+     * @param content the content to send
+     * @param request the current request, which must support asynchronous mode
+     * @param response the current response
+     * @throws IOException when failing to access the response output
+     */
+    static void write(InputStream content, HttpServletRequest request, HttpServletResponse response)
+        throws IOException
+    {
+        AsyncContext asyncContext = request.startAsync();
+        // The time needed to send a big content to a slow client cannot be predicted, a broken connection is reported
+        // through #onError()
+        asyncContext.setTimeout(0);
+
+        ServletOutputStream output = response.getOutputStream();
+        output.setWriteListener(new AsyncContentWriter(content, asyncContext, output));
+    }
+
+    @Override
+    public void onWritePossible() throws IOException
+    {
+        while (this.output.isReady()) {
+            int length = this.content.read(this.buffer);
+
+            if (length < 0) {
+                close();
+
+                return;
+            }
+
+            this.output.write(this.buffer, 0, length);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t)
+    {
+        // Most probably the client closed the connection
+        LOGGER.debug("Failed to send the content asynchronously", t);
+
+        close();
+    }
+
+    private void close()
+    {
+        IOUtils.closeQuietly(this.content);
+
+        this.asyncContext.complete();
+    }
+}
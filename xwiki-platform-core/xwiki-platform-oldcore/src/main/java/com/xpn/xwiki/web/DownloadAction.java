@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.web;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -32,8 +33,8 @@
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -52,6 +53,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.plugin.XWikiPluginManager;
 import com.xpn.xwiki.util.Util;
@@ -82,6 +84,31 @@ public class DownloadAction extends XWikiAction
     /** Key of the blacklist in xwiki.properties. */
     public static final String BLACKLIST_PROPERTY = "attachment.download.blacklist";
 
+    /**
+     * The name of the property holding the minimum size (in bytes) of the content to send asynchronously.
+     *
+     * @since 12.6RC1
+     */
+    public static final String ASYNC_THRESHOLD_PROPERTY = "attachment.download.asyncThreshold";
+
+    /** The request attribute set by the servlet container when it supports sending files by itself. */
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+
+    /** The request attribute indicating to the servlet container the file to send. */
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+
+    /** The request attribute indicating to the servlet container the first byte to send. */
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+
+    /** The request attribute indicating to the servlet container the end (exclusive) of the bytes to send. */
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    /** The hint of the configuration source holding the xwiki.properties configuration. */
+    private static final String XWIKI_PROPERTIES = "xwikiproperties";
+
+    /** The default minimum size (in bytes) of the content to send asynchronously. */
+    private static final long DEFAULT_ASYNC_THRESHOLD = 1024L * 1024L;
+
     /** The URL part separator. */
     private static final String SEPARATOR = "/";
 
@@ -91,6 +118,12 @@ public class DownloadAction extends XWikiAction
     /** The format of a valid range header. */
     private static final Pattern RANGE_HEADER_PATTERN = Pattern.compile("bytes=([0-9]+)?-([0-9]+)?");
 
+    /** The name of the HTTP Header holding the entity tag of the response. */
+    private static final String ETAG_HEADER_NAME = "ETag";
+
+    /** The name of the HTTP Header holding the entity tags known by the client. */
+    private static final String IF_NONE_MATCH_HEADER_NAME = "If-None-Match";
+
     /**
      * Default constructor.
      */
@@ -161,9 +194,9 @@ public String render(XWikiContext context) throws XWikiException
                     args);
             }
 
-            long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
-            long lastModifiedOnServer = attachment.getDate().getTime();
-            if (lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer) {
+            String etag = getETag(attachment, request, context);
+            response.setHeader(ETAG_HEADER_NAME, etag);
+            if (isNotModified(attachment, etag, request)) {
                 response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
                 return null;
             }
@@ -187,6 +220,48 @@ public String render(XWikiContext context) throws XWikiException
         }
     }
 
+    /**
+     * Compute a strong entity tag for the downloaded content. The tag only depends on the attachment version and on the
+     * request parameters, which also drive the transformations applied by the plugins (e.g. image resizing), so it can
+     * be computed without reading the content.
+     *
+     * @param attachment the attachment to download
+     * @param request the current client request
+     * @param context the current request context
+     * @return the entity tag of the downloaded content
+     * @throws XWikiException if the attachment content cannot be retrieved
+     */
+    private String getETag(XWikiAttachment attachment, XWikiRequest request, XWikiContext context)
+        throws XWikiException
+    {
+        String key = StringUtils.join(Arrays.asList(attachment.getReference(), attachment.getVersion(),
+            attachment.getDate().getTime(), attachment.getContentLongSize(context), request.getQueryString()), ';');
+
+        return '"' + DigestUtils.md5Hex(key) + '"';
+    }
+
+    /**
+     * Check the conditional headers of the request. As specified by RFC 7232, {@code If-Modified-Since} is ignored
+     * when {@code If-None-Match} is provided.
+     *
+     * @param attachment the attachment to download
+     * @param etag the entity tag of the downloaded content
+     * @param request the current client request
+     * @return {@code true} if the client already has the downloaded content
+     */
+    private boolean isNotModified(XWikiAttachment attachment, String etag, XWikiRequest request)
+    {
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH_HEADER_NAME);
+        if (ifNoneMatch != null) {
+            return Utils.isETagMatching(ifNoneMatch, etag);
+        }
+
+        long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
+        long lastModifiedOnServer = attachment.getDate().getTime();
+
+        return lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer;
+    }
+
     private void throwNotFoundException(String filename) throws XWikiException
     {
         String message =
@@ -255,9 +330,6 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
         final XWikiResponse response, final XWikiContext context) throws XWikiException, IOException
     {
         if (start >= 0 && start < attachment.getContentLongSize(context)) {
-            InputStream data = attachment.getContentInputStream(context);
-            data = new BoundedInputStream(data, end + 1);
-            data.skip(start);
             setCommonHeaders(attachment, request, response, context);
             response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
             if ((end - start + 1L) < Integer.MAX_VALUE) {
@@ -265,7 +337,10 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
             }
             response.setHeader("Content-Range",
                 "bytes " + start + "-" + end + SEPARATOR + attachment.getContentLongSize(context));
-            IOUtils.copyLarge(data, response.getOutputStream());
+            if (!sendFile(attachment, start, end, request)) {
+                InputStream data = attachment.getContentInputStream(start, end - start + 1L, context);
+                writeContent(data, end - start + 1L, request, response);
+            }
         } else {
             response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
         }
@@ -287,8 +362,12 @@ protected void sendContent(final XWikiAttachment attachment, final XWikiRequest
         try {
             setCommonHeaders(attachment, request, response, context);
             setContentLength(response, attachment.getContentLongSize(context));
-            stream = attachment.getContentInputStream(context);
-            IOUtils.copy(stream, response.getOutputStream());
+            if (!sendFile(attachment, 0, attachment.getContentLongSize(context) - 1L, request)) {
+                stream = attachment.getContentInputStream(context);
+                writeContent(stream, attachment.getContentLongSize(context), request, response);
+                // The stream is closed by #writeContent()
+                stream = null;
+            }
         } catch (IOException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
                 XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION, "Exception while sending response", e);
@@ -299,6 +378,73 @@ protected void sendContent(final XWikiAttachment attachment, final XWikiRequest
         }
     }
 
+    /**
+     * Delegate the sending of the content to the servlet container when the content is stored in a file and the
+     * container supports it (Tomcat sendfile), so that the bytes are copied by the operating system directly from the
+     * file to the socket, after the request thread is released.
+     *
+     * @param attachment the attachment to get content from
+     * @param start the first byte to send
+     * @param end the last byte to send
+     * @param request the current client request
+     * @return {@code true} if the container is going to send the content, {@code false} if the action has to send it
+     */
+    private boolean sendFile(XWikiAttachment attachment, long start, long end, XWikiRequest request)
+    {
+        if (end < start || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            return false;
+        }
+
+        XWikiAttachmentContent content = attachment.getAttachment_content();
+        File file = content != null ? content.getContentFile() : null;
+        if (file == null) {
+            return false;
+        }
+
+        request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.getAbsolutePath());
+        request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+        // The end is exclusive for the container
+        request.setAttribute(SENDFILE_END_ATTRIBUTE, end + 1L);
+
+        return true;
+    }
+
+    /**
+     * Copy the content to the response and close it. Big contents are sent asynchronously when the servlet container
+     * allows it, to not block the request thread while the bytes are sent to the client.
+     *
+     * @param content the content to send
+     * @param length the number of bytes to send
+     * @param request the current client request
+     * @param response the response to write to
+     * @throws IOException if the response cannot be written
+     */
+    private void writeContent(InputStream content, long length, XWikiRequest request, XWikiResponse response)
+        throws IOException
+    {
+        if (isAsync(length, request)) {
+            AsyncContentWriter.write(content, request, response);
+        } else {
+            try {
+                IOUtils.copyLarge(content, response.getOutputStream());
+            } finally {
+                IOUtils.closeQuietly(content);
+            }
+        }
+    }
+
+    private boolean isAsync(long length, XWikiRequest request)
+    {
+        if (!request.isAsyncSupported()) {
+            return false;
+        }
+
+        ConfigurationSource configuration = Utils.getComponent(ConfigurationSource.class, XWIKI_PROPERTIES);
+        long threshold = configuration.getProperty(ASYNC_THRESHOLD_PROPERTY, DEFAULT_ASYNC_THRESHOLD);
+
+        return threshold >= 0 && length >= threshold;
+    }
+
     /**
      * @return the filename of the attachment or null if the URL didn't point to an attachment
      */
@@ -485,7 +631,7 @@ private boolean isValidRange(Long start, Long end)
 
     private boolean isAuthorized(String mimeType)
     {
-        ConfigurationSource configuration = Utils.getComponent(ConfigurationSource.class, "xwikiproperties");
+        ConfigurationSource configuration = Utils.getComponent(ConfigurationSource.class, XWIKI_PROPERTIES);
         if (configuration.containsKey(BLACKLIST_PROPERTY) && !configuration.containsKey(WHITELIST_PROPERTY)) {
             List<String> blackList = (configuration.getProperty(BLACKLIST_PROPERTY, Collections.<String>emptyList()));
             return !blackList.contains(mimeType);
@@ -46,6 +46,7 @@
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.stability.Unstable;
 import org.xwiki.xml.XMLUtils;
 
 import com.xpn.xwiki.XWiki;
@@ -919,4 +920,28 @@ public static Boolean isAjaxRequest(XWikiContext context)
     {
         return BooleanUtils.isTrue((Boolean) context.get("ajax"));
     }
+
+    /**
+     * Check if one of the entity tags sent by the client in a {@code If-None-Match} header matches the current entity
+     * tag of the requested content. Lists of tags, weak tags and the {@code *} wildcard are supported.
+     *
+     * @param ifNoneMatch the value of the {@code If-None-Match} header, {@code null} if the client did not send it
+     * @param etag the current strong entity tag of the requested content
+     * @return {@code true} if the client already has the current content
+     * @since 12.6RC1
+     */
+    @Unstable
+    public static boolean isETagMatching(String ifNoneMatch, String etag)
+    {
+        if (ifNoneMatch != null) {
+            for (String clientETag : StringUtils.split(ifNoneMatch, ',')) {
+                String trimmedETag = StringUtils.removeStart(clientETag.trim(), "W/");
+                if ("*".equals(trimmedETag) || trimmedETag.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
 }
@@ -19,16 +19,23 @@
  */
 package com.xpn.xwiki.doc;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.jmock.Mock;
 import org.suigeneris.jrcs.rcs.Version;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
 import org.xwiki.model.reference.DocumentReference;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiConfig;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.internal.doc.DocumentRevisionXMLCache;
 import com.xpn.xwiki.test.AbstractBridgedXWikiComponentTestCase;
 import com.xpn.xwiki.user.api.XWikiRightService;
 
@@ -39,6 +46,33 @@
  */
 public class XWikiDocumentArchiveTest extends AbstractBridgedXWikiComponentTestCase
 {
+    /**
+     * Keep the revisions in a map and remember the versions found in the cache.
+     */
+    private static class TestRevisionXMLCache extends DocumentRevisionXMLCache
+    {
+        private final Map<String, String> revisions = new HashMap<>();
+
+        private final List<Version> hits = new ArrayList<>();
+
+        @Override
+        public String get(String wiki, long documentId, Version version, Date date)
+        {
+            String xml = this.revisions.get(wiki + ':' + documentId + ':' + version + ':' + date.getTime());
+            if (xml != null) {
+                this.hits.add(version);
+            }
+
+            return xml;
+        }
+
+        @Override
+        public void set(String wiki, long documentId, Version version, Date date, String xml)
+        {
+            this.revisions.put(wiki + ':' + documentId + ':' + version + ':' + date.getTime(), xml);
+        }
+    }
+
     private XWikiContext context;
 
     private Mock mockXWiki;
@@ -326,6 +360,101 @@ public void testVerifyDiffAndFullRevisionAlgorithm() throws Exception
         assertFalse(archive.getNode(new Version(6, 1)).isDiff());
     }
 
+    public void testGetVersionXmlWhenNotCached() throws Exception
+    {
+        XWikiDocumentArchive archive = createArchive(4);
+        Map<Version, String> expected = getVersionsXml(archive);
+
+        TestRevisionXMLCache cache = registerRevisionXMLCache();
+
+        assertEquals(expected.get(new Version(2, 1)), archive.getVersionXml(new Version(2, 1), context));
+        assertTrue(cache.hits.isEmpty());
+        // Only the requested revision is added to the cache
+        assertEquals(1, cache.revisions.size());
+
+        // The second time it's found in the cache
+        assertEquals(expected.get(new Version(2, 1)), archive.getVersionXml(new Version(2, 1), context));
+        assertEquals(Arrays.asList(new Version(2, 1)), cache.hits);
+    }
+
+    public void testGetVersionXmlFromCachedNewerRevision() throws Exception
+    {
+        XWikiDocumentArchive archive = createArchive(4);
+        Map<Version, String> expected = getVersionsXml(archive);
+
+        TestRevisionXMLCache cache = registerRevisionXMLCache();
+
+        archive.getVersionXml(new Version(3, 1), context);
+        assertTrue(cache.hits.isEmpty());
+
+        // The patches are applied starting from the cached 3.1 revision instead of the full 4.1 revision
+        assertEquals(expected.get(new Version(1, 1)), archive.getVersionXml(new Version(1, 1), context));
+        assertEquals(Arrays.asList(new Version(3, 1)), cache.hits);
+    }
+
+    public void testGetVersionXmlDoesNotCrossFullRevision() throws Exception
+    {
+        // 5.1 and 6.1 are full revisions
+        XWikiDocumentArchive archive = createArchive(6);
+        Map<Version, String> expected = getVersionsXml(archive);
+
+        TestRevisionXMLCache cache = registerRevisionXMLCache();
+
+        archive.getVersionXml(new Version(6, 1), context);
+
+        // 4.1 is reconstructed from the nearest full revision (5.1) so the cached 6.1 revision is not used
+        assertEquals(expected.get(new Version(4, 1)), archive.getVersionXml(new Version(4, 1), context));
+        assertTrue(cache.hits.isEmpty());
+
+        // 3.1 is reconstructed from the cached 4.1 revision
+        assertEquals(expected.get(new Version(3, 1)), archive.getVersionXml(new Version(3, 1), context));
+        assertEquals(Arrays.asList(new Version(4, 1)), cache.hits);
+
+        // A full revision is not reconstructed from the cached revisions
+        assertEquals(expected.get(new Version(5, 1)), archive.getVersionXml(new Version(5, 1), context));
+        assertEquals(Arrays.asList(new Version(4, 1)), cache.hits);
+    }
+
+    private XWikiDocumentArchive createArchive(int revisions) throws XWikiException
+    {
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Test", "Test", "Test"));
+        XWikiDocumentArchive archive = new XWikiDocumentArchive(doc.getId());
+        doc.setDocumentArchive(archive);
+
+        for (int i = 1; i <= revisions; i++) {
+            addRevisionToHistory(archive, doc, "content " + i + ".1", "XWiki.some author", i + ".1");
+        }
+
+        return archive;
+    }
+
+    /**
+     * @return the XML of each revision, reconstructed without cache
+     */
+    private Map<Version, String> getVersionsXml(XWikiDocumentArchive archive) throws XWikiException
+    {
+        Map<Version, String> versions = new HashMap<>();
+        for (XWikiRCSNodeInfo node : archive.getNodes()) {
+            versions.put(node.getId().getVersion(), archive.getVersionXml(node.getId().getVersion(), context));
+        }
+
+        return versions;
+    }
+
+    private TestRevisionXMLCache registerRevisionXMLCache() throws Exception
+    {
+        TestRevisionXMLCache cache = new TestRevisionXMLCache();
+
+        DefaultComponentDescriptor<DocumentRevisionXMLCache> descriptor = new DefaultComponentDescriptor<>();
+        descriptor.setRoleType(DocumentRevisionXMLCache.class);
+        getComponentManager().registerComponent(descriptor, cache);
+
+        // The cache is only used when the current wiki is known
+        this.context.setWikiId("wiki");
+
+        return cache;
+    }
+
     private void addRevisionToHistory(XWikiDocumentArchive archive, XWikiDocument document, String content,
         String author, String comment) throws XWikiException
     {
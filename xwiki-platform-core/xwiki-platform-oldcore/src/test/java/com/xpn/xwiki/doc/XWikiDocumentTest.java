@@ -38,6 +38,7 @@
 import org.mockito.stubbing.Answer;
 import org.xwiki.context.Execution;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.configuration.ExtendedRenderingConfiguration;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.test.annotation.AllComponents;
@@ -237,6 +238,25 @@ public void getUniqueLinkedPages20()
             "TargetSpace.TargetPage.WebHome", "targetwiki:TargetSpace.TargetPage.WebHome")), linkedPages);
     }
 
+    @Test
+    public void getReadOnlyXDOM()
+    {
+        this.document.setSyntax(Syntax.XWIKI_2_1);
+        this.document.setContent("[[TargetPage]]");
+
+        XDOM xdom = this.document.getReadOnlyXDOM();
+
+        // The read only XDOM is shared, only getXDOM() copies it
+        assertSame(xdom, this.document.getReadOnlyXDOM());
+        assertNotSame(xdom, this.document.getXDOM());
+        assertEquals(xdom.getChildren().size(), this.document.getXDOM().getChildren().size());
+
+        // The cache is reset when the content changes
+        this.document.setContent("[[OtherPage]]");
+
+        assertNotSame(xdom, this.document.getReadOnlyXDOM());
+    }
+
     @Test
     public void getUniqueLinkedPages21()
     {
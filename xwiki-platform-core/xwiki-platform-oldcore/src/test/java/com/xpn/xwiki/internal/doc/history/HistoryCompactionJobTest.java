@@ -0,0 +1,213 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc.history;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.suigeneris.jrcs.rcs.Version;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.doc.rcs.XWikiPatch;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeContent;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeId;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+import com.xpn.xwiki.internal.event.DocumentHistoryCompactedEvent;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link HistoryCompactionJob}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+public class HistoryCompactionJobTest
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("xwiki", "space", "page");
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @InjectMockComponents
+    private HistoryCompactionJob job;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> resolver;
+
+    @MockComponent
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @MockComponent
+    private ExecutionContextManager executionContextManager;
+
+    @MockComponent
+    private ObservationManager observationManager;
+
+    private XWikiDocument document;
+
+    private XWikiDocumentArchive cachedArchive = new XWikiDocumentArchive();
+
+    private List<XWikiRCSNodeInfo> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+        when(this.componentManagerProvider.get()).thenReturn(this.oldcore.getMocker());
+
+        Query countQuery = mock(Query.class);
+        when(this.queryManager.createQuery("select count(doc.id) from XWikiDocument doc", Query.HQL))
+            .thenReturn(countQuery);
+        when(countQuery.execute()).thenReturn(Arrays.<Object>asList(1L));
+        Query documentsQuery = mock(Query.class);
+        when(this.queryManager.createQuery("select doc.fullName, doc.language from XWikiDocument doc order by doc.id",
+            Query.HQL)).thenReturn(documentsQuery);
+        when(documentsQuery.execute()).thenReturn(Collections.<Object>singletonList(new Object[] { "space.page", "" }));
+        when(this.resolver.resolve("space.page", new WikiReference("xwiki"))).thenReturn(DOCUMENT_REFERENCE);
+
+        this.document = new XWikiDocument(DOCUMENT_REFERENCE);
+        this.document.setNew(false);
+        this.document.setDocumentArchive(this.cachedArchive);
+        doReturn(this.document).when(this.oldcore.getSpyXWiki()).getDocument(DOCUMENT_REFERENCE, xcontext);
+
+        doAnswer(invocation -> {
+            XWikiDocumentArchive archive = invocation.getArgument(0);
+            archive.setNodes(this.nodes);
+
+            return null;
+        }).when(this.oldcore.getMockVersioningStore()).loadXWikiDocArchive(any(), eq(true), any());
+    }
+
+    private void addNode(String version, Date date)
+    {
+        XWikiRCSNodeInfo node = new XWikiRCSNodeInfo(new XWikiRCSNodeId(this.document.getId(), new Version(version)));
+        node.setDate(date);
+        XWikiRCSNodeContent content = new XWikiRCSNodeContent();
+        content.setPatch(new XWikiPatch("<xwikidoc>\n<version>" + version + "</version>\n</xwikidoc>", false));
+        node.setContent(content);
+
+        this.nodes.add(node);
+    }
+
+    private Date date(int year, int month, int day, int hour)
+    {
+        return Date.from(LocalDateTime.of(year, month, day, hour, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private HistoryCompactionRequest createRequest()
+    {
+        HistoryCompactionRequest request = new HistoryCompactionRequest();
+        request.setWikis(Arrays.asList("xwiki"));
+        request.setKeepAllDays(30);
+        request.setKeepDailyDays(365);
+        request.setBatchPause(0);
+
+        return request;
+    }
+
+    @Test
+    void compactDocument() throws Exception
+    {
+        addNode("1.4", new Date());
+        // Last revision of the month
+        addNode("1.3", date(2019, 5, 15, 11));
+        addNode("1.2", date(2019, 5, 15, 10));
+        // Last revision of another month
+        addNode("1.1", date(2019, 3, 15, 10));
+
+        this.job.initialize(createRequest());
+        this.job.runInternal();
+
+        ArgumentCaptor<XWikiDocumentArchive> archiveCaptor = ArgumentCaptor.forClass(XWikiDocumentArchive.class);
+        verify(this.oldcore.getMockVersioningStore()).saveXWikiDocArchive(archiveCaptor.capture(), eq(true), any());
+        List<Version> versions = new ArrayList<>();
+        for (XWikiRCSNodeInfo node : archiveCaptor.getValue().getNodes()) {
+            versions.add(node.getId().getVersion());
+        }
+        assertEquals(Arrays.asList(new Version("1.4"), new Version("1.3"), new Version("1.1")), versions);
+
+        assertEquals(1, this.job.getStatus().getCompactedDocuments());
+        assertEquals(1, this.job.getStatus().getRemovedRevisions());
+
+        // The cached document is not modified but the caches are notified
+        assertSame(this.cachedArchive, this.document.getDocumentArchive());
+        verify(this.observationManager).notify(any(DocumentHistoryCompactedEvent.class),
+            eq(this.document.getDocumentReferenceWithLocale()));
+    }
+
+    @Test
+    void compactDocumentWithNothingToRemove() throws Exception
+    {
+        addNode("1.2", new Date());
+        addNode("1.1", date(2019, 3, 15, 10));
+
+        this.job.initialize(createRequest());
+        this.job.runInternal();
+
+        verify(this.oldcore.getMockVersioningStore(), never()).saveXWikiDocArchive(any(), eq(true), any());
+        verify(this.observationManager, never()).notify(any(DocumentHistoryCompactedEvent.class), any());
+        assertEquals(0, this.job.getStatus().getCompactedDocuments());
+    }
+}
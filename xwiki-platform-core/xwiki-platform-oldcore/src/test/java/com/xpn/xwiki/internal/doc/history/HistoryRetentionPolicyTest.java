@@ -0,0 +1,99 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc.history;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.suigeneris.jrcs.rcs.Version;
+
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeId;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Validate {@link HistoryRetentionPolicy}.
+ *
+ * @version $Id$
+ */
+public class HistoryRetentionPolicyTest
+{
+    private static final Date NOW = Date.from(Instant.parse("2020-06-15T12:00:00Z"));
+
+    private final HistoryRetentionPolicy policy = new HistoryRetentionPolicy(30, 365, ZoneOffset.UTC);
+
+    private final List<XWikiRCSNodeInfo> nodes = new ArrayList<>();
+
+    private void addNode(String version, String date)
+    {
+        XWikiRCSNodeInfo node = new XWikiRCSNodeInfo(new XWikiRCSNodeId(42, new Version(version)));
+        node.setDate(Date.from(Instant.parse(date)));
+
+        this.nodes.add(node);
+    }
+
+    @Test
+    void getRangesToRemove()
+    {
+        addNode("1.9", "2020-06-14T12:00:00Z");
+        addNode("1.8", "2020-05-06T18:00:00Z");
+        addNode("1.7", "2020-05-06T10:00:00Z");
+        addNode("1.6", "2020-05-06T08:00:00Z");
+        addNode("1.5", "2020-05-05T12:00:00Z");
+        addNode("1.4", "2019-05-12T12:00:00Z");
+        addNode("1.3", "2019-05-07T12:00:00Z");
+        addNode("1.2", "2019-04-22T12:00:00Z");
+        addNode("1.1", "2019-04-17T12:00:00Z");
+
+        List<Version[]> ranges = this.policy.getRangesToRemove(this.nodes, NOW);
+
+        assertEquals(3, ranges.size());
+        assertArrayEquals(new Version[] { new Version("1.7"), new Version("1.6") }, ranges.get(0));
+        assertArrayEquals(new Version[] { new Version("1.3"), new Version("1.3") }, ranges.get(1));
+        assertArrayEquals(new Version[] { new Version("1.1"), new Version("1.1") }, ranges.get(2));
+    }
+
+    @Test
+    void getRangesToRemoveKeepsLatestVersion()
+    {
+        addNode("2.1", "2018-01-10T12:00:00Z");
+        addNode("1.1", "2018-01-10T10:00:00Z");
+
+        List<Version[]> ranges = this.policy.getRangesToRemove(this.nodes, NOW);
+
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new Version[] { new Version("1.1"), new Version("1.1") }, ranges.get(0));
+    }
+
+    @Test
+    void getRangesToRemoveWithRecentHistory()
+    {
+        addNode("1.2", "2020-06-10T12:00:00Z");
+        addNode("1.1", "2020-06-10T10:00:00Z");
+
+        assertEquals(0, this.policy.getRangesToRemove(this.nodes, NOW).size());
+    }
+}
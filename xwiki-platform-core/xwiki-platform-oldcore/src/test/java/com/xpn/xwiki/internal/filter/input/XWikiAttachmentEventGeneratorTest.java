@@ -0,0 +1,131 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.filter.input;
+
+import java.io.ByteArrayInputStream;
+
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.filter.instance.input.DocumentInstanceInputProperties;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentArchive;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.filter.XWikiAttachmentFilter;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link XWikiAttachmentEventGenerator}.
+ * 
+ * @version $Id$
+ */
+@OldcoreTest
+public class XWikiAttachmentEventGeneratorTest
+{
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @InjectMockComponents
+    private XWikiAttachmentEventGenerator generator;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    private XWikiDocument document;
+
+    private XWikiAttachment attachment;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        when(this.xcontextProvider.get()).thenReturn(this.oldcore.getXWikiContext());
+
+        this.document = new XWikiDocument(new DocumentReference("wiki", "space", "page"));
+        this.attachment = new XWikiAttachment(this.document, "file.txt");
+        this.document.setAttachment(this.attachment);
+    }
+
+    @Test
+    public void getExportedAttachmentWhenNotLoaded()
+    {
+        XWikiAttachment exportedAttachment = this.generator.getExportedAttachment(this.attachment);
+
+        assertNotSame(this.attachment, exportedAttachment);
+        assertSame(this.document, exportedAttachment.getDoc());
+
+        // Loading things in the copy should not affect the (cached) attachment
+        exportedAttachment.setAttachment_content(new XWikiAttachmentContent(exportedAttachment));
+        exportedAttachment.setAttachment_archive(new XWikiAttachmentArchive());
+        assertNull(this.attachment.getAttachment_content());
+        assertNull(this.attachment.getAttachment_archive());
+
+        // The document should not be modified
+        assertSame(this.attachment, this.document.getAttachment("file.txt"));
+    }
+
+    @Test
+    public void getExportedAttachmentWhenLoaded()
+    {
+        this.attachment.setAttachment_content(new XWikiAttachmentContent(this.attachment));
+        this.attachment.setAttachment_archive(new XWikiAttachmentArchive());
+
+        assertSame(this.attachment, this.generator.getExportedAttachment(this.attachment));
+    }
+
+    @Test
+    public void writeWithContentAndWithoutArchive() throws Exception
+    {
+        this.attachment.setContent(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }));
+        XWikiAttachmentContent content = this.attachment.getAttachment_content();
+
+        DocumentInstanceInputProperties properties = new DocumentInstanceInputProperties();
+        properties.setWithWikiAttachmentJRCSRevisions(false);
+        properties.setWithWikiAttachmentsRevisions(false);
+
+        XWikiAttachmentFilter attachmentFilter = mock(XWikiAttachmentFilter.class);
+
+        this.generator.write(this.attachment, attachmentFilter, attachmentFilter, properties);
+
+        verify(attachmentFilter).onWikiAttachment(eq("file.txt"), any(), eq(4L), any());
+
+        // The exported attachment is a copy so the cached attachment should be left untouched
+        assertSame(content, this.attachment.getAttachment_content());
+        assertNull(this.attachment.getAttachment_archive());
+        assertSame(this.attachment, this.document.getAttachment("file.txt"));
+    }
+}
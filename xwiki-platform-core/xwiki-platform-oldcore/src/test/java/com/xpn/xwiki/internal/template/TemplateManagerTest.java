@@ -61,6 +61,8 @@
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -145,6 +147,19 @@ public void testRenderVelocity() throws Exception
         assertEquals("OK", this.templateManager.render("template"));
     }
 
+    @Test
+    public void testRenderVelocityTwiceReadTemplateOnce() throws Exception
+    {
+        mockVelocity("source", "OK");
+
+        setTemplateContent("source");
+
+        assertEquals("OK", this.templateManager.render("template"));
+        assertEquals("OK", this.templateManager.render("template"));
+
+        verify(this.environmentMock, times(1)).getResourceAsStream("/templates/template");
+    }
+
     @Test
     public void testTemplateWithoutScriptRight() throws Exception
     {
@@ -19,6 +19,8 @@
  */
 package com.xpn.xwiki.objects;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -39,6 +41,7 @@
 import com.xpn.xwiki.test.reference.ReferenceComponentList;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -205,4 +208,41 @@ public void testHashCode()
 
         assertEquals(o1.hashCode(), o2.hashCode());
     }
+
+    @Test
+    public void cloneKeepsPropertiesOrder()
+    {
+        BaseObject baseObject = new BaseObject();
+        baseObject.setStringValue("c", "c");
+        baseObject.setStringValue("a", "a");
+        baseObject.setStringValue("b", "b");
+
+        BaseObject clone = baseObject.clone();
+
+        assertEquals(Arrays.asList("c", "a", "b"), new ArrayList<>(clone.getPropertyList()));
+        assertSame(clone, ((BaseProperty) clone.getField("a")).getObject());
+    }
+
+    @Test
+    public void cloneAndMoveXClassReference()
+    {
+        BaseObject baseObject = new BaseObject();
+        baseObject.setDocumentReference(new DocumentReference("wiki", "space", "page"));
+        baseObject.setXClassReference(new EntityReference("Class", EntityType.DOCUMENT));
+
+        assertEquals(new DocumentReference("wiki", "space", "Class"), baseObject.getXClassReference());
+
+        BaseObject clone = baseObject.clone();
+
+        assertEquals(new DocumentReference("wiki", "space", "Class"), clone.getXClassReference());
+
+        clone.setDocumentReference(new DocumentReference("wiki", "space", "page"));
+
+        assertEquals(new DocumentReference("wiki", "space", "Class"), clone.getXClassReference());
+
+        clone.setDocumentReference(new DocumentReference("otherwiki", "otherspace", "page"));
+
+        assertEquals(new DocumentReference("otherwiki", "otherspace", "Class"), clone.getXClassReference());
+        assertEquals(new DocumentReference("wiki", "space", "Class"), baseObject.getXClassReference());
+    }
 }
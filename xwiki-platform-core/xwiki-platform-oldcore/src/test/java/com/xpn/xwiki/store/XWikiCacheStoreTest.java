@@ -19,6 +19,14 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.xwiki.cache.Cache;
@@ -32,6 +40,7 @@
 
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.DocumentHistoryCompactedEvent;
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
@@ -39,9 +48,12 @@
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -143,4 +155,65 @@ public void saveXWikiDocumentFailing() throws XWikiException
         verify(this.cache).remove("4:wiki5:space4:page0:");
         verify(this.existCache).remove("4:wiki5:space4:page0:");
     }
+
+    @Test
+    public void loadXWikiDocConcurrently() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference reference = new DocumentReference("wiki", "space", "page");
+        XWikiDocument storedDocument = new XWikiDocument(reference);
+        storedDocument.setNew(false);
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicReference<Future<XWikiDocument>> concurrentLoad = new AtomicReference<>();
+        AtomicReference<Thread> concurrentThread = new AtomicReference<>();
+
+        doAnswer(invocation -> {
+            // Start a second load of the same document while the first one is still running
+            concurrentLoad.set(executor.submit(() -> {
+                concurrentThread.set(Thread.currentThread());
+                return store.loadXWikiDoc(new XWikiDocument(reference), this.oldcore.getXWikiContext());
+            }));
+
+            // Wait for the second load to be blocked on the first one
+            long timeout = System.currentTimeMillis() + 10000;
+            while (concurrentThread.get() == null || concurrentThread.get().getState() != Thread.State.WAITING) {
+                if (System.currentTimeMillis() > timeout) {
+                    throw new TimeoutException("The concurrent load did not wait for the first one");
+                }
+                Thread.sleep(10);
+            }
+
+            return storedDocument;
+        }).when(this.oldcore.getMockStore()).loadXWikiDoc(any(XWikiDocument.class), any());
+
+        try {
+            XWikiDocument document =
+                store.loadXWikiDoc(new XWikiDocument(reference), this.oldcore.getXWikiContext());
+
+            assertSame(storedDocument, document);
+            assertSame(storedDocument, concurrentLoad.get().get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(this.oldcore.getMockStore()).loadXWikiDoc(any(XWikiDocument.class), any());
+        assertEquals(1, store.getStoreLoadCount());
+        assertEquals(1, store.getCoalescedLoadCount());
+    }
+
+    @Test
+    public void onDocumentHistoryCompacted() throws XWikiException
+    {
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        // The history is not modified through the store so even local events should be taken into account
+        store.onEvent(new DocumentHistoryCompactedEvent(),
+            new DocumentReference("wiki", "space", "page", Locale.ROOT), null);
+
+        verify(this.cache).remove("4:wiki5:space4:page0:");
+    }
 }
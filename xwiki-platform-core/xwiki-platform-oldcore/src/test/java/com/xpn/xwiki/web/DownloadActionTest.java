@@ -20,16 +20,20 @@
 package com.xpn.xwiki.web;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.Date;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.xwiki.model.reference.AttachmentReference;
 import org.xwiki.model.reference.DocumentReference;
@@ -56,6 +60,8 @@
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -154,6 +160,34 @@ public void downloadNormal() throws XWikiException, IOException
         verifyOutputExpectations(0, this.fileContent.length);
     }
 
+    @Test
+    public void downloadAsync() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1l, DEFAULT_FILE_NAME);
+
+        this.oldcore.getConfigurationSource().setProperty(DownloadAction.ASYNC_THRESHOLD_PROPERTY, 0L);
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        when(this.request.isAsyncSupported()).thenReturn(true);
+        when(this.request.startAsync()).thenReturn(asyncContext);
+        when(this.out.isReady()).thenReturn(true);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verify(this.out, never()).write(any(byte[].class), anyInt(), anyInt());
+        verify(asyncContext, never()).complete();
+
+        // Simulate the servlet container notifying that the content can be sent
+        ArgumentCaptor<WriteListener> listenerCaptor = ArgumentCaptor.forClass(WriteListener.class);
+        verify(this.out).setWriteListener(listenerCaptor.capture());
+        listenerCaptor.getValue().onWritePossible();
+
+        verifyOutputExpectations(0, this.fileContent.length);
+        verify(asyncContext).complete();
+    }
+
     @Test
     public void downloadLongLength() throws XWikiException
     {
@@ -207,6 +241,40 @@ public void downloadWhenIfModifiedSinceAfter() throws XWikiException, IOExceptio
         assertNull(this.action.render(this.oldcore.getXWikiContext()));
     }
 
+    @Test
+    public void downloadWhenIfNoneMatchSame() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        ArgumentCaptor<String> etagCaptor = ArgumentCaptor.forClass(String.class);
+        verify(this.response).setHeader(eq("ETag"), etagCaptor.capture());
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\", " + etagCaptor.getValue());
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    public void downloadWhenIfNoneMatchDifferent() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, null, d.getTime(), DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
     @Test(expected = XWikiException.class)
     public void downloadWhenMissingFile() throws XWikiException
     {
@@ -405,6 +473,32 @@ public void downloadWhenValidStartRange() throws XWikiException, IOException
         verifyOutputExpectations(0, 4);
     }
 
+    @Test
+    public void downloadRangeWithSendFile() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=3-5", -1l, DEFAULT_FILE_NAME);
+
+        // Simulate an attachment stored as is on the filesystem
+        XWikiAttachment attachment = this.document.getAttachment(DEFAULT_FILE_NAME);
+        XWikiAttachmentContent content = spy(attachment.getAttachment_content());
+        File file = new File("file.txt");
+        when(content.getContentFile()).thenReturn(file);
+        attachment.setAttachment_content(content);
+        when(this.request.getAttribute("org.apache.tomcat.sendfile.support")).thenReturn(Boolean.TRUE);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(this.response).setHeader("Content-Range", "bytes 3-5/" + DownloadActionTest.this.fileContent.length);
+        verifyResponseExpectations(d.getTime(), 3);
+        verify(this.request).setAttribute("org.apache.tomcat.sendfile.filename", file.getAbsolutePath());
+        verify(this.request).setAttribute("org.apache.tomcat.sendfile.start", 3L);
+        verify(this.request).setAttribute("org.apache.tomcat.sendfile.end", 6L);
+        verify(this.out, never()).write(any(byte[].class), anyInt(), anyInt());
+    }
+
     @Test
     public void downloadWhenValidMiddleRange() throws XWikiException, IOException
     {
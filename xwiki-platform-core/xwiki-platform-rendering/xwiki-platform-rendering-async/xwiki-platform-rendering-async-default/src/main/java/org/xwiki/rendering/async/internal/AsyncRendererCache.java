@@ -224,6 +224,7 @@ public void cacheEntryRemoved(CacheEntryEvent<AsyncRendererJobStatus> event)
         remove(key, status.getReferences(), this.referenceMapping);
         remove(key, status.getRoleTypes(), this.roleTypeMapping);
         remove(key, status.getRoles(), this.roleMapping);
+        remove(key, status.getRights(), this.rightMapping);
     }
 
     private <T> void remove(String key, Set<T> values, Map<T, Set<String>> mapping)
@@ -291,7 +292,32 @@ public void cleanCache(Type roleType, String roleHint)
      */
     public void cleanCacheForRight()
     {
-        this.rightMapping.forEach(this::checkRight);
+        cleanCacheForRight(null);
+    }
+
+    /**
+     * Clean entries for which the evaluation of a right on an entity located in the passed scope changed.
+     * 
+     * @param scope the entity on which and under which the rights might have changed, {@code null} if any right
+     *            might have changed
+     * @since 12.6RC1
+     */
+    public void cleanCacheForRight(EntityReference scope)
+    {
+        this.rightMapping.forEach((right, keys) -> {
+            if (isInScope(right, scope)) {
+                checkRight(right, keys);
+            }
+        });
+    }
+
+    private boolean isInScope(RightEntry right, EntityReference scope)
+    {
+        EntityReference entityReference = right.getEntityReference();
+
+        // A right checked without entity (e.g. programming right) depends on the whole farm configuration
+        return scope == null || entityReference == null || entityReference.equals(scope)
+            || entityReference.hasParent(scope);
     }
 
     private void checkRight(RightEntry right, Set<String> keys)
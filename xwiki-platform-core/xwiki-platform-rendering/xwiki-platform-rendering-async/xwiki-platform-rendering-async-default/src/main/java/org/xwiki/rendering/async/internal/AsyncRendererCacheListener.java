@@ -31,6 +31,9 @@
 import org.xwiki.component.event.ComponentDescriptorAddedEvent;
 import org.xwiki.component.event.ComponentDescriptorEvent;
 import org.xwiki.component.event.ComponentDescriptorRemovedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.AbstractEventListener;
 import org.xwiki.observation.event.Event;
@@ -63,6 +66,18 @@ public class AsyncRendererCacheListener extends AbstractEventListener
      */
     public static final String NAME = "org.xwiki.rendering.async.internal.AsyncRendererCacheListener";
 
+    private static final String XWIKI_SPACE = "XWiki";
+
+    private static final String SPACE_PREFERENCES = "WebPreferences";
+
+    private static final LocalDocumentReference WIKI_PREFERENCES =
+        new LocalDocumentReference(XWIKI_SPACE, "XWikiPreferences");
+
+    private static final LocalDocumentReference GROUP_CLASS = new LocalDocumentReference(XWIKI_SPACE, "XWikiGroups");
+
+    private static final LocalDocumentReference WIKI_DESCRIPTOR_CLASS =
+        new LocalDocumentReference(XWIKI_SPACE, "XWikiServerClass");
+
     @Inject
     private AsyncRendererCache cache;
 
@@ -82,7 +97,7 @@ public AsyncRendererCacheListener()
     public void onEvent(Event event, Object source, Object data)
     {
         if (event instanceof RightUpdatedEvent) {
-            this.cache.cleanCacheForRight();
+            this.cache.cleanCacheForRight(getRightScope((XWikiDocument) source));
         } else if (event instanceof ComponentDescriptorEvent) {
             ComponentDescriptorEvent componentEvent = ((ComponentDescriptorEvent) event);
             this.cache.cleanCache(componentEvent.getRoleType(), componentEvent.getRoleHint());
@@ -106,6 +121,41 @@ public void onEvent(Event event, Object source, Object data)
         }
     }
 
+    /**
+     * @param document the modified document
+     * @return the entity on which and under which the rights might have changed, {@code null} if any right might have
+     *         changed
+     */
+    private EntityReference getRightScope(XWikiDocument document)
+    {
+        if (document == null) {
+            return null;
+        }
+
+        DocumentReference documentReference = document.getDocumentReference();
+
+        // Wiki preferences and descriptors can impact global users and groups (which are used in other wikis) and a
+        // group modification impact all the rights of its members, so any right might have changed
+        if (WIKI_PREFERENCES.equals(documentReference.getLocalDocumentReference())
+            || hasXObject(document, WIKI_DESCRIPTOR_CLASS) || hasXObject(document, GROUP_CLASS)
+            || hasXObject(document.getOriginalDocument(), GROUP_CLASS)) {
+            return null;
+        }
+
+        // Space preferences impact the space and everything it contains
+        if (SPACE_PREFERENCES.equals(documentReference.getName())) {
+            return documentReference.getParent();
+        }
+
+        // Document rights only impact the document
+        return documentReference;
+    }
+
+    private boolean hasXObject(XWikiDocument document, LocalDocumentReference classReference)
+    {
+        return document != null && !document.getXObjects(classReference).isEmpty();
+    }
+
     private void onEntityEvent(EntityEvent event, XWikiDocument document)
     {
         // Clean entries associated to the entity
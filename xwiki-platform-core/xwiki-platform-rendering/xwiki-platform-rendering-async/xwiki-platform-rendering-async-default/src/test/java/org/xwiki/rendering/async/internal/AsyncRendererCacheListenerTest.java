@@ -0,0 +1,141 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.security.authorization.event.RightUpdatedEvent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AsyncRendererCacheListener}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class AsyncRendererCacheListenerTest
+{
+    private static final LocalDocumentReference GROUP_CLASS = new LocalDocumentReference("XWiki", "XWikiGroups");
+
+    private static final LocalDocumentReference WIKI_DESCRIPTOR_CLASS =
+        new LocalDocumentReference("XWiki", "XWikiServerClass");
+
+    @MockComponent
+    private AsyncRendererCache cache;
+
+    @InjectMockComponents
+    private AsyncRendererCacheListener listener;
+
+    private XWikiDocument mockDocument(DocumentReference documentReference)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(documentReference);
+
+        return document;
+    }
+
+    private void updateRights(XWikiDocument document)
+    {
+        this.listener.onEvent(new RightUpdatedEvent(), document, null);
+    }
+
+    @Test
+    void rightUpdatedOnDocument()
+    {
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+
+        updateRights(mockDocument(documentReference));
+
+        verify(this.cache).cleanCacheForRight(documentReference);
+    }
+
+    @Test
+    void rightUpdatedOnSpacePreferences()
+    {
+        updateRights(mockDocument(new DocumentReference("wiki", "Space", "WebPreferences")));
+
+        verify(this.cache).cleanCacheForRight(new SpaceReference("wiki", "Space"));
+    }
+
+    @Test
+    void rightUpdatedOnWikiPreferences()
+    {
+        updateRights(mockDocument(new DocumentReference("wiki", "XWiki", "XWikiPreferences")));
+
+        verify(this.cache).cleanCacheForRight(null);
+    }
+
+    @Test
+    void rightUpdatedOnGroup()
+    {
+        XWikiDocument document = mockDocument(new DocumentReference("wiki", "XWiki", "Group"));
+        when(document.getXObjects(GROUP_CLASS)).thenReturn(Arrays.asList(mock(BaseObject.class)));
+
+        updateRights(document);
+
+        verify(this.cache).cleanCacheForRight(null);
+    }
+
+    @Test
+    void rightUpdatedOnDeletedGroup()
+    {
+        // The group members have been removed from the document
+        XWikiDocument originalDocument = mock(XWikiDocument.class);
+        when(originalDocument.getXObjects(GROUP_CLASS)).thenReturn(Arrays.asList(mock(BaseObject.class)));
+        XWikiDocument document = mockDocument(new DocumentReference("wiki", "XWiki", "Group"));
+        when(document.getOriginalDocument()).thenReturn(originalDocument);
+
+        updateRights(document);
+
+        verify(this.cache).cleanCacheForRight(null);
+    }
+
+    @Test
+    void rightUpdatedOnWikiDescriptor()
+    {
+        XWikiDocument document = mockDocument(new DocumentReference("xwiki", "XWiki", "XWikiServerWiki"));
+        when(document.getXObjects(WIKI_DESCRIPTOR_CLASS)).thenReturn(Arrays.asList(mock(BaseObject.class)));
+
+        updateRights(document);
+
+        verify(this.cache).cleanCacheForRight(null);
+    }
+
+    @Test
+    void rightUpdatedWithoutDocument()
+    {
+        updateRights(null);
+
+        verify(this.cache).cleanCacheForRight(null);
+    }
+}
@@ -34,6 +34,10 @@
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.ObjectReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.RightEntry;
+import org.xwiki.security.authorization.Right;
 import org.xwiki.test.annotation.BeforeComponent;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
@@ -100,6 +104,11 @@ private void setReferences(EntityReference... references)
         this.status.setReferences(new HashSet<>(Arrays.asList(references)));
     }
 
+    private void setRights(RightEntry... rights)
+    {
+        this.status.setRights(new HashSet<>(Arrays.asList(rights)));
+    }
+
     private List<String> getId()
     {
         return this.status.getRequest().getId();
@@ -197,6 +206,52 @@ public void invalidateSyncOnWiki()
         assertNull(this.asyncCache.getSync(getId()));
     }
 
+    @Test
+    public void invalidateSyncOnRightInScope()
+    {
+        DocumentReference user = new DocumentReference("wiki", "XWiki", "user");
+        DocumentReference document = new DocumentReference("wiki", "Space", "Document");
+        setRights(new RightEntry(Right.VIEW, user, document, true));
+
+        this.asyncCache.put(this.status);
+
+        this.asyncCache.cleanCacheForRight(new DocumentReference("wiki", "Space", "OtherDocument"));
+
+        assertSame(this.status, this.asyncCache.getSync(getId()));
+
+        this.asyncCache.cleanCacheForRight(new SpaceReference("wiki", "OtherSpace"));
+
+        assertSame(this.status, this.asyncCache.getSync(getId()));
+
+        this.asyncCache.cleanCacheForRight(new SpaceReference("wiki", "Space"));
+
+        assertNull(this.asyncCache.getSync(getId()));
+
+        this.asyncCache.put(this.status);
+
+        this.asyncCache.cleanCacheForRight(new WikiReference("wiki"));
+
+        assertNull(this.asyncCache.getSync(getId()));
+
+        this.asyncCache.put(this.status);
+
+        this.asyncCache.cleanCacheForRight(null);
+
+        assertNull(this.asyncCache.getSync(getId()));
+    }
+
+    @Test
+    public void invalidateSyncOnRightWithoutEntity()
+    {
+        setRights(new RightEntry(Right.PROGRAM, new DocumentReference("wiki", "XWiki", "user"), null, true));
+
+        this.asyncCache.put(this.status);
+
+        this.asyncCache.cleanCacheForRight(new DocumentReference("wiki", "Space", "Document"));
+
+        assertNull(this.asyncCache.getSync(getId()));
+    }
+
     @Test
     public void getAsyncSingleClient()
     {
@@ -124,6 +124,49 @@ public class DefaultSolrConfiguration implements SolrConfiguration
      */
     public static final int SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT = 100000;
 
+    /**
+     * The name of the configuration property containing the maximum delay before committing the batch.
+     * 
+     * @since 12.6RC1
+     */
+    public static final String SOLR_INDEXER_BATCH_MAXDELAY_PROPERTY = "solr.indexer.batch.maxDelay";
+
+    /**
+     * The default maximum delay before committing the batch (no time limit).
+     * 
+     * @since 12.6RC1
+     */
+    public static final long SOLR_INDEXER_BATCH_MAXDELAY_DEFAULT = 0;
+
+    /**
+     * The name of the configuration property containing the number of metadata extraction threads.
+     * 
+     * @since 12.6RC1
+     */
+    public static final String SOLR_INDEXER_THREADS_PROPERTY = "solr.indexer.threads";
+
+    /**
+     * The default number of metadata extraction threads.
+     * 
+     * @since 12.6RC1
+     */
+    public static final int SOLR_INDEXER_THREADS_DEFAULT = 1;
+
+    /**
+     * The name of the configuration property containing the maximum size of the attachment text cache.
+     * 
+     * @since 12.6RC1
+     */
+    public static final String SOLR_INDEXER_ATTACHMENT_TEXTCACHE_MAXSIZE_PROPERTY =
+        "solr.indexer.attachment.textCache.maxSize";
+
+    /**
+     * The default maximum size of the attachment text cache (100MB).
+     * 
+     * @since 12.6RC1
+     */
+    public static final long SOLR_INDEXER_ATTACHMENT_TEXTCACHE_MAXSIZE_DEFAULT = 100L * 1024 * 1024;
+
     /**
      * The name of the configuration property indicating if a synchronization should be run at startup.
      */
@@ -200,6 +243,26 @@ public int getIndexerQueueCapacity()
             SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT);
     }
 
+    @Override
+    public long getIndexerBatchMaxDelay()
+    {
+        return this.configuration.getProperty(SOLR_INDEXER_BATCH_MAXDELAY_PROPERTY,
+            SOLR_INDEXER_BATCH_MAXDELAY_DEFAULT);
+    }
+
+    @Override
+    public int getIndexerThreads()
+    {
+        return this.configuration.getProperty(SOLR_INDEXER_THREADS_PROPERTY, SOLR_INDEXER_THREADS_DEFAULT);
+    }
+
+    @Override
+    public long getIndexerAttachmentTextCacheMaxSize()
+    {
+        return this.configuration.getProperty(SOLR_INDEXER_ATTACHMENT_TEXTCACHE_MAXSIZE_PROPERTY,
+            SOLR_INDEXER_ATTACHMENT_TEXTCACHE_MAXSIZE_DEFAULT);
+    }
+
     @Override
     public boolean synchronizeAtStartup()
     {
@@ -19,13 +19,24 @@
  */
 package org.xwiki.search.solr.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -44,6 +55,7 @@
 import org.xwiki.job.JobExecutor;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrConfiguration;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
@@ -61,7 +73,8 @@
  * <p>
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
  * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
- * processes the queue.
+ * processes the queue. The extraction of the metadata to index can be distributed on several threads (see
+ * {@link SolrConfiguration#getIndexerThreads()}), the result still being sent to Solr in the order of the queue.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -96,6 +109,11 @@ public class DefaultSolrIndexer implements SolrIndexer, Initializable, Disposabl
          */
         public IndexOperation operation;
 
+        /**
+         * Called once the operation is committed, {@code null} if none.
+         */
+        public Runnable callback;
+
         /**
          * @param indexReference the reference of the entity to index.
          * @param operation the indexing operation to perform.
@@ -162,16 +180,24 @@ public String toString()
          */
         public IndexOperation operation;
 
+        /**
+         * Called once all the resolved operations are committed, {@code null} if none.
+         */
+        public Runnable callback;
+
         /**
          * @param reference the reference of the entity to index.
          * @param recurse also apply operation to reference children.
          * @param operation the indexing operation to perform.
+         * @param callback called once all the resolved operations are committed, {@code null} if none
          */
-        public ResolveQueueEntry(EntityReference reference, boolean recurse, IndexOperation operation)
+        public ResolveQueueEntry(EntityReference reference, boolean recurse, IndexOperation operation,
+            Runnable callback)
         {
             this.reference = reference;
             this.recurse = recurse;
             this.operation = operation;
+            this.callback = callback;
         }
     }
 
@@ -212,15 +238,24 @@ public void runInternal()
                             references = Arrays.asList(queueEntry.reference);
                         }
 
+                        IndexQueueEntry previousEntry = null;
                         for (EntityReference reference : references) {
-                            indexQueue.put(new IndexQueueEntry(reference, queueEntry.operation));
+                            if (previousEntry != null) {
+                                indexQueue.put(previousEntry);
+                            }
+                            previousEntry = new IndexQueueEntry(reference, queueEntry.operation);
                         }
+
+                        putLast(previousEntry, queueEntry.callback);
                     } else {
                         if (queueEntry.recurse) {
-                            indexQueue.put(new IndexQueueEntry(solrRefereceResolver.getQuery(queueEntry.reference),
-                                queueEntry.operation));
+                            putLast(new IndexQueueEntry(solrRefereceResolver.getQuery(queueEntry.reference),
+                                queueEntry.operation), queueEntry.callback);
                         } else if (queueEntry.reference != null) {
-                            indexQueue.put(new IndexQueueEntry(queueEntry.reference, queueEntry.operation));
+                            putLast(new IndexQueueEntry(queueEntry.reference, queueEntry.operation),
+                                queueEntry.callback);
+                        } else {
+                            putLast(null, queueEntry.callback);
                         }
                     }
                 } catch (Throwable e) {
@@ -231,13 +266,32 @@ public void runInternal()
 
             logger.debug("Stop SOLR resolver thread");
         }
+
+        /**
+         * Add the last index entry produced by a resolve entry. It holds the callback of the resolve entry since the
+         * index queue is processed in order.
+         * 
+         * @param entry the last index entry, {@code null} if the resolve entry did not produce any
+         * @param callback the callback of the resolve entry
+         * @throws InterruptedException when interrupted while waiting for space in the index queue
+         */
+        private void putLast(IndexQueueEntry entry, Runnable callback) throws InterruptedException
+        {
+            if (entry != null) {
+                entry.callback = callback;
+                indexQueue.put(entry);
+            } else if (callback != null) {
+                // Nothing to index
+                runCallback(callback);
+            }
+        }
     }
 
     /**
      * Stop resolver thread.
      */
     private static final ResolveQueueEntry RESOLVE_QUEUE_ENTRY_STOP =
-        new ResolveQueueEntry(null, false, IndexOperation.STOP);
+        new ResolveQueueEntry(null, false, IndexOperation.STOP, null);
 
     /**
      * Stop indexer thread.
@@ -314,6 +368,42 @@ public void runInternal()
      */
     private volatile int batchSize;
 
+    /**
+     * The length of the not yet sent batch.
+     */
+    private int batchLength;
+
+    /**
+     * The date of the first operation of the not yet committed batch.
+     */
+    private long batchStart;
+
+    /**
+     * The documents extracted but not yet sent to Solr.
+     */
+    private final List<SolrInputDocument> batchDocuments = new ArrayList<>();
+
+    /**
+     * The callbacks associated with {@link #batchDocuments}, {@code null} when a document has none.
+     */
+    private final List<Runnable> batchDocumentsCallbacks = new ArrayList<>();
+
+    /**
+     * The callbacks of the operations sent to Solr, to call once the batch is committed.
+     */
+    private final List<Runnable> batchCallbacks = new ArrayList<>();
+
+    /**
+     * The threads used to extract the metadata of the entities to index or {@code null} if the extraction is done in
+     * the index thread.
+     */
+    private ExecutorService extractionExecutor;
+
+    /**
+     * The extractions currently running, in the order in which their result should be sent to Solr.
+     */
+    private BlockingQueue<Pair<IndexQueueEntry, Future<LengthSolrInputDocument>>> extractionQueue;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -321,6 +411,17 @@ public void initialize() throws InitializationException
         this.resolveQueue = new LinkedBlockingQueue<>();
         this.indexQueue = new LinkedBlockingQueue<>(this.configuration.getIndexerQueueCapacity());
 
+        // Initialize the extraction threads
+        int extractionThreads = this.configuration.getIndexerThreads();
+        if (extractionThreads > 1) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("XWiki Solr extraction thread %d").daemon(true).priority(Thread.NORM_PRIORITY - 1)
+                .build();
+            this.extractionExecutor = Executors.newFixedThreadPool(extractionThreads, factory);
+            // Allow some extractions to wait for a free thread so that threads don't wait for the index thread
+            this.extractionQueue = new ArrayBlockingQueue<>(extractionThreads * 2);
+        }
+
         // Launch the resolve thread
         this.resolveThread = new Thread(new Resolver());
         this.resolveThread.setName("XWiki Solr resolve thread");
@@ -378,6 +479,10 @@ public void run()
             }
         }
 
+        if (this.extractionExecutor != null) {
+            this.extractionExecutor.shutdownNow();
+        }
+
         this.logger.debug("Stop SOLR indexer thread");
     }
 
@@ -390,50 +495,34 @@ public void run()
      */
     private boolean processBatch(IndexQueueEntry queueEntry)
     {
-        int length = 0;
-
         for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
             if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
                 // Discard the current batch and stop the indexing thread.
+                discardExtractions();
+
                 return false;
             }
 
-            IndexOperation operation = batchEntry.operation;
-
-            // For the current contiguous operations queue, group the changes
-            try {
-                this.ecim.initialize(new ExecutionContext());
-
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
-                    if (batchEntry.reference == null) {
-                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
-                    } else {
-                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
-                    }
-
-                    ++this.batchSize;
+            if (this.extractionExecutor != null && IndexOperation.INDEX.equals(batchEntry.operation)) {
+                // Extract the metadata in the background
+                IndexQueueEntry entry = batchEntry;
+                Future<LengthSolrInputDocument> future = this.extractionExecutor.submit(() -> extract(entry));
+                if (!this.extractionQueue.offer(Pair.of(entry, future))) {
+                    // Wait for the oldest extraction to free some space
+                    processExtraction();
+                    this.extractionQueue.add(Pair.of(entry, future));
                 }
-            } catch (Throwable e) {
-                this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
-            }
+            } else {
+                // Make sure the previous operations are applied first
+                processExtractions();
 
-            // Commit the index changes so that they become available to queries. This is a costly operation and that is
-            // the reason why we perform it at the end of the batch.
-            if (shouldCommit(length, this.batchSize)) {
-                commit();
-                length = 0;
+                processEntry(batchEntry);
             }
         }
 
+        // Send what's left
+        processExtractions();
+
         // Commit what's left
         if (this.batchSize > 0) {
             commit();
@@ -442,13 +531,199 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         return true;
     }
 
+    /**
+     * @param entry the entry to process in the index thread
+     */
+    private void processEntry(IndexQueueEntry entry)
+    {
+        IndexOperation operation = entry.operation;
+
+        try {
+            this.ecim.initialize(new ExecutionContext());
+
+            if (IndexOperation.INDEX.equals(operation)) {
+                addDocument(getSolrDocument(entry.reference), entry.callback);
+            } else if (IndexOperation.DELETE.equals(operation)) {
+                // Make sure the documents added before are not sent after the delete
+                sendDocuments();
+
+                if (entry.reference == null) {
+                    solrInstance.deleteByQuery(entry.deleteQuery);
+                } else {
+                    solrInstance.delete(this.solrRefereceResolver.getId(entry.reference));
+                }
+
+                addOperation();
+                if (entry.callback != null) {
+                    this.batchCallbacks.add(entry.callback);
+                }
+            }
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", entry, e);
+        } finally {
+            this.execution.removeContext();
+        }
+
+        commitIfNeeded();
+    }
+
+    /**
+     * Extract the metadata of the passed entry (executed in an extraction thread).
+     * 
+     * @param entry the entry to extract
+     * @return the extracted document
+     * @throws Exception when failing to extract the document
+     */
+    private LengthSolrInputDocument extract(IndexQueueEntry entry) throws Exception
+    {
+        this.ecim.initialize(new ExecutionContext());
+
+        try {
+            return getSolrDocument(entry.reference);
+        } finally {
+            this.execution.removeContext();
+        }
+    }
+
+    /**
+     * Wait for the oldest running extraction and add its result to the batch.
+     */
+    private void processExtraction()
+    {
+        Pair<IndexQueueEntry, Future<LengthSolrInputDocument>> extraction = this.extractionQueue.poll();
+
+        try {
+            addDocument(extraction.getValue().get(), extraction.getKey().callback);
+        } catch (InterruptedException e) {
+            this.logger.warn("The SOLR index thread has been interrupted while waiting for entry [{}]",
+                extraction.getKey());
+
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to process entry [{}]", extraction.getKey(), e.getCause());
+        }
+
+        commitIfNeeded();
+    }
+
+    /**
+     * Wait for all running extractions and add their result to the batch.
+     */
+    private void processExtractions()
+    {
+        if (this.extractionQueue != null) {
+            while (!this.extractionQueue.isEmpty()) {
+                processExtraction();
+            }
+        }
+    }
+
+    /**
+     * Cancel all running extractions.
+     */
+    private void discardExtractions()
+    {
+        if (this.extractionQueue != null) {
+            for (Pair<IndexQueueEntry, Future<LengthSolrInputDocument>> extraction = this.extractionQueue.poll();
+                extraction != null; extraction = this.extractionQueue.poll()) {
+                extraction.getValue().cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @param solrDocument the document to add to the batch
+     * @param callback called once the document is committed, {@code null} if none
+     */
+    private void addDocument(LengthSolrInputDocument solrDocument, Runnable callback)
+    {
+        if (solrDocument != null) {
+            this.batchDocuments.add(solrDocument);
+            this.batchDocumentsCallbacks.add(callback);
+            this.batchLength += solrDocument.getLength();
+
+            addOperation();
+        } else if (callback != null) {
+            // Nothing to index
+            runCallback(callback);
+        }
+    }
+
+    /**
+     * Remember that a new operation is part of the batch.
+     */
+    private void addOperation()
+    {
+        if (this.batchSize == 0) {
+            this.batchStart = System.currentTimeMillis();
+        }
+
+        ++this.batchSize;
+    }
+
+    /**
+     * Send the batch documents to Solr. If the batch is rejected the documents are sent again one by one so that a bad
+     * document does not prevent the others from being indexed.
+     */
+    private void sendDocuments()
+    {
+        if (!this.batchDocuments.isEmpty()) {
+            try {
+                this.solrInstance.add(this.batchDocuments);
+
+                this.batchDocumentsCallbacks.stream().filter(Objects::nonNull).forEach(this.batchCallbacks::add);
+            } catch (Exception e) {
+                this.logger.warn("Failed to send a batch of [{}] documents to the Solr server, sending them one by one."
+                    + " Root cause: [{}]", this.batchDocuments.size(), ExceptionUtils.getRootCauseMessage(e));
+
+                sendDocumentsOneByOne();
+            } finally {
+                this.batchDocuments.clear();
+                this.batchDocumentsCallbacks.clear();
+            }
+        }
+    }
+
+    private void sendDocumentsOneByOne()
+    {
+        for (int i = 0; i < this.batchDocuments.size(); ++i) {
+            SolrInputDocument document = this.batchDocuments.get(i);
+            try {
+                this.solrInstance.add(document);
+
+                Runnable callback = this.batchDocumentsCallbacks.get(i);
+                if (callback != null) {
+                    this.batchCallbacks.add(callback);
+                }
+            } catch (Exception e) {
+                this.logger.error("Failed to index document [{}]", document.getFieldValue(FieldUtils.ID), e);
+            }
+        }
+    }
+
+    /**
+     * Commit the index changes so that they become available to queries if the batch is complete. This is a costly
+     * operation and that is the reason why we perform it only at the end of the batch.
+     */
+    private void commitIfNeeded()
+    {
+        if (shouldCommit(this.batchLength, this.batchSize)) {
+            commit();
+        }
+    }
+
     /**
      * Commit.
      */
     private void commit()
     {
         try {
+            sendDocuments();
+
             solrInstance.commit();
+
+            // The operations of the batch are now acknowledged by the Solr server
+            this.batchCallbacks.forEach(this::runCallback);
         } catch (Exception e) {
             this.logger.error("Failed to commit index changes to the Solr server. Rolling back.", e);
 
@@ -461,6 +736,21 @@ private void commit()
         }
 
         this.batchSize = 0;
+        this.batchLength = 0;
+        this.batchCallbacks.clear();
+    }
+
+    /**
+     * @param callback the callback to call
+     */
+    private void runCallback(Runnable callback)
+    {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            this.logger.warn("Failed to notify the end of an indexing operation: {}",
+                ExceptionUtils.getRootCauseMessage(e));
+        }
     }
 
     /**
@@ -478,7 +768,13 @@ private boolean shouldCommit(int length, int size)
         }
 
         // If the size is above the configured maximum
-        return size >= this.configuration.getIndexerBatchSize();
+        if (size >= this.configuration.getIndexerBatchSize()) {
+            return true;
+        }
+
+        // If the batch has been waiting for too long
+        long maxDelay = this.configuration.getIndexerBatchMaxDelay();
+        return maxDelay > 0 && size > 0 && System.currentTimeMillis() - this.batchStart >= maxDelay;
     }
 
     /**
@@ -521,13 +817,25 @@ private SolrMetadataExtractor getMetadataExtractor(EntityType entityType)
     @Override
     public void index(EntityReference reference, boolean recurse)
     {
-        addToQueue(reference, recurse, IndexOperation.INDEX);
+        index(reference, recurse, null);
+    }
+
+    @Override
+    public void index(EntityReference reference, boolean recurse, Runnable callback)
+    {
+        addToQueue(reference, recurse, IndexOperation.INDEX, callback);
     }
 
     @Override
     public void delete(EntityReference reference, boolean recurse)
     {
-        addToQueue(reference, recurse, IndexOperation.DELETE);
+        delete(reference, recurse, null);
+    }
+
+    @Override
+    public void delete(EntityReference reference, boolean recurse, Runnable callback)
+    {
+        addToQueue(reference, recurse, IndexOperation.DELETE, callback);
     }
 
     /**
@@ -536,13 +844,15 @@ public void delete(EntityReference reference, boolean recurse)
      * @param reference the references to add
      * @param recurse also apply operation to children
      * @param operation the operation to assign to the given references
+     * @param callback called once the operations are committed, {@code null} if none
      */
-    private void addToQueue(EntityReference reference, boolean recurse, IndexOperation operation)
+    private void addToQueue(EntityReference reference, boolean recurse, IndexOperation operation,
+        Runnable callback)
     {
         if (!this.disposed) {
             // Don't block because the capacity of the resolver queue is not limited.
             try {
-                this.resolveQueue.put(new ResolveQueueEntry(reference, recurse, operation));
+                this.resolveQueue.put(new ResolveQueueEntry(reference, recurse, operation, callback));
             } catch (InterruptedException e) {
                 this.logger.error("Failed to add reference [{}] to Solr indexing queue", reference, e);
             }
@@ -552,7 +862,13 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
     @Override
     public int getQueueSize()
     {
-        return this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+        int size = this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+
+        if (this.extractionQueue != null) {
+            size += this.extractionQueue.size();
+        }
+
+        return size;
     }
 
     @Override
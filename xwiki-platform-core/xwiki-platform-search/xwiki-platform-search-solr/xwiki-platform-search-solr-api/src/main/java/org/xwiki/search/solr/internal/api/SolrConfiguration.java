@@ -98,6 +98,26 @@
      */
     int getIndexerQueueCapacity();
 
+    /**
+     * @return the maximum time in milliseconds to wait before committing the batch, 0 or less to only commit when the
+     *         batch is full or when the queue is empty
+     * @since 12.6RC1
+     */
+    long getIndexerBatchMaxDelay();
+
+    /**
+     * @return the number of threads used to extract the metadata of the entities to index
+     * @since 12.6RC1
+     */
+    int getIndexerThreads();
+
+    /**
+     * @return the maximum size in bytes on disk of the cache of text extracted from attachments, 0 or less to disable
+     *         the cache
+     * @since 12.6RC1
+     */
+    long getIndexerAttachmentTextCacheMaxSize();
+
     /**
      * @return true if a full synchronization job between the database and SOLR index should be run when XWiki starts
      * @since 6.1M2
@@ -45,6 +45,19 @@
      */
     void index(EntityReference reference, boolean recurse);
 
+    /**
+     * Add an entity to the queue of entities to index and get notified when the Solr server acknowledged it.
+     * <p>
+     * Null reference means the whole farm.
+     * 
+     * @param reference the entity's reference.
+     * @param recurse indicate if children entities should be indexed too
+     * @param callback called (in the index thread) once the Solr server committed the entities, never called if the
+     *            entities could not be indexed
+     * @since 12.6RC1
+     */
+    void index(EntityReference reference, boolean recurse, Runnable callback);
+
     /**
      * Add an entity to the queue of entities to delete.
      * <p>
@@ -55,6 +68,19 @@
      */
     void delete(EntityReference reference, boolean recurse);
 
+    /**
+     * Add an entity to the queue of entities to delete and get notified when the Solr server acknowledged it.
+     * <p>
+     * Null reference means the whole farm.
+     * 
+     * @param reference the entity's reference.
+     * @param recurse indicate if children entities should be removed too
+     * @param callback called (in the index thread) once the Solr server committed the deletion, never called if the
+     *            entities could not be removed
+     * @since 12.6RC1
+     */
+    void delete(EntityReference reference, boolean recurse, Runnable callback);
+
     /**
      * @return the number of element in the index/delete queue
      */
@@ -29,7 +29,6 @@
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.job.AbstractJob;
-import org.xwiki.job.DefaultJobStatus;
 import org.xwiki.job.GroupedJob;
 import org.xwiki.job.JobGroupPath;
 import org.xwiki.job.Request;
@@ -48,7 +47,7 @@
 @Component
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
 @Named(IndexerJob.JOBTYPE)
-public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<IndexerRequest>> implements GroupedJob
+public class IndexerJob extends AbstractJob<IndexerRequest, IndexerJobStatus> implements GroupedJob
 {
     /**
      * The id of the job.
@@ -106,6 +105,12 @@ protected IndexerRequest castRequest(Request request)
         return indexerRequest;
     }
 
+    @Override
+    protected IndexerJobStatus createNewStatus(IndexerRequest request)
+    {
+        return new IndexerJobStatus(request, this.observationManager, this.loggerManager);
+    }
+
     @Override
     protected void runInternal() throws Exception
     {
@@ -150,30 +155,35 @@ private void updateSolrIndex(int progressSize, DiffDocumentIterator<String> iter
         this.progressManager.pushLevelProgress(progressSize, this);
 
         try {
-            long[] counter = new long[Action.values().length];
+            IndexerJobStatus status = getStatus();
 
+            long added = 0;
+            long updated = 0;
+            long deleted = 0;
             while (iterator.hasNext()) {
                 this.progressManager.startStep(this);
 
+                // The status counters are incremented once the Solr server acknowledged the operation
                 Pair<DocumentReference, Action> entry = iterator.next();
-                if (entry.getValue() == Action.ADD || entry.getValue() == Action.UPDATE) {
-                    // The database entry has not been indexed or the indexed version doesn't match the latest
-                    // version
-                    // from the database.
-                    this.indexer.index(entry.getKey(), true);
+                if (entry.getValue() == Action.ADD) {
+                    // The database entry has not been indexed.
+                    this.indexer.index(entry.getKey(), true, status::incrementAddedCount);
+                    ++added;
+                } else if (entry.getValue() == Action.UPDATE) {
+                    // The indexed version doesn't match the latest version from the database.
+                    this.indexer.index(entry.getKey(), true, status::incrementUpdatedCount);
+                    ++updated;
                 } else if (entry.getValue() == Action.DELETE && getRequest().isRemoveMissing()) {
                     // The index entry doesn't exist anymore in the database.
-                    this.indexer.delete(entry.getKey(), true);
+                    this.indexer.delete(entry.getKey(), true, status::incrementDeletedCount);
+                    ++deleted;
                 }
 
-                counter[entry.getValue().ordinal()]++;
-
                 this.progressManager.endStep(this);
             }
 
-            this.logger.info(
-                "{} documents added, {} deleted and {} updated during the synchronization of the Solr index.",
-                counter[Action.ADD.ordinal()], counter[Action.DELETE.ordinal()], counter[Action.UPDATE.ordinal()]);
+            this.logger.info("{} documents to add, {} to delete and {} to update queued during the synchronization of"
+                + " the Solr index.", added, deleted, updated);
         } finally {
             this.progressManager.popLevelProgress(this);
         }
@@ -0,0 +1,143 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.Date;
+
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.logging.LoggerManager;
+import org.xwiki.observation.ObservationManager;
+
+/**
+ * The status of the {@link IndexerJob}, with some statistics about the synchronization of the Solr index. The counters
+ * are only incremented when the Solr server acknowledged the operations, which can happen after the end of the job
+ * since the indexing is asynchronous.
+ * 
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class IndexerJobStatus extends DefaultJobStatus<IndexerRequest>
+{
+    private static final double MILLISECONDS_IN_SECOND = 1000.0;
+
+    private volatile long addedCount;
+
+    private volatile long updatedCount;
+
+    private volatile long deletedCount;
+
+    private volatile long lastAcknowledgedTime;
+
+    /**
+     * Creates a new job status.
+     * 
+     * @param request the request provided when the job was started
+     * @param observationManager the observation manager
+     * @param loggerManager the logger manager
+     */
+    public IndexerJobStatus(IndexerRequest request, ObservationManager observationManager,
+        LoggerManager loggerManager)
+    {
+        super(IndexerJob.JOBTYPE, request, null, observationManager, loggerManager);
+    }
+
+    /**
+     * @return the number of documents which were missing from the index and have been added
+     */
+    public long getAddedCount()
+    {
+        return this.addedCount;
+    }
+
+    /**
+     * @return the number of documents which were outdated in the index and have been updated
+     */
+    public long getUpdatedCount()
+    {
+        return this.updatedCount;
+    }
+
+    /**
+     * @return the number of documents which were removed from the index
+     */
+    public long getDeletedCount()
+    {
+        return this.deletedCount;
+    }
+
+    /**
+     * @return the total number of documents synchronized with the index
+     */
+    public long getProcessedCount()
+    {
+        return this.addedCount + this.updatedCount + this.deletedCount;
+    }
+
+    /**
+     * @return the average number of documents synchronized with the index per second, between the start of the job and
+     *         the last operation acknowledged by the Solr server
+     */
+    public double getThroughput()
+    {
+        Date startDate = getStartDate();
+        if (startDate == null || this.lastAcknowledgedTime == 0) {
+            return 0;
+        }
+
+        long duration = this.lastAcknowledgedTime - startDate.getTime();
+
+        return duration > 0 ? getProcessedCount() * MILLISECONDS_IN_SECOND / duration : 0;
+    }
+
+    /**
+     * Increment the number of documents which were missing from the index (called from the index thread once the
+     * Solr server acknowledged the addition).
+     */
+    void incrementAddedCount()
+    {
+        ++this.addedCount;
+        acknowledged();
+    }
+
+    /**
+     * Increment the number of documents which were outdated in the index (called from the index thread once the Solr
+     * server acknowledged the update).
+     */
+    void incrementUpdatedCount()
+    {
+        ++this.updatedCount;
+        acknowledged();
+    }
+
+    /**
+     * Increment the number of documents which were removed from the index (called from the index thread once the Solr
+     * server acknowledged the deletion).
+     */
+    void incrementDeletedCount()
+    {
+        ++this.deletedCount;
+        acknowledged();
+    }
+
+    private void acknowledged()
+    {
+        this.lastAcknowledgedTime = System.currentTimeMillis();
+    }
+}
@@ -114,6 +114,9 @@ public abstract class AbstractSolrMetadataExtractor implements SolrMetadataExtra
     @Inject
     protected ComponentManager componentManager;
 
+    @Inject
+    private AttachmentTextContentCache attachmentTextCache;
+
     @Override
     public LengthSolrInputDocument getSolrDocument(EntityReference entityReference)
         throws SolrIndexerException, IllegalArgumentException
@@ -500,16 +503,30 @@ protected void addFieldValueOnce(SolrInputDocument solrDocument, String fieldNam
     protected String getContentAsText(XWikiAttachment attachment)
     {
         try {
+            XWikiContext xcontext = this.xcontextProvider.get();
+
+            // Avoid parsing again a content which was already parsed
+            String key = this.attachmentTextCache.getKey(attachment);
+            if (key != null) {
+                String text = this.attachmentTextCache.get(key);
+                if (text != null) {
+                    return text;
+                }
+            }
+
             Metadata metadata = new Metadata();
             metadata.set(TikaMetadataKeys.RESOURCE_NAME_KEY, attachment.getFilename());
 
-            InputStream in = attachment.getContentInputStream(this.xcontextProvider.get());
+            String text;
+            try (InputStream in = attachment.getContentInputStream(xcontext)) {
+                text = TikaUtils.parseToString(in, metadata);
+            }
 
-            try {
-                return TikaUtils.parseToString(in, metadata);
-            } finally {
-                in.close();
+            if (key != null && text != null) {
+                this.attachmentTextCache.set(key, text);
             }
+
+            return text;
         } catch (Exception e) {
             this.logger.error("Failed to retrieve the content of attachment [{}]", attachment.getReference(), e);
             return null;
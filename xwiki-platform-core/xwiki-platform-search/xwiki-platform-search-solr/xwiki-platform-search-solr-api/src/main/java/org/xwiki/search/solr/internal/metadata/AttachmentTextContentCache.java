@@ -0,0 +1,232 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+
+/**
+ * Persistent cache of the text extracted from attachments content, indexed by the reference, the version and the date
+ * of the attachment. Used to avoid parsing again attachments which did not change when they are indexed again.
+ * 
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = AttachmentTextContentCache.class)
+@Singleton
+public class AttachmentTextContentCache implements Initializable
+{
+    private static final String FILE_EXTENSION = ".txt.gz";
+
+    private static final String TMP_FILE_EXTENSION = ".tmp";
+
+    /**
+     * The cache is reduced to this ratio of its maximum size when it's full, to avoid evicting entries on each
+     * addition.
+     */
+    private static final double EVICTION_RATIO = 0.9;
+
+    @Inject
+    private SolrConfiguration configuration;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private Logger logger;
+
+    private File directory;
+
+    /**
+     * The files are written in a different folder before being moved to the cache so that partially written files are
+     * never visible in the cache.
+     */
+    private File tmpDirectory;
+
+    private long maxSize;
+
+    private final AtomicLong size = new AtomicLong();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.maxSize = this.configuration.getIndexerAttachmentTextCacheMaxSize();
+
+        if (this.maxSize > 0) {
+            File cacheDirectory = new File(this.environment.getPermanentDirectory(), "cache/solr/attachments");
+            this.directory = new File(cacheDirectory, "text");
+            this.tmpDirectory = new File(cacheDirectory, "tmp");
+
+            // Remove the temporary files left by a previous crash
+            try {
+                FileUtils.deleteDirectory(this.tmpDirectory);
+            } catch (IOException e) {
+                this.logger.warn("Failed to delete the temporary attachment text content files [{}]: {}",
+                    this.tmpDirectory, ExceptionUtils.getRootCauseMessage(e));
+            }
+
+            if (this.directory.exists()) {
+                this.size.set(FileUtils.sizeOfDirectory(this.directory));
+            }
+        }
+    }
+
+    /**
+     * @param attachment the attachment
+     * @return the key associated to the current version of the attachment, or {@code null} if the cache is disabled
+     */
+    public String getKey(XWikiAttachment attachment)
+    {
+        if (this.directory == null) {
+            return null;
+        }
+
+        // A new version of the attachment is created each time its content is modified (the date is there in case
+        // the attachment is deleted and created again with the same version)
+        Date date = attachment.getDate();
+        String id = this.serializer.serialize(attachment.getReference()) + '/' + attachment.getVersion() + '/'
+            + (date != null ? date.getTime() : 0);
+
+        // Hash the id to get a file name of a fixed length without any special character
+        return DigestUtils.sha256Hex(id);
+    }
+
+    /**
+     * @param key the key associated to the attachment content
+     * @return the text extracted from the attachment content, or {@code null} if it's not in the cache
+     */
+    public String get(String key)
+    {
+        File file = getFile(key);
+
+        if (file.exists()) {
+            try (InputStream stream = new GZIPInputStream(new FileInputStream(file))) {
+                String text = IOUtils.toString(stream, StandardCharsets.UTF_8);
+
+                // Remember when the entry was last used to evict the least recently used ones first
+                file.setLastModified(System.currentTimeMillis());
+
+                return text;
+            } catch (IOException e) {
+                this.logger.warn("Failed to read the cached attachment text content [{}]: {}", file,
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param key the key associated to the attachment content
+     * @param text the text extracted from the attachment content
+     */
+    public void set(String key, String text)
+    {
+        File file = getFile(key);
+
+        File tmpFile = null;
+        try {
+            this.tmpDirectory.mkdirs();
+            tmpFile = File.createTempFile(key, TMP_FILE_EXTENSION, this.tmpDirectory);
+
+            try (OutputStream stream = new GZIPOutputStream(new FileOutputStream(tmpFile))) {
+                IOUtils.write(text, stream, StandardCharsets.UTF_8);
+            }
+
+            long previousLength = file.length();
+            file.getParentFile().mkdirs();
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+            if (this.size.addAndGet(file.length() - previousLength) > this.maxSize) {
+                evict();
+            }
+        } catch (IOException e) {
+            this.logger.warn("Failed to cache the attachment text content [{}]: {}", file,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            // Don't leave the partially written file behind
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    private File getFile(String key)
+    {
+        // Spread the files in sub folders to avoid too many files in the same folder
+        return new File(new File(this.directory, key.substring(0, 2)), key + FILE_EXTENSION);
+    }
+
+    private synchronized void evict()
+    {
+        long targetSize = (long) (this.maxSize * EVICTION_RATIO);
+
+        if (this.size.get() <= targetSize) {
+            // Already evicted by another thread
+            return;
+        }
+
+        File[] files = FileUtils.listFiles(this.directory, new String[] {"gz"}, true).toArray(new File[0]);
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+
+        for (File file : files) {
+            if (this.size.get() <= targetSize) {
+                break;
+            }
+
+            long length = file.length();
+            if (file.delete()) {
+                this.size.addAndGet(-length);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
+import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultSolrIndexer}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class DefaultSolrIndexerTest
+{
+    private static final String BAD = "bad";
+
+    @MockComponent
+    private SolrInstance solrInstance;
+
+    @MockComponent
+    private SolrReferenceResolver resolver;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    private ExecutionContextManager ecim;
+
+    @InjectMockComponents
+    private DefaultSolrIndexer indexer;
+
+    private SolrMetadataExtractor extractor;
+
+    private final CountDownLatch extractionLatch = new CountDownLatch(1);
+
+    /**
+     * The operations received by the Solr instance.
+     */
+    private final List<String> operations = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeComponent
+    public void registerMockComponents(MockitoComponentManager componentManager) throws Exception
+    {
+        Utils.setComponentManager(componentManager);
+
+        SolrConfiguration configuration = componentManager.registerMockComponent(SolrConfiguration.class);
+        when(configuration.getIndexerBatchSize()).thenReturn(2);
+        when(configuration.getIndexerBatchMaxLengh()).thenReturn(10000);
+        when(configuration.getIndexerQueueCapacity()).thenReturn(100);
+        when(configuration.getIndexerThreads()).thenReturn(1);
+
+        this.extractor = componentManager.registerMockComponent(SolrMetadataExtractor.class, "document");
+        when(this.extractor.getSolrDocument(any())).then(invocation -> {
+            EntityReference reference = invocation.getArgument(0);
+
+            // Block the index thread on the first document until all the entries are queued
+            if (reference.getName().equals("document0")) {
+                this.extractionLatch.await(10, TimeUnit.SECONDS);
+            }
+
+            LengthSolrInputDocument document = new LengthSolrInputDocument();
+            document.setField("id", reference.getName());
+
+            return document;
+        });
+    }
+
+    @AfterEach
+    void afterEach() throws Exception
+    {
+        this.indexer.dispose();
+    }
+
+    private void recordOperations() throws Exception
+    {
+        doAnswer(invocation -> {
+            List<SolrInputDocument> documents = invocation.getArgument(0);
+            if (documents.stream().anyMatch(document -> BAD.equals(document.getFieldValue("id")))) {
+                throw new IllegalArgumentException("Rejected batch");
+            }
+            this.operations.add("add " + documents.size());
+            return null;
+        }).when(this.solrInstance).add(anyList());
+        doAnswer(invocation -> {
+            SolrInputDocument document = invocation.getArgument(0);
+            if (BAD.equals(document.getFieldValue("id"))) {
+                throw new IllegalArgumentException("Rejected document");
+            }
+            this.operations.add("add " + document.getFieldValue("id"));
+            return null;
+        }).when(this.solrInstance).add(any(SolrInputDocument.class));
+        doAnswer(invocation -> this.operations.add("commit")).when(this.solrInstance).commit();
+    }
+
+    /**
+     * Index the passed documents and wait until they are all in the index queue before letting the index thread
+     * process them, so that the batches are predictable.
+     */
+    private void index(List<String> names, CountDownLatch callbacksLatch) throws Exception
+    {
+        for (String name : names) {
+            this.indexer.index(new DocumentReference("wiki", "space", name), false, () -> {
+                this.operations.add("callback " + name);
+                callbacksLatch.countDown();
+            });
+        }
+
+        // The first document is blocked in the index thread
+        BlockingQueue<?> indexQueue = (BlockingQueue<?>) FieldUtils.readField(this.indexer, "indexQueue", true);
+        long timeout = System.currentTimeMillis() + 10000;
+        while (indexQueue.size() < names.size() - 1 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        this.extractionLatch.countDown();
+    }
+
+    @Test
+    void indexInBatches() throws Exception
+    {
+        recordOperations();
+
+        CountDownLatch callbacksLatch = new CountDownLatch(5);
+        index(Arrays.asList("document0", "document1", "document2", "document3", "document4"), callbacksLatch);
+
+        assertTrue(callbacksLatch.await(10, TimeUnit.SECONDS));
+
+        // The callbacks are called only once the batch is committed
+        assertEquals(Arrays.asList("add 2", "commit", "callback document0", "callback document1", "add 2", "commit",
+            "callback document2", "callback document3", "add 1", "commit", "callback document4"), this.operations);
+    }
+
+    @Test
+    void indexWithRejectedDocumentInBatch() throws Exception
+    {
+        recordOperations();
+
+        CountDownLatch callbacksLatch = new CountDownLatch(2);
+        index(Arrays.asList("document0", BAD, "document2"), callbacksLatch);
+
+        assertTrue(callbacksLatch.await(10, TimeUnit.SECONDS));
+
+        // The batch is sent again one by one and only the rejected document is not acknowledged
+        assertEquals(Arrays.asList("add document0", "commit", "callback document0", "add 1", "commit",
+            "callback document2"), this.operations);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.Arrays;
+
+import javax.inject.Named;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.job.DiffDocumentIteratorTest.DocumentIteratorStub;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Validate {@link IndexerJob}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class IndexerJobTest
+{
+    private static final DocumentReference UPDATED = new DocumentReference("wiki", "space", "A");
+
+    private static final DocumentReference DELETED = new DocumentReference("wiki", "space", "B");
+
+    private static final DocumentReference ADDED = new DocumentReference("wiki", "space", "C");
+
+    @MockComponent
+    private SolrIndexer indexer;
+
+    @MockComponent
+    @Named("database")
+    private DocumentIterator<String> databaseIterator;
+
+    @MockComponent
+    @Named("solr")
+    private DocumentIterator<String> solrIterator;
+
+    @InjectMockComponents
+    private IndexerJob job;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        FieldUtils.writeField(this.job, "solrIterator", new DocumentIteratorStub<>(
+            Arrays.asList(new ImmutablePair<>(UPDATED, "1.1"), new ImmutablePair<>(DELETED, "1.1"))), true);
+        FieldUtils.writeField(this.job, "databaseIterator", new DocumentIteratorStub<>(
+            Arrays.asList(new ImmutablePair<>(UPDATED, "1.2"), new ImmutablePair<>(ADDED, "1.1"))), true);
+
+        IndexerRequest request = new IndexerRequest();
+        request.setOverwrite(false);
+        this.job.initialize(request);
+    }
+
+    @Test
+    void countOperationsWhenAcknowledged() throws Exception
+    {
+        this.job.runInternal();
+
+        ArgumentCaptor<Runnable> updated = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.indexer).index(eq(UPDATED), eq(true), updated.capture());
+        ArgumentCaptor<Runnable> deleted = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.indexer).delete(eq(DELETED), eq(true), deleted.capture());
+        ArgumentCaptor<Runnable> added = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.indexer).index(eq(ADDED), eq(true), added.capture());
+
+        // Nothing is counted until the Solr server acknowledged the operations
+        IndexerJobStatus status = this.job.getStatus();
+        assertEquals(0, status.getProcessedCount());
+        assertEquals(0, status.getThroughput());
+
+        updated.getValue().run();
+        added.getValue().run();
+
+        assertEquals(1, status.getAddedCount());
+        assertEquals(1, status.getUpdatedCount());
+        assertEquals(0, status.getDeletedCount());
+        assertEquals(2, status.getProcessedCount());
+
+        deleted.getValue().run();
+
+        assertEquals(1, status.getDeletedCount());
+        assertEquals(3, status.getProcessedCount());
+    }
+}
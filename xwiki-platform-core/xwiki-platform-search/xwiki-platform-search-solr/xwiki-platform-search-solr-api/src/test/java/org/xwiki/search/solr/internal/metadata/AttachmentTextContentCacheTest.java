@@ -0,0 +1,180 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AttachmentTextContentCache}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class AttachmentTextContentCacheTest
+{
+    @XWikiTempDir
+    private File tmpDir;
+
+    @InjectMockComponents
+    private AttachmentTextContentCache cache;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @BeforeComponent
+    public void registerMockComponents(MockitoComponentManager componentManager) throws Exception
+    {
+        Environment environment = componentManager.registerMockComponent(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(this.tmpDir);
+
+        SolrConfiguration configuration = componentManager.registerMockComponent(SolrConfiguration.class);
+        when(configuration.getIndexerAttachmentTextCacheMaxSize()).thenReturn(100000L);
+
+        // Temporary file left by a previous crash
+        File orphanFile = new File(this.tmpDir, "cache/solr/attachments/tmp/orphan.tmp");
+        orphanFile.getParentFile().mkdirs();
+        orphanFile.createNewFile();
+    }
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.serializer.serialize(any())).then(invocation -> String.valueOf(invocation.getArgument(0)));
+    }
+
+    private XWikiAttachment mockAttachment(String filename, String version, long date)
+    {
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        when(attachment.getReference())
+            .thenReturn(new AttachmentReference(filename, new DocumentReference("wiki", "space", "page")));
+        when(attachment.getVersion()).thenReturn(version);
+        when(attachment.getDate()).thenReturn(new Date(date));
+
+        return attachment;
+    }
+
+    private File getFile(String key)
+    {
+        return new File(this.tmpDir, "cache/solr/attachments/text/" + key.substring(0, 2) + '/' + key + ".txt.gz");
+    }
+
+    @Test
+    void getKey()
+    {
+        String key = this.cache.getKey(mockAttachment("file.txt", "1.1", 42));
+
+        assertEquals(key, this.cache.getKey(mockAttachment("file.txt", "1.1", 42)));
+        assertNotEquals(key, this.cache.getKey(mockAttachment("file.txt", "1.2", 42)));
+        assertNotEquals(key, this.cache.getKey(mockAttachment("file.txt", "1.1", 43)));
+        assertNotEquals(key, this.cache.getKey(mockAttachment("file.pdf", "1.1", 42)));
+    }
+
+    @Test
+    void setAndGet()
+    {
+        String key = this.cache.getKey(mockAttachment("file.txt", "1.1", 42));
+
+        assertNull(this.cache.get(key));
+
+        this.cache.set(key, "text");
+
+        assertEquals("text", this.cache.get(key));
+
+        // Only the cached entry is in the cache folder
+        assertEquals(Arrays.asList(key + ".txt.gz"), FileUtils
+            .listFiles(new File(this.tmpDir, "cache/solr/attachments/text"), null, true).stream().map(File::getName)
+            .collect(Collectors.toList()));
+    }
+
+    @Test
+    void orphanTemporaryFilesAreDeleted()
+    {
+        assertFalse(new File(this.tmpDir, "cache/solr/attachments/tmp/orphan.tmp").exists());
+    }
+
+    @Test
+    void getDoesNotCreateFolders()
+    {
+        assertNull(this.cache.get(this.cache.getKey(mockAttachment("file.txt", "1.1", 42))));
+
+        assertFalse(new File(this.tmpDir, "cache/solr/attachments/text").exists());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() throws Exception
+    {
+        String key1 = this.cache.getKey(mockAttachment("file1.txt", "1.1", 42));
+        String key2 = this.cache.getKey(mockAttachment("file2.txt", "1.1", 42));
+        String key3 = this.cache.getKey(mockAttachment("file3.txt", "1.1", 42));
+
+        // Random text compresses poorly so all the entries have about the same size on disk
+        this.cache.set(key1, RandomStringUtils.randomAlphanumeric(1000));
+        long length = getFile(key1).length();
+
+        // Leave room for 2 entries only
+        FieldUtils.writeField(this.cache, "maxSize", length * 5 / 2, true);
+
+        this.cache.set(key2, RandomStringUtils.randomAlphanumeric(1000));
+
+        // The first entry is the oldest but it's used again after the second one was added
+        long now = System.currentTimeMillis();
+        getFile(key1).setLastModified(now - 10000);
+        getFile(key2).setLastModified(now - 5000);
+        this.cache.get(key1);
+
+        this.cache.set(key3, RandomStringUtils.randomAlphanumeric(1000));
+
+        assertTrue(getFile(key1).exists());
+        assertFalse(getFile(key2).exists());
+        assertTrue(getFile(key3).exists());
+        assertNull(this.cache.get(key2));
+    }
+}
@@ -20,6 +20,7 @@
 package org.xwiki.security.authorization;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration of the {@link AuthorizationManager}.
@@ -34,4 +35,14 @@
      * @return the hints to be used for looking up the authorization settler.
      */
     String getAuthorizationSettler();
+
+    /**
+     * @return the maximum number of entries in the security cache
+     * @since 12.6RC1
+     */
+    @Unstable
+    default int getCacheCapacity()
+    {
+        return 10000;
+    }
 }
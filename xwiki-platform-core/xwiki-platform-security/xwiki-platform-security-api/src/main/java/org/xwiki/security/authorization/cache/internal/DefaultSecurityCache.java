@@ -25,9 +25,13 @@
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -47,6 +51,7 @@
 import org.xwiki.security.GroupSecurityReference;
 import org.xwiki.security.SecurityReference;
 import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.AuthorizationManagerConfiguration;
 import org.xwiki.security.authorization.SecurityAccessEntry;
 import org.xwiki.security.authorization.SecurityEntry;
 import org.xwiki.security.authorization.SecurityRuleEntry;
@@ -64,9 +69,6 @@
 @Singleton
 public class DefaultSecurityCache implements SecurityCache, Initializable
 {
-    /** Default capacity for security cache. */
-    private static final int DEFAULT_CAPACITY = 10000;
-
     /** Separator used for composing key for the cache. */
     private static final String KEY_CACHE_SEPARATOR = "@@";
 
@@ -74,14 +76,12 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     @Inject
     private Logger logger;
 
-    /** Fair read-write lock used for fair scheduling of cache access. */
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
-
-    /** Fair read lock. */
-    private final Lock readLock = readWriteLock.readLock();
-
-    /** Fair write lock. */
-    private final Lock writeLock = readWriteLock.writeLock();
+    /**
+     * Lock protecting the consistency of the cache entries graph. Readers first try an optimistic (non blocking) read
+     * and only fall back to a real read lock when a writer modified the cache in the meantime. This lock is not
+     * reentrant so code executed while holding the write lock must access the cache directly.
+     */
+    private final StampedLock lock = new StampedLock();
 
     private final ReadWriteLock invalidationReadWriteLock = new ReentrantReadWriteLock(true);
 
@@ -97,22 +97,47 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     @Inject
     private CacheManager cacheManager;
 
+    /** Provide the capacity of the cache. */
+    @Inject
+    private AuthorizationManagerConfiguration configuration;
+
     /** The cache instance. */
     private Cache<SecurityCacheEntry> cache;
 
+    /**
+     * The interned keys of the entries associated to a single reference. Serializing references is costly and the
+     * same keys are computed again and again for each right check.
+     */
+    private final ConcurrentMap<SecurityReference, String> referenceKeys = new ConcurrentHashMap<>();
+
+    /** The interned keys of the access entries, indexed by user and then by entity. */
+    private final ConcurrentMap<SecurityReference, ConcurrentMap<SecurityReference, String>> accessKeys =
+        new ConcurrentHashMap<>();
+
+    /** The interned keys of the shadow entries, indexed by wiki and then by user. */
+    private final ConcurrentMap<SecurityReference, ConcurrentMap<SecurityReference, String>> shadowKeys =
+        new ConcurrentHashMap<>();
+
+    /** The number of interned keys. */
+    private final AtomicInteger keysSize = new AtomicInteger();
+
+    /** Maximum number of interned keys, above which all interned keys are forgotten. */
+    private int keysCapacity;
+
     /** The new entry being added. */
     private SecurityCacheEntry newEntry;
 
     /**
+     * @param capacity the maximum number of entries in the cache
      * @return a new configured security cache
      * @throws InitializationException if a CacheException arise during creation
      */
-    private Cache<SecurityCacheEntry> newCache() throws InitializationException
+    private Cache<SecurityCacheEntry> newCache(int capacity) throws InitializationException
     {
         CacheConfiguration cacheConfig = new CacheConfiguration();
         cacheConfig.setConfigurationId("platform.security.authorization.cache");
         LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
-        lru.setMaxEntries(DEFAULT_CAPACITY);
+        lru.setMaxEntries(capacity);
         cacheConfig.put(EntryEvictionConfiguration.CONFIGURATIONID, lru);
         try {
             return cacheManager.createNewCache(cacheConfig);
@@ -125,7 +150,12 @@ private Cache<SecurityCacheEntry> newCache() throws InitializationException
     @Override
     public void initialize() throws InitializationException
     {
-        cache = newCache();
+        int capacity = this.configuration.getCacheCapacity();
+
+        // Composite keys also intern the keys of the references they are made of
+        this.keysCapacity = capacity * 2;
+
+        cache = newCache(capacity);
     }
 
     /**
@@ -164,7 +194,7 @@ private class SecurityCacheEntry implements DisposableCacheValue
             this.entry = entry;
             SecurityReference parentReference = entry.getReference().getParentSecurityReference();
             if (parentReference != null) {
-                SecurityCacheEntry parent = DefaultSecurityCache.this.getEntry(parentReference);
+                SecurityCacheEntry parent = DefaultSecurityCache.this.getWriteLockedEntry(parentReference);
                 if (parent == null) {
                     throw new ParentEntryEvictedException(String.format(
                         "The parent with reference [%s] for entry [%s] is no longer available in the cache",
@@ -189,13 +219,13 @@ private class SecurityCacheEntry implements DisposableCacheValue
         SecurityCacheEntry(SecurityShadowEntry entry) throws ParentEntryEvictedException
         {
             this.entry = entry;
-            SecurityCacheEntry parent1 = DefaultSecurityCache.this.getEntry(entry.getReference());
+            SecurityCacheEntry parent1 = DefaultSecurityCache.this.getWriteLockedEntry(entry.getReference());
             if (parent1 == null) {
                 throw new ParentEntryEvictedException(String.format(
                     "The parent entry with reference [%s] for entry [%s] is no longer available in the cache", parent1,
                     entry));
             }
-            SecurityCacheEntry parent2 = DefaultSecurityCache.this.getEntry(entry.getWikiReference());
+            SecurityCacheEntry parent2 = DefaultSecurityCache.this.getWriteLockedEntry(entry.getWikiReference());
             if (parent2 == null) {
                 throw new ParentEntryEvictedException(String.format(
                     "The wiki entry with reference [%s] for entry [%s] is no longer available in the cache", parent2,
@@ -218,7 +248,7 @@ private class SecurityCacheEntry implements DisposableCacheValue
         {
             this.entry = entry;
             boolean isSelf = entry.getReference().equals(entry.getUserReference());
-            SecurityCacheEntry parent1 = DefaultSecurityCache.this.getEntry(entry.getReference());
+            SecurityCacheEntry parent1 = DefaultSecurityCache.this.getWriteLockedEntry(entry.getReference());
             if (parent1 == null) {
                 throw new ParentEntryEvictedException(String.format(
                     "The first parent with reference [%s] for the entry [%s] with wiki [%s] is no longer "
@@ -226,8 +256,8 @@ private class SecurityCacheEntry implements DisposableCacheValue
                     parent1, entry, wiki));
             }
             SecurityCacheEntry parent2 = (isSelf) ? parent1
-                : (wiki != null) ? DefaultSecurityCache.this.getShadowEntry(entry.getUserReference(), wiki)
-                    : DefaultSecurityCache.this.getEntry(entry.getUserReference());
+                : (wiki != null) ? DefaultSecurityCache.this.getWriteLockedShadowEntry(entry.getUserReference(), wiki)
+                    : DefaultSecurityCache.this.getWriteLockedEntry(entry.getUserReference());
             if (parent2 == null) {
                 throw new ParentEntryEvictedException(String.format(
                     "The second parent with reference [%s] for the entry [%s] with wiki [%s] is no longer available "
@@ -284,7 +314,7 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
             if (parentSize > 0) {
                 this.parents = new ArrayList<>(parentSize);
                 if (parentReference != null) {
-                    SecurityCacheEntry parent = DefaultSecurityCache.this.getEntry(parentReference);
+                    SecurityCacheEntry parent = DefaultSecurityCache.this.getWriteLockedEntry(parentReference);
                     if (parent == null) {
                         throw new ParentEntryEvictedException(String.format(
                             "The parent with reference [%s] required by entry [%s] with groups [%s]"
@@ -316,9 +346,13 @@ private void addParentGroups(Collection<GroupSecurityReference> groups, Security
                 if (group.equals(parentReference)) {
                     continue;
                 }
-                SecurityCacheEntry parent = (entry instanceof SecurityShadowEntry && group.isGlobal())
-                    ? DefaultSecurityCache.this.getShadowEntry(group, ((SecurityShadowEntry) entry).getWikiReference())
-                    : DefaultSecurityCache.this.getEntry(group);
+                SecurityCacheEntry parent;
+                if (entry instanceof SecurityShadowEntry && group.isGlobal()) {
+                    parent = DefaultSecurityCache.this.getWriteLockedShadowEntry(group,
+                        ((SecurityShadowEntry) entry).getWikiReference());
+                } else {
+                    parent = DefaultSecurityCache.this.getWriteLockedEntry(group);
+                }
                 if (parent == null) {
                     throw new ParentEntryEvictedException(String
                         .format("The parent with reference [%s] is no longer available in the cache", parentReference));
@@ -495,7 +529,13 @@ public String toString()
      */
     private String getEntryKey(SecurityReference reference)
     {
-        return keySerializer.serialize(reference);
+        String key = this.referenceKeys.get(reference);
+
+        if (key == null) {
+            key = internKey(this.referenceKeys, reference, keySerializer.serialize(reference));
+        }
+
+        return key;
     }
 
     /**
@@ -505,7 +545,7 @@ private String getEntryKey(SecurityReference reference)
      */
     private String getEntryKey(UserSecurityReference userReference, SecurityReference reference)
     {
-        return keySerializer.serialize(userReference) + KEY_CACHE_SEPARATOR + keySerializer.serialize(reference);
+        return getCompositeKey(this.accessKeys, userReference, reference);
     }
 
     /**
@@ -515,7 +555,53 @@ private String getEntryKey(UserSecurityReference userReference, SecurityReferenc
      */
     private String getShadowEntryKey(SecurityReference userReference, SecurityReference root)
     {
-        return keySerializer.serialize(root) + KEY_CACHE_SEPARATOR + keySerializer.serialize(userReference);
+        return getCompositeKey(this.shadowKeys, root, userReference);
+    }
+
+    /**
+     * @param keys the interned composite keys
+     * @param first the first reference of the key
+     * @param second the second reference of the key
+     * @return the interned key composed of the two references
+     */
+    private String getCompositeKey(ConcurrentMap<SecurityReference, ConcurrentMap<SecurityReference, String>> keys,
+        SecurityReference first, SecurityReference second)
+    {
+        ConcurrentMap<SecurityReference, String> secondKeys = keys.get(first);
+        String key = secondKeys != null ? secondKeys.get(second) : null;
+
+        if (key == null) {
+            key = getEntryKey(first) + KEY_CACHE_SEPARATOR + getEntryKey(second);
+
+            if (secondKeys == null) {
+                secondKeys = keys.computeIfAbsent(first, k -> new ConcurrentHashMap<>());
+            }
+            key = internKey(secondKeys, second, key);
+        }
+
+        return key;
+    }
+
+    /**
+     * @param keys the interned keys
+     * @param reference the reference associated to the key
+     * @param key the key to intern
+     * @return the interned key
+     */
+    private String internKey(ConcurrentMap<SecurityReference, String> keys, SecurityReference reference, String key)
+    {
+        // Make sure the interned keys don't grow forever (they are cheap to compute again)
+        if (this.keysSize.incrementAndGet() > this.keysCapacity) {
+            // Count the key being interned
+            this.keysSize.set(1);
+            this.referenceKeys.clear();
+            this.accessKeys.clear();
+            this.shadowKeys.clear();
+        }
+
+        String currentKey = keys.putIfAbsent(reference, key);
+
+        return currentKey != null ? currentKey : key;
     }
 
     /**
@@ -563,19 +649,37 @@ private String getEntryKey(SecurityAccessEntry entry)
     }
 
     /**
-     * @param reference the reference requested.
-     * @return a security cache entry corresponding to given reference, null if none is available in the cache.
+     * @param key the key of the entry requested.
+     * @return a security cache entry corresponding to given key, null if none is available in the cache.
      */
-    private SecurityCacheEntry getEntry(SecurityReference reference)
+    private SecurityCacheEntry getEntry(String key)
     {
-        readLock.lock();
+        // Try first without blocking and make sure no writer modified the cache during the read
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            SecurityCacheEntry entry = this.cache.get(key);
+            if (this.lock.validate(stamp)) {
+                return entry;
+            }
+        }
+
+        stamp = this.lock.readLock();
         try {
-            return cache.get(getEntryKey(reference));
+            return this.cache.get(key);
         } finally {
-            readLock.unlock();
+            this.lock.unlockRead(stamp);
         }
     }
 
+    /**
+     * @param reference the reference requested.
+     * @return a security cache entry corresponding to given reference, null if none is available in the cache.
+     */
+    private SecurityCacheEntry getEntry(SecurityReference reference)
+    {
+        return getEntry(getEntryKey(reference));
+    }
+
     /**
      * @param userReference the user reference requested.
      * @param reference the reference requested.
@@ -584,12 +688,7 @@ private SecurityCacheEntry getEntry(SecurityReference reference)
      */
     private SecurityCacheEntry getEntry(UserSecurityReference userReference, SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(userReference, reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getEntry(getEntryKey(userReference, reference));
     }
 
     /**
@@ -600,12 +699,32 @@ private SecurityCacheEntry getEntry(UserSecurityReference userReference, Securit
      */
     private SecurityCacheEntry getShadowEntry(SecurityReference userReference, SecurityReference wiki)
     {
-        readLock.lock();
-        try {
-            return cache.get(getShadowEntryKey(userReference, wiki));
-        } finally {
-            readLock.unlock();
-        }
+        return getEntry(getShadowEntryKey(userReference, wiki));
+    }
+
+    /**
+     * Same as {@link #getEntry(SecurityReference)} but to be used only while holding the write lock.
+     *
+     * @param reference the reference requested.
+     * @return a security cache entry corresponding to given reference, null if none is available in the cache.
+     */
+    private SecurityCacheEntry getWriteLockedEntry(SecurityReference reference)
+    {
+        return this.cache.get(getEntryKey(reference));
+    }
+
+    /**
+     * Same as {@link #getShadowEntry(SecurityReference, SecurityReference)} but to be used only while holding the
+     * write lock.
+     *
+     * @param userReference the user reference requested.
+     * @param wiki the wiki context of the shadow reference to retrieve.
+     * @return a security cache entry corresponding to the given user and reference, null if none is available in the
+     *         cache.
+     */
+    private SecurityCacheEntry getWriteLockedShadowEntry(SecurityReference userReference, SecurityReference wiki)
+    {
+        return this.cache.get(getShadowEntryKey(userReference, wiki));
     }
 
     /**
@@ -711,7 +830,7 @@ private void add(SecurityEntry entry, Collection<GroupSecurityReference> groups)
     {
         String key = getEntryKey(entry);
 
-        writeLock.lock();
+        long stamp = this.lock.writeLock();
         try {
             if (isAlreadyInserted(key, entry, groups)) {
                 return;
@@ -720,7 +839,7 @@ private void add(SecurityEntry entry, Collection<GroupSecurityReference> groups)
 
             logger.debug("Added rule/shadow entry [{}] into the cache.", key);
         } finally {
-            writeLock.unlock();
+            this.lock.unlockWrite(stamp);
         }
     }
 
@@ -774,7 +893,7 @@ private void internalAdd(SecurityAccessEntry entry, SecurityReference wiki)
     {
         String key = getEntryKey(entry);
 
-        writeLock.lock();
+        long stamp = this.lock.writeLock();
         try {
             if (isAlreadyInserted(key, entry)) {
                 return;
@@ -784,7 +903,7 @@ private void internalAdd(SecurityAccessEntry entry, SecurityReference wiki)
             logger.debug("Added access entry [{}] into the cache.", key);
         } finally {
             newEntry = null;
-            writeLock.unlock();
+            this.lock.unlockWrite(stamp);
         }
     }
 
@@ -838,9 +957,9 @@ public void remove(UserSecurityReference user, SecurityReference entity)
         this.invalidationWriteLock.lock();
 
         try {
-            writeLock.lock();
+            long stamp = this.lock.writeLock();
             try {
-                SecurityCacheEntry entry = getEntry(user, entity);
+                SecurityCacheEntry entry = this.cache.get(getEntryKey(user, entity));
                 if (entry != null) {
                     if (logger.isDebugEnabled()) {
                         logger.debug("Remove outdated access entry for [{}].", getEntryKey(user, entity));
@@ -848,7 +967,7 @@ public void remove(UserSecurityReference user, SecurityReference entity)
                     this.cache.remove(entry.getKey());
                 }
             } finally {
-                writeLock.unlock();
+                this.lock.unlockWrite(stamp);
             }
         } finally {
             this.invalidationWriteLock.unlock();
@@ -861,9 +980,9 @@ public void remove(SecurityReference entity)
         this.invalidationWriteLock.lock();
 
         try {
-            writeLock.lock();
+            long stamp = this.lock.writeLock();
             try {
-                SecurityCacheEntry entry = getEntry(entity);
+                SecurityCacheEntry entry = getWriteLockedEntry(entity);
                 if (entry != null) {
                     if (logger.isDebugEnabled()) {
                         logger.debug("Remove outdated rule entry for [{}].", getEntryKey(entity));
@@ -871,7 +990,7 @@ public void remove(SecurityReference entity)
                     this.cache.remove(entry.getKey());
                 }
             } finally {
-                writeLock.unlock();
+                this.lock.unlockWrite(stamp);
             }
         } finally {
             this.invalidationWriteLock.unlock();
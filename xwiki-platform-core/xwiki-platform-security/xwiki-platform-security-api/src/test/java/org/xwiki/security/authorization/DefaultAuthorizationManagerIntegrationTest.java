@@ -129,6 +129,10 @@ public void initializeMocks() throws Exception
         final CacheManager cacheManager = componentManager.registerMockComponent(CacheManager.class);
         when(cacheManager.createNewCache(any(CacheConfiguration.class))).thenReturn(cache);
 
+        AuthorizationManagerConfiguration configuration =
+            componentManager.registerMockComponent(AuthorizationManagerConfiguration.class);
+        when(configuration.getCacheCapacity()).thenReturn(10000);
+
         xWikiBridge = componentManager.registerMockComponent(XWikiBridge.class);
         userBridge = componentManager.registerMockComponent(UserBridge.class);
         securityEntryReader = componentManager.registerMockComponent(SecurityEntryReader.class);
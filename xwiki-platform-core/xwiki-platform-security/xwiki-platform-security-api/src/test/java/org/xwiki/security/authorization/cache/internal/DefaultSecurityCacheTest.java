@@ -26,14 +26,26 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.StampedLock;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.EntryEvictionConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.phase.Initializable;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.internal.reference.DefaultStringEntityReferenceSerializer;
 import org.xwiki.model.internal.reference.DefaultSymbolScheme;
@@ -48,6 +60,7 @@
 import org.xwiki.security.SecurityReference;
 import org.xwiki.security.SecurityReferenceFactory;
 import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.AuthorizationManagerConfiguration;
 import org.xwiki.security.authorization.SecurityAccessEntry;
 import org.xwiki.security.authorization.SecurityEntry;
 import org.xwiki.security.authorization.SecurityRuleEntry;
@@ -66,6 +79,8 @@
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -112,6 +127,10 @@ public void configure() throws Exception
 
             final CacheManager cacheManager = securityCacheMocker.getInstance(CacheManager.class);
             when(cacheManager.createNewCache(any(CacheConfiguration.class))).thenReturn(cache);
+
+            AuthorizationManagerConfiguration configuration =
+                securityCacheMocker.getInstance(AuthorizationManagerConfiguration.class);
+            when(configuration.getCacheCapacity()).thenReturn(10000);
         }
 
         XWikiBridge xwikiBridge = securityReferenceFactoryMocker.getInstance(XWikiBridge.class);
@@ -862,4 +881,112 @@ public boolean keepAccess(SecurityAccessEntry entry)
             }
         });
     }
+
+    private StampedLock getLock() throws IllegalAccessException
+    {
+        return (StampedLock) FieldUtils.readField(this.securityCache, "lock", true);
+    }
+
+    @Test
+    public void testGetWithOptimisticRead() throws Exception
+    {
+        SecurityRuleEntry entry = mockSecurityRuleEntry(xwikiRef);
+        securityCache.add(entry);
+
+        int getCount = cache.getGetCount();
+        assertThat(securityCache.get(xwikiRef), sameInstance(entry));
+
+        // No writer modified the cache during the read so the optimistic read is enough
+        assertThat(cache.getGetCount(), is(getCount + 1));
+    }
+
+    @Test
+    public void testGetWhenWriterModifiedCacheDuringOptimisticRead() throws Exception
+    {
+        SecurityRuleEntry entry = mockSecurityRuleEntry(xwikiRef);
+        securityCache.add(entry);
+
+        StampedLock lock = getLock();
+        cache.setGetListener(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                // Simulate a writer on the first read only
+                cache.setGetListener(null);
+                lock.unlockWrite(lock.writeLock());
+            }
+        });
+
+        int getCount = cache.getGetCount();
+        assertThat(securityCache.get(xwikiRef), sameInstance(entry));
+
+        // The optimistic read was invalidated so the entry is read again with the read lock
+        assertThat(cache.getGetCount(), is(getCount + 2));
+    }
+
+    @Test
+    public void testGetWaitsForWriter() throws Exception
+    {
+        SecurityRuleEntry entry = mockSecurityRuleEntry(xwikiRef);
+        securityCache.add(entry);
+
+        StampedLock lock = getLock();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            long stamp = lock.writeLock();
+            Future<SecurityRuleEntry> future;
+            try {
+                future = executor.submit(() -> securityCache.get(xwikiRef));
+
+                // The reader must not see the cache while a writer is modifying it
+                try {
+                    future.get(100, TimeUnit.MILLISECONDS);
+                    fail("The reader should wait for the writer");
+                } catch (TimeoutException e) {
+                    // Expected
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            assertThat(future.get(10, TimeUnit.SECONDS), sameInstance(entry));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCacheCapacity() throws Exception
+    {
+        AuthorizationManagerConfiguration configuration =
+            securityCacheMocker.getInstance(AuthorizationManagerConfiguration.class);
+        when(configuration.getCacheCapacity()).thenReturn(2);
+
+        ((Initializable) securityCache).initialize();
+
+        CacheManager cacheManager = securityCacheMocker.getInstance(CacheManager.class);
+        ArgumentCaptor<CacheConfiguration> captor = ArgumentCaptor.forClass(CacheConfiguration.class);
+        verify(cacheManager, times(2)).createNewCache(captor.capture());
+
+        assertThat(((LRUEvictionConfiguration) captor.getAllValues().get(0)
+            .get(EntryEvictionConfiguration.CONFIGURATIONID)).getMaxEntries(), is(10000));
+        assertThat(((LRUEvictionConfiguration) captor.getAllValues().get(1)
+            .get(EntryEvictionConfiguration.CONFIGURATIONID)).getMaxEntries(), is(2));
+
+        // Compute the keys of more references than the configured capacity
+        for (SecurityReference reference : entityRefs) {
+            securityCache.get(reference);
+            securityCache.get(userRef, reference);
+        }
+
+        // The interned keys must follow the configured capacity
+        Map<?, ?> referenceKeys = (Map<?, ?>) FieldUtils.readField(securityCache, "referenceKeys", true);
+        Map<?, ?> accessKeys = (Map<?, ?>) FieldUtils.readField(securityCache, "accessKeys", true);
+        int keysSize = referenceKeys.size();
+        for (Object keys : accessKeys.values()) {
+            keysSize += ((Map<?, ?>) keys).size();
+        }
+        assertThat(keysSize <= 4, is(true));
+    }
 }
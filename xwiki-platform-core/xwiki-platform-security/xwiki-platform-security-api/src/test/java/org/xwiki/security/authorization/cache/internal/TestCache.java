@@ -46,6 +46,8 @@
     private Map<String, T> cache = new HashMap<String, T>();
     private CacheEntryListener<T> listener;
     private String lastInsertedKey;
+    private Runnable getListener;
+    private int getCount;
 
     class TestCacheEntry implements CacheEntry<T>
     {
@@ -117,6 +119,11 @@ public void set(String key, T value)
     @Override
     public T get(String key)
     {
+        getCount++;
+        if (getListener != null) {
+            getListener.run();
+        }
+
         return cache.get(key);
     }
 
@@ -170,4 +177,20 @@ public String getLastInsertedKey()
     {
         return lastInsertedKey;
     }
+
+    /**
+     * @param getListener called before returning the value of each {@link #get(String)}
+     */
+    public void setGetListener(Runnable getListener)
+    {
+        this.getListener = getListener;
+    }
+
+    /**
+     * @return the number of calls to {@link #get(String)}
+     */
+    public int getGetCount()
+    {
+        return getCount;
+    }
 }
@@ -24,13 +24,18 @@
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.xwiki.skinx.internal.SxCachedContent;
+import org.xwiki.skinx.internal.SxContentCache;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.debug.DebugConfiguration;
 import com.xpn.xwiki.web.Utils;
 import com.xpn.xwiki.web.XWikiAction;
+import com.xpn.xwiki.web.XWikiRequest;
 import com.xpn.xwiki.web.XWikiResponse;
 import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
 
@@ -58,14 +63,28 @@ public abstract class AbstractSxAction extends XWikiAction
     /** What http header parameter is used to specify when the cache should expire. */
     private static final String CACHE_EXPIRES_HEADER = "Expires";
 
-    /** The response will be sent to the browser as a byte array in this character set. */
-    private static final String RESPONSE_CHARACTER_SET = "UTF-8";
+    /** What http header parameter is used to identify the content of the response. */
+    private static final String ETAG_HEADER = "ETag";
+
+    /** The cache control of the responses which can be cached forever by the browser. */
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    /** The name of the gzip content encoding. */
+    private static final String GZIP_ENCODING = "gzip";
 
     /** If the user passes this parameter in the URL, we will look for the script in the jar files. */
     private static final String JAR_RESOURCE_REQUEST_PARAMETER = "resource";
 
+    /** The parameter holding the version of the skin extension document in the URLs generated by the plugins. */
+    private static final String DOCUMENT_VERSION_REQUEST_PARAMETER = "docVersion";
+
+    /** The separator used in the cache keys. */
+    private static final char KEY_SEPARATOR = '|';
+
     private DebugConfiguration debugConfiguration;
 
+    private SxContentCache contentCache;
+
     /** @return the logging object of the concrete subclass. */
     protected abstract Logger getLogger();
 
@@ -81,9 +100,25 @@ public abstract class AbstractSxAction extends XWikiAction
     public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext context)
         throws XWikiException
     {
+        XWikiRequest request = context.getRequest();
         XWikiResponse response = context.getResponse();
 
-        String extensionContent = sxSource.getContent();
+        CachePolicy cachePolicy = sxSource.getCachePolicy();
+
+        boolean evaluated = sxSource instanceof SxDocumentSource && ((SxDocumentSource) sxSource).isEvaluated();
+
+        // Minifying and compressing a skin extension is costly so the result is cached, unless the extension forbids
+        // it or is evaluated: the result of the evaluation can depend on the current user and on other documents
+        // (e.g. the color theme) whose modifications are not tracked
+        SxCachedContent extensionContent;
+        if (cachePolicy == CachePolicy.FORBID) {
+            extensionContent = new SxCachedContent(getContent(sxSource, sxType), false);
+        } else if (evaluated) {
+            extensionContent = new SxCachedContent(getContent(sxSource, sxType), true);
+        } else {
+            extensionContent =
+                getContentCache().get(getCacheKey(sxSource, sxType, context), () -> getContent(sxSource, sxType));
+        }
 
         response.setContentType(sxType.getContentType());
 
@@ -91,12 +126,15 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setDateHeader(LAST_MODIFIED_HEADER, sxSource.getLastModifiedDate());
         }
 
-        CachePolicy cachePolicy = sxSource.getCachePolicy();
-
         if (cachePolicy != CachePolicy.FORBID) {
             response.setHeader(CACHE_CONTROL_HEADER, "public");
+            response.setHeader(ETAG_HEADER, extensionContent.getETag());
         }
         if (cachePolicy == CachePolicy.LONG) {
+            if (!evaluated && isVersioned(sxSource, context)) {
+                // The URL changes with each version of the extension so the browser can keep it forever
+                response.setHeader(CACHE_CONTROL_HEADER, IMMUTABLE_CACHE_CONTROL);
+            }
             // Cache for one month (30 days)
             response.setDateHeader(CACHE_EXPIRES_HEADER, (new Date()).getTime() + LONG_CACHE_DURATION);
         } else if (cachePolicy == CachePolicy.SHORT) {
@@ -106,17 +144,79 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setHeader(CACHE_CONTROL_HEADER, "no-cache, no-store, must-revalidate");
         }
 
-        if (getDebugConfiguration().isMinify()) {
-            extensionContent = sxType.getCompressor().compress(extensionContent);
+        if (cachePolicy != CachePolicy.FORBID
+            && Utils.isETagMatching(request.getHeader("If-None-Match"), extensionContent.getETag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] bytes = extensionContent.getContent();
+        response.setHeader("Vary", "Accept-Encoding");
+        if (extensionContent.getGzipContent() != null
+            && StringUtils.contains(request.getHeader("Accept-Encoding"), GZIP_ENCODING)) {
+            bytes = extensionContent.getGzipContent();
+            response.setHeader("Content-Encoding", GZIP_ENCODING);
         }
 
         try {
-            response.setContentLength(extensionContent.getBytes(RESPONSE_CHARACTER_SET).length);
-            response.getOutputStream().write(extensionContent.getBytes(RESPONSE_CHARACTER_SET));
+            response.setContentLength(bytes.length);
+            response.getOutputStream().write(bytes);
         } catch (IOException ex) {
             getLogger().warn("Failed to send SX content: [{}]", ex.getMessage());
         }
+    }
 
+    /**
+     * @param sxSource the source of the extension
+     * @param sxType the type of extension
+     * @return the content of the extension, minified if needed
+     */
+    private String getContent(SxSource sxSource, Extension sxType)
+    {
+        String content = sxSource.getContent();
+        if (getDebugConfiguration().isMinify()) {
+            content = sxType.getCompressor().compress(content);
+        }
+
+        return content;
+    }
+
+    /**
+     * @param sxSource the source of the extension, which is not evaluated
+     * @param sxType the type of extension
+     * @param context the XWiki context
+     * @return the key identifying the response in the cache
+     */
+    private String getCacheKey(SxSource sxSource, Extension sxType, XWikiContext context)
+    {
+        StringBuilder key = new StringBuilder();
+
+        key.append(sxType.getClassName()).append(KEY_SEPARATOR);
+        if (sxSource instanceof SxDocumentSource) {
+            XWikiDocument document = context.getDoc();
+            key.append(document.getDocumentReferenceWithLocale()).append(KEY_SEPARATOR);
+            key.append(document.getVersion()).append(KEY_SEPARATOR);
+            key.append(document.getDate().getTime());
+        } else {
+            key.append(context.getRequest().getParameter(JAR_RESOURCE_REQUEST_PARAMETER));
+        }
+        key.append(KEY_SEPARATOR);
+
+        key.append(getDebugConfiguration().isMinify()).append(KEY_SEPARATOR);
+        key.append(context.getRequest().getQueryString());
+
+        return key.toString();
+    }
+
+    /**
+     * @param sxSource the source of the extension
+     * @param context the XWiki context
+     * @return {@code true} if the requested URL contains the current version of the extension
+     */
+    private boolean isVersioned(SxSource sxSource, XWikiContext context)
+    {
+        return sxSource instanceof SxDocumentSource && StringUtils.equals(
+            context.getRequest().getParameter(DOCUMENT_VERSION_REQUEST_PARAMETER), context.getDoc().getVersion());
     }
 
     @Override
@@ -152,6 +252,15 @@ protected DebugConfiguration getDebugConfiguration()
         return this.debugConfiguration;
     }
 
+    private SxContentCache getContentCache()
+    {
+        if (this.contentCache == null) {
+            this.contentCache = Utils.getComponent(SxContentCache.class);
+        }
+
+        return this.contentCache;
+    }
+
     /**
      * Get the type of extension, depends on the type of action.
      *
@@ -0,0 +1,98 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * The response of a skin extension action, ready to be sent: encoded, compressed and identified by a hash of its
+ * content.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class SxCachedContent
+{
+    private final byte[] content;
+
+    private final byte[] gzipContent;
+
+    private final String etag;
+
+    /**
+     * @param content the content of the skin extension, already minified if needed
+     * @param cacheable {@code true} if the content is reused for several requests, {@code false} if it's generated for
+     *            a single request in which case it's not worth identifying and compressing it
+     */
+    public SxCachedContent(String content, boolean cacheable)
+    {
+        this.content = content.getBytes(StandardCharsets.UTF_8);
+        if (cacheable) {
+            this.etag = '"' + DigestUtils.md5Hex(this.content) + '"';
+            this.gzipContent = compress(this.content);
+        } else {
+            this.etag = null;
+            this.gzipContent = null;
+        }
+    }
+
+    private static byte[] compress(byte[] content)
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(stream)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            // Can't happen with an in memory stream
+            return null;
+        }
+
+        // Don't bother sending a compressed content bigger than the original
+        return stream.size() < content.length ? stream.toByteArray() : null;
+    }
+
+    /**
+     * @return the content encoded in UTF-8
+     */
+    public byte[] getContent()
+    {
+        return this.content;
+    }
+
+    /**
+     * @return the gzip compressed content, {@code null} if compressing it is useless or the content is not cacheable
+     */
+    public byte[] getGzipContent()
+    {
+        return this.gzipContent;
+    }
+
+    /**
+     * @return the strong entity tag of the content, {@code null} if the content is not cacheable
+     */
+    public String getETag()
+    {
+        return this.etag;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+
+/**
+ * Keep the responses of the skin extension actions to avoid minifying and compressing the same skin extensions again
+ * for each request. Only the extensions which are not evaluated are cached since the result of the evaluation can
+ * depend on documents whose modifications are not tracked.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = SxContentCache.class)
+@Singleton
+public class SxContentCache implements Initializable, Disposable
+{
+    private static final int CACHE_SIZE = 500;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    private Cache<SxCachedContent> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.cache = this.cacheManager.createNewCache(new LRUCacheConfiguration("skinx.content", CACHE_SIZE));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the skin extensions content cache", e);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.cache.dispose();
+    }
+
+    /**
+     * @param key the key of the content, {@code null} if it should not be cached
+     * @param contentSupplier the supplier used to generate the content when it's not in the cache
+     * @return the cached content, neither identified nor compressed when it should not be cached
+     */
+    public SxCachedContent get(String key, Supplier<String> contentSupplier)
+    {
+        SxCachedContent content = key != null ? this.cache.get(key) : null;
+
+        if (content == null) {
+            content = new SxCachedContent(contentSupplier.get(), key != null);
+
+            if (key != null) {
+                this.cache.set(key, content);
+            }
+        }
+
+        return content;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.internal.MapCache;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.skinx.internal.SxCachedContent;
+import org.xwiki.skinx.internal.SxContentCache;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.debug.DebugConfiguration;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.XWikiResponse;
+import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AbstractSxAction}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ComponentList(SxContentCache.class)
+public class AbstractSxActionTest
+{
+    private static final String CONTENT = StringUtils.repeat("body { color: red; }\n", 100);
+
+    private static final String ETAG = new SxCachedContent(CONTENT, true).getETag();
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private DebugConfiguration debugConfiguration;
+
+    private AbstractSxAction action = new AbstractSxAction()
+    {
+        @Override
+        protected Logger getLogger()
+        {
+            return mock(Logger.class);
+        }
+
+        @Override
+        public Extension getExtensionType()
+        {
+            return new CssExtension();
+        }
+    };
+
+    private XWikiRequest request;
+
+    private XWikiResponse response;
+
+    private ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    private SxSource source;
+
+    @BeforeComponent
+    public void beforeComponent() throws Exception
+    {
+        when(this.cacheManager.createNewCache(any())).thenReturn(new MapCache<>());
+    }
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+
+        this.request = mock(XWikiRequest.class);
+        when(this.request.getParameter("resource")).thenReturn("style.css");
+        xcontext.setRequest(this.request);
+
+        this.response = mock(XWikiResponse.class);
+        when(this.response.getOutputStream()).thenReturn(new ServletOutputStream()
+        {
+            @Override
+            public void write(int b) throws IOException
+            {
+                output.write(b);
+            }
+
+            @Override
+            public boolean isReady()
+            {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener)
+            {
+                // Not needed
+            }
+        });
+        xcontext.setResponse(this.response);
+
+        this.source = mock(SxSource.class);
+        when(this.source.getContent()).thenReturn(CONTENT);
+    }
+
+    @Test
+    public void renderExtension() throws Exception
+    {
+        when(this.source.getCachePolicy()).thenReturn(CachePolicy.LONG);
+
+        this.action.renderExtension(this.source, new CssExtension(), this.oldcore.getXWikiContext());
+
+        verify(this.response).setHeader("ETag", ETAG);
+        verify(this.response, never()).setHeader(eq("Content-Encoding"), any());
+        verify(this.response, never()).setStatus(anyInt());
+        assertEquals(CONTENT, this.output.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    public void renderExtensionWithGzip() throws Exception
+    {
+        when(this.source.getCachePolicy()).thenReturn(CachePolicy.LONG);
+        when(this.request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+
+        this.action.renderExtension(this.source, new CssExtension(), this.oldcore.getXWikiContext());
+
+        verify(this.response).setHeader("ETag", ETAG);
+        verify(this.response).setHeader("Content-Encoding", "gzip");
+        verify(this.response).setContentLength(this.output.size());
+        try (InputStream stream = new GZIPInputStream(new ByteArrayInputStream(this.output.toByteArray()))) {
+            assertEquals(CONTENT, IOUtils.toString(stream, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void renderExtensionWhenNotModified() throws Exception
+    {
+        when(this.source.getCachePolicy()).thenReturn(CachePolicy.LONG);
+        when(this.request.getHeader("If-None-Match")).thenReturn(ETAG);
+
+        this.action.renderExtension(this.source, new CssExtension(), this.oldcore.getXWikiContext());
+
+        verify(this.response).setHeader("ETag", ETAG);
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, this.output.size());
+    }
+
+    @Test
+    public void renderExtensionWhenWeakETagInList() throws Exception
+    {
+        when(this.source.getCachePolicy()).thenReturn(CachePolicy.LONG);
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\", W/" + ETAG);
+
+        this.action.renderExtension(this.source, new CssExtension(), this.oldcore.getXWikiContext());
+
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, this.output.size());
+    }
+
+    @Test
+    public void renderEvaluatedExtension() throws Exception
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        XWikiDocument document = new XWikiDocument(new DocumentReference("wiki", "space", "page"));
+        document.setDate(new Date());
+        xcontext.setDoc(document);
+        when(this.request.getParameter("docVersion")).thenReturn(document.getVersion());
+
+        SxDocumentSource documentSource = mock(SxDocumentSource.class);
+        when(documentSource.isEvaluated()).thenReturn(true);
+        when(documentSource.getCachePolicy()).thenReturn(CachePolicy.LONG);
+        when(documentSource.getContent()).thenReturn(CONTENT, "modified");
+
+        this.action.renderExtension(documentSource, new CssExtension(), xcontext);
+
+        verify(this.response).setHeader("ETag", ETAG);
+        assertEquals(CONTENT, this.output.toString(StandardCharsets.UTF_8.name()));
+
+        // The evaluated content can change without any modification of the extension document
+        this.output.reset();
+        this.action.renderExtension(documentSource, new CssExtension(), xcontext);
+
+        assertEquals("modified", this.output.toString(StandardCharsets.UTF_8.name()));
+        verify(this.response, never()).setHeader(eq("Cache-Control"), contains("immutable"));
+    }
+
+    @Test
+    public void renderVersionedExtension() throws Exception
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        XWikiDocument document = new XWikiDocument(new DocumentReference("wiki", "space", "page"));
+        document.setDate(new Date());
+        xcontext.setDoc(document);
+        when(this.request.getParameter("docVersion")).thenReturn(document.getVersion());
+
+        SxDocumentSource documentSource = mock(SxDocumentSource.class);
+        when(documentSource.getCachePolicy()).thenReturn(CachePolicy.LONG);
+        when(documentSource.getContent()).thenReturn(CONTENT, "modified");
+
+        this.action.renderExtension(documentSource, new CssExtension(), xcontext);
+        this.output.reset();
+        this.action.renderExtension(documentSource, new CssExtension(), xcontext);
+
+        // The content of the same version of the extension is taken from the cache
+        assertEquals(CONTENT, this.output.toString(StandardCharsets.UTF_8.name()));
+        verify(documentSource).getContent();
+        verify(this.response, times(2)).setHeader("Cache-Control", "public, max-age=31536000, immutable");
+    }
+
+    @Test
+    public void renderExtensionWhenCacheForbidden() throws Exception
+    {
+        when(this.source.getCachePolicy()).thenReturn(CachePolicy.FORBID);
+        when(this.request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+        when(this.request.getHeader("If-None-Match")).thenReturn(ETAG);
+
+        this.action.renderExtension(this.source, new CssExtension(), this.oldcore.getXWikiContext());
+
+        // The content is neither identified nor compressed
+        verify(this.response, never()).setHeader(eq("ETag"), any());
+        verify(this.response, never()).setHeader(eq("Content-Encoding"), any());
+        verify(this.response, never()).setStatus(anyInt());
+        verify(this.response).setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), this.output.toByteArray());
+    }
+}
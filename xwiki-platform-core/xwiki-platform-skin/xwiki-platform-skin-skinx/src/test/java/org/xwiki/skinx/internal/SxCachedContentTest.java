@@ -0,0 +1,78 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for {@link SxCachedContent}.
+ *
+ * @version $Id$
+ */
+public class SxCachedContentTest
+{
+    private static final String CONTENT = StringUtils.repeat("body { color: red; }\n", 100);
+
+    @Test
+    public void cacheableContent() throws IOException
+    {
+        SxCachedContent content = new SxCachedContent(CONTENT, true);
+
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), content.getContent());
+        assertEquals(content.getETag(), new SxCachedContent(CONTENT, true).getETag());
+        assertNotEquals(content.getETag(), new SxCachedContent("other", true).getETag());
+
+        try (InputStream stream = new GZIPInputStream(new ByteArrayInputStream(content.getGzipContent()))) {
+            assertEquals(CONTENT, IOUtils.toString(stream, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void cacheableContentTooSmallToCompress()
+    {
+        SxCachedContent content = new SxCachedContent("a", true);
+
+        assertArrayEquals(new byte[] {'a'}, content.getContent());
+        assertNull(content.getGzipContent());
+    }
+
+    @Test
+    public void notCacheableContent()
+    {
+        SxCachedContent content = new SxCachedContent(CONTENT, false);
+
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), content.getContent());
+        assertNull(content.getETag());
+        assertNull(content.getGzipContent());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link SxContentCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class SxContentCacheTest
+{
+    @InjectMockComponents
+    private SxContentCache contentCache;
+
+    private final Map<String, SxCachedContent> cachedContents = new HashMap<>();
+
+    private Supplier<String> contentSupplier;
+
+    @BeforeComponent
+    public void beforeComponent(MockitoComponentManager componentManager) throws Exception
+    {
+        Cache<SxCachedContent> cache = mock(Cache.class);
+        when(cache.get(any())).then(invocation -> this.cachedContents.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.cachedContents.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(cache).set(any(), any());
+
+        CacheManager cacheManager = componentManager.registerMockComponent(CacheManager.class);
+        when(cacheManager.createNewCache(any())).thenReturn(cache);
+    }
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        this.contentSupplier = mock(Supplier.class);
+        when(this.contentSupplier.get()).thenReturn("content");
+    }
+
+    @Test
+    public void get()
+    {
+        SxCachedContent content = this.contentCache.get("key", this.contentSupplier);
+
+        assertNotNull(content.getETag());
+        assertSame(content, this.contentCache.get("key", this.contentSupplier));
+        verify(this.contentSupplier).get();
+
+        assertNotSame(content, this.contentCache.get("otherKey", this.contentSupplier));
+        verify(this.contentSupplier, times(2)).get();
+    }
+
+    @Test
+    public void getWithoutKey()
+    {
+        SxCachedContent content = this.contentCache.get(null, this.contentSupplier);
+
+        // The content is not cacheable so it's generated for each request
+        assertNull(content.getETag());
+        assertNull(content.getGzipContent());
+        assertNotSame(content, this.contentCache.get(null, this.contentSupplier));
+        verify(this.contentSupplier, times(2)).get();
+        assertTrue(this.cachedContents.isEmpty());
+    }
+}
@@ -23,9 +23,13 @@
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.AutoCloseInputStream;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.xwiki.store.UnexpectedException;
 
 import com.xpn.xwiki.doc.XWikiAttachment;
@@ -122,6 +126,36 @@ public InputStream getContentInputStream()
         }
     }
 
+    @Override
+    public InputStream getContentInputStream(long offset, long length) throws IOException
+    {
+        if (this.getFileItem() != null) {
+            return super.getContentInputStream(offset, length);
+        }
+
+        // Move directly to the beginning of the range instead of reading all the bytes before it
+        FileChannel channel = FileChannel.open(this.storageFile.toPath(), StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+
+            throw e;
+        }
+
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public File getContentFile()
+    {
+        if (this.getFileItem() != null) {
+            return super.getContentFile();
+        }
+
+        return this.storageFile;
+    }
+
     @Override
     public long getLongSize()
     {